@@ -0,0 +1,263 @@
+package com.llmocr.mcp.invoice.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, batched audit log writer
+ * 
+ * Request threads enqueue audit events into a bounded lock-free ring buffer; a single
+ * background thread drains it and writes batches to mcp_audit_log with JDBC batch
+ * inserts, flushing when batch-size events are pending or flush-interval has elapsed.
+ * Tool calls therefore no longer pay for an extra transaction and connection checkout.
+ * 
+ * When the buffer is full, the backpressure policy decides what happens:
+ * - SPILL (default): append to the local spill file
+ * - BLOCK: wait up to block-timeout for space, then spill
+ * - DROP: drop immediately
+ * 
+ * Batches the database cannot take are spilled, and for database-retry-interval
+ * afterwards batches go straight to the spill file rather than waiting on a database
+ * that is down; the spill replayer writes them back once it recovers. A batch failing
+ * on the data of some of its rows (constraint violation, bad value) is retried row by
+ * row instead, and only the rejected rows are quarantined.
+ * 
+ * On shutdown the buffer is drained before the datasource is closed.
+ */
+@Component
+@ConditionalOnProperty(name = "audit.async.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class AsyncAuditWriter implements SmartLifecycle {
+
+    public enum BackpressurePolicy {
+        BLOCK, DROP, SPILL
+    }
+
+    private final AuditLogJdbcWriter auditLogJdbcWriter;
+    private final AuditSpillStore spillStore;
+    private final AuditEventRingBuffer buffer;
+    private final BackpressurePolicy backpressurePolicy;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration blockTimeout;
+    private final Duration drainTimeout;
+    private final Duration databaseRetryInterval;
+
+    private final Counter enqueued;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter spilled;
+    private final Counter failed;
+
+    private volatile boolean running;
+    private volatile long databaseRetryAt = System.nanoTime();
+    private volatile Thread writerThread;
+
+    public AsyncAuditWriter(
+            AuditLogJdbcWriter auditLogJdbcWriter,
+            AuditSpillStore spillStore,
+            MeterRegistry meterRegistry,
+            @Value("${audit.async.capacity:8192}") int capacity,
+            @Value("${audit.async.batch-size:500}") int batchSize,
+            @Value("${audit.async.flush-interval:200ms}") Duration flushInterval,
+            @Value("${audit.async.backpressure:SPILL}") BackpressurePolicy backpressurePolicy,
+            @Value("${audit.async.block-timeout:1s}") Duration blockTimeout,
+            @Value("${audit.async.drain-timeout:10s}") Duration drainTimeout,
+            @Value("${audit.async.database-retry-interval:10s}") Duration databaseRetryInterval) {
+        this.auditLogJdbcWriter = auditLogJdbcWriter;
+        this.spillStore = spillStore;
+        this.buffer = new AuditEventRingBuffer(capacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.backpressurePolicy = backpressurePolicy;
+        this.blockTimeout = blockTimeout;
+        this.drainTimeout = drainTimeout;
+        this.databaseRetryInterval = databaseRetryInterval;
+
+        Gauge.builder("mcp.audit.queue.size", buffer, AuditEventRingBuffer::size)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+        this.enqueued = counter(meterRegistry, "enqueued");
+        this.written = counter(meterRegistry, "written");
+        this.dropped = counter(meterRegistry, "dropped");
+        this.spilled = counter(meterRegistry, "spilled");
+        this.failed = counter(meterRegistry, "failed");
+    }
+
+    /**
+     * Enqueue an audit event; never throws and never blocks longer than block-timeout
+     */
+    public void submit(AuditEvent event) {
+        if (!running) {
+            // Not started yet or already draining - write through so the event is not lost
+            writeBatch(List.of(event));
+            return;
+        }
+
+        if (buffer.offer(event) || (backpressurePolicy == BackpressurePolicy.BLOCK && offerWithTimeout(event))) {
+            enqueued.increment();
+            if (buffer.size() >= batchSize) {
+                LockSupport.unpark(writerThread);
+            }
+            return;
+        }
+
+        if (backpressurePolicy != BackpressurePolicy.DROP) {
+            spill(List.of(event));
+        } else {
+            dropped.increment();
+            log.warn("Audit buffer full ({} events), dropping audit event for tool {}", buffer.capacity(), event.toolName());
+        }
+    }
+
+    private boolean offerWithTimeout(AuditEvent event) {
+        long deadline = System.nanoTime() + blockTimeout.toNanos();
+        LockSupport.unpark(writerThread);
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            if (buffer.offer(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void runWriter() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        long flushDeadline = 0;
+
+        while (true) {
+            AuditEvent event = buffer.poll();
+            if (event != null) {
+                if (batch.isEmpty()) {
+                    // The oldest pending event waits at most flush-interval
+                    flushDeadline = System.nanoTime() + flushInterval.toNanos();
+                }
+                batch.add(event);
+                if (batch.size() >= batchSize) {
+                    flush(batch);
+                }
+                continue;
+            }
+
+            long now = System.nanoTime();
+            if (!batch.isEmpty() && now >= flushDeadline) {
+                flush(batch);
+            }
+
+            if (!running && buffer.isEmpty()) {
+                flush(batch);
+                return;
+            }
+
+            LockSupport.parkNanos(batch.isEmpty()
+                    ? flushInterval.toNanos()
+                    : Math.max(TimeUnit.MILLISECONDS.toNanos(1), flushDeadline - now));
+        }
+    }
+
+    private void flush(List<AuditEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        writeBatch(batch);
+        batch.clear();
+    }
+
+    private void writeBatch(List<AuditEvent> batch) {
+        if (System.nanoTime() < databaseRetryAt) {
+            // Database failed recently - spill straight away instead of waiting on it again
+            spill(batch);
+            return;
+        }
+
+        List<AuditEvent> rejected;
+        try {
+            rejected = auditLogJdbcWriter.write(batch);
+            written.increment(batch.size() - rejected.size());
+            log.debug("Wrote {} audit events", batch.size() - rejected.size());
+
+        } catch (Exception e) {
+            databaseRetryAt = System.nanoTime() + databaseRetryInterval.toNanos();
+            log.error("Failed to write {} audit events, spilling to disk: {}", batch.size(), e.getMessage());
+            spill(batch);
+            return;
+        }
+
+        if (!rejected.isEmpty()) {
+            try {
+                spillStore.quarantine(rejected);
+            } catch (Exception e) {
+                failed.increment(rejected.size());
+                log.error("Failed to quarantine {} rejected audit events: {}", rejected.size(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void spill(List<AuditEvent> events) {
+        try {
+            spillStore.append(events);
+            spilled.increment(events.size());
+        } catch (Exception e) {
+            failed.increment(events.size());
+            log.error("Failed to spill {} audit events: {}", events.size(), e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::runWriter, "audit-writer");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+        log.info("Async audit writer started (capacity {}, batch size {}, flush interval {}, backpressure {})",
+                buffer.capacity(), batchSize, flushInterval, backpressurePolicy);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = writerThread;
+        if (thread == null) {
+            return;
+        }
+
+        LockSupport.unpark(thread);
+        try {
+            thread.join(drainTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive() || !buffer.isEmpty()) {
+            log.warn("Audit writer did not drain within {}; {} events not written", drainTimeout, buffer.size());
+        } else {
+            log.info("Async audit writer drained and stopped");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("mcp.audit.events")
+                .description("Audit events by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
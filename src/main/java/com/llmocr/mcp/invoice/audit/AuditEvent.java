@@ -0,0 +1,23 @@
+package com.llmocr.mcp.invoice.audit;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable audit record captured on the request thread
+ * 
+ * Request-scoped context (tenant, client, user, IP) must be read before the event
+ * is handed to the background writer, which runs outside the request.
+ */
+public record AuditEvent(
+        String tenantId,
+        String clientId,
+        String operationType,
+        String toolName,
+        boolean success,
+        String errorMessage,
+        long executionTimeMs,
+        String userAgent,
+        String ipAddress,
+        LocalDateTime createdAt,
+        String createdBy) {
+}
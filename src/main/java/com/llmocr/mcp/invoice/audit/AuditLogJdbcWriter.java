@@ -0,0 +1,147 @@
+package com.llmocr.mcp.invoice.audit;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC batch insert of audit events into mcp_audit_log
+ *
+ * Shared by the asynchronous audit writer and the spill file replayer.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogJdbcWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO mcp_invoice.mcp_audit_log " +
+            "(tenant_id, client_id, operation_type, tool_name, success, error_message, " +
+            "execution_time_ms, user_agent, ip_address, created_at, created_by) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert the events, setting aside rows the database rejects for their data
+     *
+     * The events go out in one JDBC batch. If the batch fails with a data or constraint
+     * error (see isPermanentFailure), retrying it can never succeed, so the events are
+     * inserted row by row instead and only the offending rows are returned. Any other
+     * failure (database down, timeout) is thrown and nothing is written.
+     *
+     * @return the events the database rejected permanently, usually none
+     */
+    public List<AuditEvent> write(List<AuditEvent> events) {
+        try {
+            insert(events);
+            return List.of();
+        } catch (DataAccessException e) {
+            if (!isPermanentFailure(e)) {
+                throw e;
+            }
+            log.warn("Audit batch of {} events rejected ({}), retrying row by row", events.size(), e.getMessage());
+            return insertEach(events);
+        }
+    }
+
+    /**
+     * Insert the events in a single JDBC batch; throws if the database rejects the batch
+     */
+    public void insert(List<AuditEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), AuditLogJdbcWriter::bind);
+    }
+
+    /**
+     * Insert the events one at a time in one transaction, rolling back to a savepoint
+     * for each row rejected permanently; any other failure rolls back all of them
+     */
+    private List<AuditEvent> insertEach(List<AuditEvent> events) {
+        return jdbcTemplate.execute((ConnectionCallback<List<AuditEvent>>) connection -> {
+            // Inside a caller's transaction the savepoints still isolate rows, but commit is left to the caller
+            boolean ownTransaction = connection.getAutoCommit();
+            if (ownTransaction) {
+                connection.setAutoCommit(false);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                List<AuditEvent> rejected = new ArrayList<>();
+                for (AuditEvent event : events) {
+                    Savepoint savepoint = connection.setSavepoint();
+                    try {
+                        bind(statement, event);
+                        statement.executeUpdate();
+                        connection.releaseSavepoint(savepoint);
+                    } catch (SQLException e) {
+                        if (!isPermanentFailure(e)) {
+                            throw e;
+                        }
+                        connection.rollback(savepoint);
+                        rejected.add(event);
+                        log.warn("Audit event for tool {} in tenant {} rejected: {}",
+                                event.toolName(), event.tenantId(), e.getMessage());
+                    }
+                }
+                if (ownTransaction) {
+                    connection.commit();
+                }
+                return rejected;
+            } catch (SQLException | RuntimeException e) {
+                if (ownTransaction) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                if (ownTransaction) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        });
+    }
+
+    /**
+     * Whether a failure is caused by the rows themselves rather than the database being
+     * unavailable: SQLState class 22 (data exception) or 23 (integrity constraint
+     * violation, e.g. a NULL or unknown tenant_id)
+     */
+    static boolean isPermanentFailure(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                for (SQLException next = sqlException; next != null; next = next.getNextException()) {
+                    String sqlState = next.getSQLState();
+                    if (sqlState != null && (sqlState.startsWith("22") || sqlState.startsWith("23"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void bind(PreparedStatement ps, AuditEvent event) throws SQLException {
+        ps.setString(1, event.tenantId());
+        ps.setString(2, event.clientId());
+        ps.setString(3, event.operationType());
+        ps.setString(4, event.toolName());
+        ps.setBoolean(5, event.success());
+        ps.setString(6, event.errorMessage());
+        ps.setLong(7, event.executionTimeMs());
+        ps.setString(8, event.userAgent());
+        ps.setString(9, event.ipAddress());
+        ps.setTimestamp(10, Timestamp.valueOf(event.createdAt()));
+        if (event.createdBy() != null) {
+            ps.setString(11, event.createdBy());
+        } else {
+            ps.setNull(11, Types.VARCHAR);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.llmocr.mcp.invoice.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replays spilled audit events into mcp_audit_log once the database is reachable
+ *
+ * Runs periodically; each run streams the spill segments back in JDBC batches and
+ * stops at the first batch the database cannot take, to be retried on the next run.
+ * Rows rejected for their data are quarantined instead of blocking the replay.
+ */
+@Component
+@Slf4j
+public class AuditSpillReplayer {
+
+    private final AuditSpillStore spillStore;
+    private final AuditLogJdbcWriter auditLogJdbcWriter;
+    private final Counter replayed;
+
+    @Value("${audit.spill.replay-batch-size:500}")
+    private int batchSize;
+
+    public AuditSpillReplayer(AuditSpillStore spillStore, AuditLogJdbcWriter auditLogJdbcWriter,
+                              MeterRegistry meterRegistry) {
+        this.spillStore = spillStore;
+        this.auditLogJdbcWriter = auditLogJdbcWriter;
+        this.replayed = Counter.builder("mcp.audit.events")
+                .description("Audit events by outcome")
+                .tag("outcome", "replayed")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${audit.spill.replay-interval-ms:30000}",
+               initialDelayString = "${audit.spill.replay-interval-ms:30000}")
+    public void replaySpilledEvents() {
+        if (!spillStore.hasPendingEvents()) {
+            return;
+        }
+
+        try {
+            long count = spillStore.replay(batchSize, auditLogJdbcWriter::write);
+            if (count > 0) {
+                replayed.increment(count);
+                log.info("Replayed {} spilled audit events", count);
+            }
+        } catch (Exception e) {
+            log.error("Failed to replay spilled audit events: {}", e.getMessage(), e);
+        }
+    }
+}
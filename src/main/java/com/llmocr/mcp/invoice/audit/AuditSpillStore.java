@@ -0,0 +1,384 @@
+package com.llmocr.mcp.invoice.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable local spill store for audit events
+ *
+ * Events that cannot be written to the database (or queued, under the SPILL policy)
+ * are appended to memory-mapped, append-only segment files so tool calls never block
+ * on Postgres and no audit records are lost. Segment layout:
+ *
+ * [long replayedUpTo][int length][int crc32c][json bytes][int length][int crc32c][json bytes]...[int 0]
+ *
+ * Segments are pre-sized and zero-filled, so a zero length marks the end of the data.
+ * When a record does not fit, the active segment is sealed and a new one started.
+ * A crash while appending can leave a length followed by torn or zeroed bytes; such a
+ * record fails its checksum, and the rest of the segment from there is moved aside to
+ * a .corrupt file so replay can continue with the next segment.
+ * The replayer streams sealed segments back into mcp_audit_log, recording progress in
+ * the segment header after each batch so a failed replay resumes where it stopped,
+ * and deletes a segment once it has been fully replayed. Events the database rejects
+ * for their data can never be written, so they are quarantined rather than retried,
+ * and cannot hold back the segments behind them.
+ */
+@Component
+@Slf4j
+public class AuditSpillStore {
+
+    private static final String SEGMENT_PREFIX = "audit-spill-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+    /** JSON lines file of events the database rejected permanently */
+    private static final String REJECTED_FILE = "audit-rejected.jsonl";
+    private static final int HEADER_SIZE = Long.BYTES;
+    /** Length and checksum in front of each record */
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final Object replayLock = new Object();
+    private final Counter rejected;
+
+    /**
+     * Writes a batch of replayed events
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+
+        /**
+         * @return the events rejected permanently (see AuditLogJdbcWriter.write); throws
+         *         if the batch should be retried on a later replay
+         */
+        List<AuditEvent> write(List<AuditEvent> batch);
+    }
+
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+    private Path activeSegment;
+    private long nextSegmentNumber;
+
+    public AuditSpillStore(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${audit.spill.directory:${java.io.tmpdir}/mcp-audit-spill}") String directory,
+                           @Value("${audit.spill.segment-size:16MB}") DataSize segmentSize,
+                           @Value("${audit.spill.fsync:false}") boolean fsync) {
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.fsync = fsync;
+
+        Gauge.builder("mcp.audit.spill.segments", this, AuditSpillStore::pendingSegmentCount)
+                .description("Audit spill segments waiting to be replayed")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("mcp.audit.events")
+                .description("Audit events by outcome")
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Append events to the active segment, rolling to a new segment when it is full
+     */
+    public synchronized void append(List<AuditEvent> events) throws IOException {
+        for (AuditEvent event : events) {
+            byte[] record = objectMapper.writeValueAsBytes(event);
+            if (record.length + RECORD_HEADER_SIZE + Integer.BYTES + HEADER_SIZE > segmentSize) {
+                log.error("Audit event for tool {} is larger than a spill segment, discarding", event.toolName());
+                continue;
+            }
+
+            // Room for the record and the zero length that ends the data
+            if (activeBuffer == null || activeBuffer.remaining() < record.length + RECORD_HEADER_SIZE + Integer.BYTES) {
+                rollSegment();
+            }
+            activeBuffer.putInt(record.length);
+            activeBuffer.putInt(checksum(record));
+            activeBuffer.put(record);
+        }
+
+        if (fsync && activeBuffer != null) {
+            activeBuffer.force();
+        }
+        log.debug("Spilled {} audit events to {}", events.size(), activeSegment);
+    }
+
+    /**
+     * Set aside events the database rejected permanently (constraint or data errors)
+     *
+     * They are appended as JSON lines to audit-rejected.jsonl in the spill directory,
+     * next to the .corrupt files, for inspection; they are never replayed.
+     */
+    public synchronized void quarantine(List<AuditEvent> events) throws IOException {
+        if (events.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(directory);
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (AuditEvent event : events) {
+            lines.write(objectMapper.writeValueAsBytes(event));
+            lines.write('\n');
+        }
+        Path file = directory.resolve(REJECTED_FILE);
+        try (FileChannel out = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(lines.toByteArray());
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            if (fsync) {
+                out.force(false);
+            }
+        }
+        rejected.increment(events.size());
+        log.error("Quarantined {} audit events the database rejected to {}", events.size(), file);
+    }
+
+    /**
+     * Check whether any segment holds events that still need replaying
+     */
+    public synchronized boolean hasPendingEvents() {
+        return pendingSegmentCount() > 0;
+    }
+
+    /**
+     * Stream all spilled events to the consumer in batches, oldest segment first
+     *
+     * The active segment is sealed first so everything spilled so far is included.
+     * Stops at the first batch the writer fails with a transient error, leaving that
+     * batch and everything after it for the next replay. Events the writer rejects,
+     * or a whole batch failing with a data or constraint error, are quarantined and
+     * replay goes on. A corrupt record ends its segment: the events before it are
+     * replayed and the rest is quarantined.
+     *
+     * @return number of events replayed (written, not quarantined)
+     */
+    public long replay(int batchSize, BatchWriter writer) throws IOException {
+        synchronized (replayLock) {
+            List<Path> segments;
+            synchronized (this) {
+                // Sealed segments are never appended to again, so they can be replayed without blocking writers
+                sealActiveSegment();
+                segments = listSegments();
+            }
+
+            long replayed = 0;
+            for (Path segment : segments) {
+                long segmentReplayed = replaySegment(segment, batchSize, writer);
+                if (segmentReplayed < 0) {
+                    break;
+                }
+                replayed += segmentReplayed;
+                Files.deleteIfExists(segment);
+                log.info("Replayed audit spill segment {} ({} events)", segment.getFileName(), segmentReplayed);
+            }
+            return replayed;
+        }
+    }
+
+    /**
+     * @return events replayed, or -1 if the writer failed part-way through
+     */
+    private long replaySegment(Path segment, int batchSize, BatchWriter writer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            long replayedUpTo = buffer.getLong(0);
+            buffer.position((int) Math.max(HEADER_SIZE, replayedUpTo));
+
+            long replayed = 0;
+            int corruptAt = -1;
+            List<AuditEvent> batch = new ArrayList<>(batchSize);
+            while (buffer.remaining() >= Integer.BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                if (length == 0) {
+                    buffer.position(start);
+                    break;
+                }
+
+                AuditEvent event = readRecord(buffer, length);
+                if (event == null) {
+                    buffer.position(start);
+                    corruptAt = start;
+                    break;
+                }
+                batch.add(event);
+
+                if (batch.size() >= batchSize) {
+                    int written = deliver(batch, writer, buffer);
+                    if (written < 0) {
+                        return -1;
+                    }
+                    replayed += written;
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                int written = deliver(batch, writer, buffer);
+                if (written < 0) {
+                    return -1;
+                }
+                replayed += written;
+            }
+            if (corruptAt >= 0) {
+                quarantine(segment, buffer, corruptAt);
+            }
+            return replayed;
+        }
+    }
+
+    /**
+     * Read the record after its length field
+     *
+     * @return the event, or null if the record is truncated, fails its checksum or is not valid JSON
+     */
+    private AuditEvent readRecord(MappedByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining() - Integer.BYTES) {
+            return null;
+        }
+        int checksum = buffer.getInt();
+        byte[] record = new byte[length];
+        buffer.get(record);
+        if (checksum(record) != checksum) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(record, AuditEvent.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Copy the unreadable rest of a segment to a .corrupt file for inspection
+     */
+    private void quarantine(Path segment, MappedByteBuffer buffer, int from) throws IOException {
+        int end = buffer.limit();
+        while (end > from && buffer.get(end - 1) == 0) {
+            end--;
+        }
+        Path quarantined = segment.resolveSibling(segment.getFileName() + CORRUPT_SUFFIX);
+        ByteBuffer tail = buffer.duplicate().position(from).limit(end);
+        try (FileChannel out = FileChannel.open(quarantined,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (tail.hasRemaining()) {
+                out.write(tail);
+            }
+        }
+        log.error("Audit spill segment {} has a corrupt record at offset {} (torn write?); {} bytes after it " +
+                "moved to {} and not replayed", segment.getFileName(), from, end - from, quarantined.getFileName());
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @return events written, or -1 if the batch is to be retried later
+     */
+    private int deliver(List<AuditEvent> batch, BatchWriter writer, MappedByteBuffer buffer) throws IOException {
+        List<AuditEvent> rejected;
+        try {
+            rejected = writer.write(batch);
+        } catch (Exception e) {
+            if (!AuditLogJdbcWriter.isPermanentFailure(e)) {
+                log.warn("Audit spill replay stopped, database still unavailable: {}", e.getMessage());
+                return -1;
+            }
+            log.warn("Audit spill batch of {} events rejected: {}", batch.size(), e.getMessage());
+            rejected = batch;
+        }
+        quarantine(rejected);
+        // Record progress so a later failure does not replay this batch twice
+        buffer.putLong(0, buffer.position());
+        buffer.force();
+        return batch.size() - rejected.size();
+    }
+
+    private void rollSegment() throws IOException {
+        sealActiveSegment();
+
+        Files.createDirectories(directory);
+        if (nextSegmentNumber == 0) {
+            // Continue numbering after segments left by a previous run
+            nextSegmentNumber = listSegments().stream()
+                    .mapToLong(AuditSpillStore::segmentNumber)
+                    .max()
+                    .orElse(0) + 1;
+        }
+
+        activeSegment = directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, nextSegmentNumber++, SEGMENT_SUFFIX));
+        activeChannel = FileChannel.open(activeSegment,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        activeBuffer.putLong(0);
+    }
+
+    private void sealActiveSegment() throws IOException {
+        if (activeBuffer == null) {
+            return;
+        }
+        activeBuffer.force();
+        activeChannel.close();
+        activeBuffer = null;
+        activeChannel = null;
+        activeSegment = null;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private int pendingSegmentCount() {
+        try {
+            return listSegments().size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        sealActiveSegment();
+    }
+}
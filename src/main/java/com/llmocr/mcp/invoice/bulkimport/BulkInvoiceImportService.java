@@ -0,0 +1,369 @@
+package com.llmocr.mcp.invoice.bulkimport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmocr.mcp.invoice.bulkimport.InvoiceRecordReader.InvalidRecordException;
+import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.domain.InvoicesPersistedEvent;
+import com.llmocr.mcp.invoice.dto.InvoiceInput;
+import com.llmocr.mcp.invoice.service.InvoiceInputMapper;
+import com.llmocr.mcp.invoice.service.InvoiceValidationService;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk Invoice Import Service
+ * 
+ * Loads historical invoices far faster than JPA by streaming the request body through
+ * Postgres COPY FROM STDIN into a staging table, then merging the staged rows
+ * into invoices and invoice_line_items with one set-based INSERT ... SELECT per table.
+ * 
+ * - Records are parsed and validated with the same mapper and rules as processInvoice;
+ *   invalid records are counted and reported, not fatal.
+ * - Staging is committed in chunks together with a records_read checkpoint. A failed or
+ *   interrupted import is resumed by sending the same input with the same importId: the
+ *   already committed records are skipped. If the staged rows no longer account for the
+ *   checkpoint (e.g. the staging table was restored from an older backup), the import
+ *   restarts from the first record instead of skipping records whose rows are gone.
+ * - The merge honours the (tenant_id, invoice_number) unique key with ON CONFLICT DO
+ *   NOTHING, so invoices that already exist are skipped and re-running is harmless.
+ *   It holds the job row lock for its whole transaction, so a merge that outlives
+ *   lease-timeout cannot be claimed and run a second time concurrently.
+ */
+@Service
+@Slf4j
+public class BulkInvoiceImportService {
+
+    private static final Pattern IMPORT_ID_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private static final String MERGE_SQL = """
+            WITH headers AS (
+                SELECT DISTINCT ON (s.invoice_number) s.*
+                FROM mcp_invoice.invoice_import_staging s
+                WHERE s.import_id = ?
+                ORDER BY s.invoice_number, s.record_number, s.line_number
+            ),
+            inserted AS (
+                INSERT INTO mcp_invoice.invoices (tenant_id, invoice_number, vendor_name, vendor_address,
+                    customer_name, invoice_date, due_date, total_amount, currency, description,
+                    status, processing_status, created_by)
+                SELECT ?, h.invoice_number, h.vendor_name, h.vendor_address, h.customer_name,
+                    h.invoice_date, h.due_date, h.total_amount, h.currency, h.description,
+                    'PENDING', 'NEW', ?
+                FROM headers h
+                ON CONFLICT (tenant_id, invoice_number) DO NOTHING
+                RETURNING id, invoice_number
+            ),
+            line_items AS (
+                INSERT INTO mcp_invoice.invoice_line_items (invoice_id, line_number, description, quantity,
+                    unit_price, line_total, tax_rate, tax_amount, product_code, unit_of_measure)
+                SELECT i.id,
+                    ROW_NUMBER() OVER (PARTITION BY s.invoice_number ORDER BY s.record_number, s.line_number),
+                    s.line_description, s.quantity, s.unit_price, s.line_total, s.tax_rate, s.tax_amount,
+                    s.product_code, s.unit_of_measure
+                FROM mcp_invoice.invoice_import_staging s
+                JOIN inserted i ON i.invoice_number = s.invoice_number
+                WHERE s.import_id = ? AND s.line_number > 0
+                RETURNING 1
+            )
+            SELECT (SELECT COUNT(*) FROM headers) AS invoices_total,
+                   (SELECT COUNT(*) FROM inserted) AS invoices_inserted,
+                   (SELECT COUNT(*) FROM line_items) AS line_items_inserted
+            """;
+
+    private final InvoiceImportJobStore jobStore;
+    private final InvoiceInputMapper invoiceInputMapper;
+    private final InvoiceValidationService invoiceValidationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${invoice.import.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${invoice.import.lease-timeout:15m}")
+    private Duration leaseTimeout;
+
+    @Value("${invoice.import.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    @Value("${invoice.import.staging-retention:7d}")
+    private Duration stagingRetention;
+
+    public BulkInvoiceImportService(InvoiceImportJobStore jobStore,
+                                    InvoiceInputMapper invoiceInputMapper,
+                                    InvoiceValidationService invoiceValidationService,
+                                    JdbcTemplate jdbcTemplate,
+                                    ObjectMapper objectMapper,
+                                    ApplicationEventPublisher eventPublisher,
+                                    PlatformTransactionManager transactionManager) {
+        this.jobStore = jobStore;
+        this.invoiceInputMapper = invoiceInputMapper;
+        this.invoiceValidationService = invoiceValidationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Import (or resume importing) invoices from the input stream for one tenant
+     * 
+     * @param importId client-chosen id used to poll progress and to resume; generated if null
+     * @return the job after the run; status FAILED if it stopped part-way
+     * @throws IllegalArgumentException if the import id is invalid or belongs to another tenant
+     * @throws IllegalStateException if the import is currently being run elsewhere
+     */
+    public InvoiceImportJob importInvoices(String tenantId, String userId, String importId,
+                                           InvoiceImportFormat format, InputStream input) {
+        String id = importId != null && !importId.isBlank() ? importId.trim() : UUID.randomUUID().toString();
+        if (!IMPORT_ID_PATTERN.matcher(id).matches()) {
+            throw new IllegalArgumentException("Import id must be 1-64 characters of letters, digits, '.', '_' or '-'");
+        }
+
+        InvoiceImportJob job = startOrResume(id, tenantId, format, userId);
+        if (job.isFinished()) {
+            log.info("Import {} for tenant {} already {}", id, tenantId, job.status());
+            return job;
+        }
+
+        try (InvoiceRecordReader reader = InvoiceRecordReader.open(format, input, objectMapper)) {
+            stage(job, reader);
+            merge(job);
+        } catch (Exception e) {
+            log.error("Import {} for tenant {} failed: {}", id, tenantId, e.getMessage(), e);
+            jobStore.fail(id, e.getMessage());
+        }
+        return jobStore.find(id).orElseThrow();
+    }
+
+    /**
+     * Get an import's progress, only if it belongs to the tenant
+     */
+    public Optional<InvoiceImportJob> findJob(String tenantId, String importId) {
+        return jobStore.find(importId).filter(job -> job.tenantId().equals(tenantId));
+    }
+
+    private InvoiceImportJob startOrResume(String id, String tenantId, InvoiceImportFormat format, String userId) {
+        Optional<InvoiceImportJob> existing = jobStore.find(id);
+        if (existing.isEmpty() && jobStore.create(id, tenantId, format, userId)) {
+            log.info("Started {} import {} for tenant {}", format, id, tenantId);
+            return jobStore.find(id).orElseThrow();
+        }
+
+        InvoiceImportJob job = existing.or(() -> jobStore.find(id)).orElseThrow();
+        if (!job.tenantId().equals(tenantId)) {
+            // Don't reveal that another tenant uses this id
+            throw new IllegalArgumentException("Import id " + id + " is already in use");
+        }
+        if (job.isFinished()) {
+            return job;
+        }
+        if (job.format() != format) {
+            throw new IllegalArgumentException("Import " + id + " was started as " + job.format());
+        }
+        if (!jobStore.claim(id, LocalDateTime.now().minus(leaseTimeout))) {
+            throw new IllegalStateException("Import " + id + " is already running");
+        }
+
+        long stagedRecords = jobStore.countStagedRecords(id);
+        if (stagedRecords < job.recordsStaged()) {
+            log.warn("Import {} for tenant {} has {} staged records but checkpointed {}, restarting from the first record",
+                    id, tenantId, stagedRecords, job.recordsStaged());
+            transactionTemplate.executeWithoutResult(status -> jobStore.restart(id));
+        } else {
+            log.info("Resuming import {} for tenant {} after {} records", id, tenantId, job.recordsRead());
+        }
+        return jobStore.find(id).orElseThrow();
+    }
+
+    private void stage(InvoiceImportJob job, InvoiceRecordReader reader) throws IOException {
+        Progress progress = new Progress(job);
+
+        // Skip records already committed by an earlier run
+        while (progress.recordsRead < job.recordsRead()) {
+            try {
+                if (reader.next() == null) {
+                    break;
+                }
+            } catch (InvalidRecordException e) {
+                // Already counted as rejected by the earlier run
+            }
+            progress.recordsRead++;
+        }
+        progress.recordsRead = job.recordsRead();
+
+        boolean more = true;
+        while (more) {
+            more = Boolean.TRUE.equals(transactionTemplate.execute(status -> stageChunk(job, reader, progress)));
+            log.info("Import {}: {} records read, {} staged, {} rejected", 
+                    job.importId(), progress.recordsRead, progress.recordsStaged, progress.recordsRejected);
+        }
+    }
+
+    /**
+     * COPY up to chunk-size records into staging and checkpoint, in the caller's transaction
+     * 
+     * @return true if there may be more input
+     */
+    private boolean stageChunk(InvoiceImportJob job, InvoiceRecordReader reader, Progress progress) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(StagingCopyWriter.COPY_SQL);
+            StagingCopyWriter writer = new StagingCopyWriter(copyIn, job.importId());
+            Progress chunk = progress.copy();
+            List<String> newErrors = new ArrayList<>();
+            boolean endOfInput = false;
+
+            try {
+                for (int i = 0; i < chunkSize; i++) {
+                    long recordNumber = chunk.recordsRead + 1;
+                    InvoiceInput input;
+                    try {
+                        input = reader.next();
+                    } catch (InvalidRecordException e) {
+                        chunk.reject(recordNumber, e.getMessage(), newErrors);
+                        continue;
+                    }
+                    if (input == null) {
+                        endOfInput = true;
+                        break;
+                    }
+
+                    chunk.recordsRead = recordNumber;
+                    try {
+                        Invoice invoice = invoiceInputMapper.toInvoice(input, job.tenantId(), job.createdBy());
+                        List<String> validationErrors = invoiceValidationService.validateInvoice(invoice);
+                        if (!validationErrors.isEmpty()) {
+                            chunk.reject(recordNumber, String.join(", ", validationErrors), newErrors);
+                            continue;
+                        }
+                        writer.write(recordNumber, invoice);
+                        chunk.recordsStaged++;
+                    } catch (IllegalArgumentException e) {
+                        chunk.reject(recordNumber, e.getMessage(), newErrors);
+                    }
+                }
+                copyIn.endCopy();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+
+            jobStore.checkpoint(job.importId(), chunk.recordsRead, chunk.recordsStaged, chunk.recordsRejected, newErrors);
+            // Only advance the shared progress once the chunk is part of the transaction
+            progress.advanceTo(chunk);
+            return !endOfInput;
+        }));
+    }
+
+    private void merge(InvoiceImportJob job) {
+        jobStore.markMerging(job.importId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Held until commit: claim() and the abandoned-import purge skip locked jobs
+            jobStore.lock(job.importId());
+
+            long[] counts = jdbcTemplate.queryForObject(MERGE_SQL, (rs, rowNum) -> new long[] {
+                    rs.getLong("invoices_total"),
+                    rs.getLong("invoices_inserted"),
+                    rs.getLong("line_items_inserted")
+            }, job.importId(), job.tenantId(), job.createdBy(), job.importId());
+
+            jdbcTemplate.update("DELETE FROM mcp_invoice.invoice_import_staging WHERE import_id = ?", job.importId());
+            jobStore.complete(job.importId(), counts[1], counts[0] - counts[1], counts[2]);
+
+            log.info("Import {} for tenant {} merged: {} invoices inserted, {} already existed, {} line items", 
+                    job.importId(), job.tenantId(), counts[1], counts[0] - counts[1], counts[2]);
+
+            // Too many rows to list; in-memory views reload the tenant after commit
+            eventPublisher.publishEvent(InvoicesPersistedEvent.bulkLoad(job.tenantId()));
+        });
+    }
+
+    /**
+     * Purge staged rows of imports that were abandoned part-way
+     */
+    @Scheduled(fixedDelayString = "${invoice.import.cleanup-interval-ms:3600000}", 
+               initialDelayString = "${invoice.import.cleanup-interval-ms:3600000}")
+    public void purgeAbandonedImports() {
+        try {
+            for (String importId : jobStore.findAbandoned(LocalDateTime.now().minus(stagingRetention))) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Re-checked under the row lock: the import may have been resumed meanwhile
+                    if (!jobStore.markExpired(importId, LocalDateTime.now().minus(stagingRetention))) {
+                        return;
+                    }
+                    int rows = jdbcTemplate.update(
+                            "DELETE FROM mcp_invoice.invoice_import_staging WHERE import_id = ?", importId);
+                    log.info("Expired abandoned import {} ({} staged rows purged)", importId, rows);
+                });
+            }
+        } catch (Exception e) {
+            log.warn("Failed to purge abandoned imports: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Running counters; a chunk works on a copy that is applied only after it is checkpointed
+     */
+    private class Progress {
+        long recordsRead;
+        long recordsStaged;
+        long recordsRejected;
+        int reportedErrors;
+
+        Progress(InvoiceImportJob job) {
+            this.recordsStaged = job.recordsStaged();
+            this.recordsRejected = job.recordsRejected();
+            this.reportedErrors = job.errors().size();
+        }
+
+        private Progress() {
+        }
+
+        Progress copy() {
+            Progress copy = new Progress();
+            copy.advanceTo(this);
+            return copy;
+        }
+
+        void advanceTo(Progress other) {
+            recordsRead = other.recordsRead;
+            recordsStaged = other.recordsStaged;
+            recordsRejected = other.recordsRejected;
+            reportedErrors = other.reportedErrors;
+        }
+
+        void reject(long recordNumber, String message, List<String> newErrors) {
+            recordsRead = recordNumber;
+            recordsRejected++;
+            if (reportedErrors < maxReportedErrors) {
+                newErrors.add("Record " + recordNumber + ": " + message);
+                reportedErrors++;
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.llmocr.mcp.invoice.bulkimport;
+
+import com.llmocr.mcp.invoice.dto.InvoiceInput;
+import com.llmocr.mcp.invoice.dto.InvoiceLineItemInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RFC 4180 CSV reader (quoted fields, doubled quotes, embedded newlines)
+ * 
+ * The first row is the header. Column names are matched ignoring case, underscores
+ * and hyphens, so both invoice_number and invoiceNumber work. Each row is one invoice,
+ * optionally carrying one line item (line_description and friends); rows that repeat
+ * an invoice number add further line items to that invoice when merged.
+ */
+class CsvInvoiceRecordReader extends InvoiceRecordReader {
+
+    private static final String[] HEADER_COLUMNS = {
+        "invoicenumber", "vendorname", "vendoraddress", "customername", "invoicedate", "duedate",
+        "totalamount", "currency", "description"
+    };
+    private static final String[] LINE_ITEM_COLUMNS = {
+        "linedescription", "quantity", "unitprice", "linetotal", "taxrate", "productcode", "unitofmeasure"
+    };
+
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final StringBuilder field = new StringBuilder();
+    private boolean headerRead;
+
+    CsvInvoiceRecordReader(InputStream input) {
+        super(input);
+    }
+
+    @Override
+    InvoiceInput next() throws IOException {
+        if (!headerRead) {
+            readHeader();
+        }
+
+        List<String> row;
+        do {
+            row = readRow();
+            if (row == null) {
+                return null;
+            }
+        } while (row.size() == 1 && row.get(0).isEmpty());
+
+        if (row.size() > columnIndex.size() && columnIndex.size() > 0) {
+            // Tolerate trailing empty columns, reject genuinely misaligned rows
+            for (int i = columnIndex.size(); i < row.size(); i++) {
+                if (!row.get(i).isEmpty()) {
+                    throw new InvalidRecordException("Row has " + row.size() + " columns, header has " + columnIndex.size());
+                }
+            }
+        }
+
+        InvoiceLineItemInput lineItem = null;
+        String lineDescription = value(row, "linedescription");
+        if (lineDescription != null || value(row, "linetotal") != null) {
+            lineItem = new InvoiceLineItemInput(
+                    lineDescription,
+                    value(row, "quantity"),
+                    value(row, "unitprice"),
+                    value(row, "linetotal"),
+                    value(row, "taxrate"),
+                    value(row, "productcode"),
+                    value(row, "unitofmeasure"));
+        }
+
+        return new InvoiceInput(
+                value(row, "invoicenumber"),
+                value(row, "vendorname"),
+                value(row, "vendoraddress"),
+                value(row, "customername"),
+                value(row, "invoicedate"),
+                value(row, "duedate"),
+                value(row, "totalamount"),
+                value(row, "currency"),
+                value(row, "description"),
+                lineItem != null ? List.of(lineItem) : null);
+    }
+
+    private void readHeader() throws IOException {
+        headerRead = true;
+        List<String> header = readRow();
+        if (header == null) {
+            return;
+        }
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i);
+            if (i == 0 && column.startsWith("\uFEFF")) {
+                column = column.substring(1);  // UTF-8 byte order mark
+            }
+            String name = normalize(column);
+            columnIndex.putIfAbsent(name, i);
+        }
+
+        for (String required : new String[] {"invoicenumber", "vendorname", "invoicedate", "totalamount"}) {
+            if (!columnIndex.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header is missing required column: " + required);
+            }
+        }
+        for (String name : columnIndex.keySet()) {
+            if (!contains(HEADER_COLUMNS, name) && !contains(LINE_ITEM_COLUMNS, name)) {
+                throw new IllegalArgumentException("Unknown CSV column: " + name);
+            }
+        }
+    }
+
+    private String value(List<String> row, String column) {
+        Integer index = columnIndex.get(column);
+        if (index == null || index >= row.size()) {
+            return null;
+        }
+        String value = row.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * @return the fields of the next row, or null at end of input
+     */
+    private List<String> readRow() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new InvalidRecordException("Unterminated quoted field at end of input");
+                }
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    private static String normalize(String column) {
+        return column.trim().replace("_", "").replace("-", "").toLowerCase();
+    }
+
+    private static boolean contains(String[] values, String value) {
+        for (String candidate : values) {
+            if (candidate.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
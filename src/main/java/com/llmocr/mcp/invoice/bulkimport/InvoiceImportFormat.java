@@ -0,0 +1,41 @@
+package com.llmocr.mcp.invoice.bulkimport;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Supported bulk import input formats
+ * 
+ * CSV: header row with snake_case (or camelCase) column names matching the invoice
+ * fields, plus optional line item columns; rows sharing an invoice number are the
+ * line items of one invoice.
+ * NDJSON: one InvoiceInput JSON object per line, line items nested.
+ */
+public enum InvoiceImportFormat {
+    CSV,
+    NDJSON;
+
+    /**
+     * Resolve the format from an explicit parameter, falling back to the request content type
+     */
+    public static InvoiceImportFormat resolve(String format, String contentType) {
+        if (format != null && !format.isBlank()) {
+            try {
+                return valueOf(format.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported import format: " + format + ". Supported formats: CSV, NDJSON");
+            }
+        }
+        if (contentType != null) {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            if ("csv".equalsIgnoreCase(mediaType.getSubtype())) {
+                return CSV;
+            }
+            if (mediaType.getSubtype().toLowerCase().contains("ndjson") 
+                    || mediaType.getSubtype().toLowerCase().contains("json-seq")
+                    || mediaType.getSubtype().toLowerCase().contains("jsonlines")) {
+                return NDJSON;
+            }
+        }
+        throw new IllegalArgumentException("Import format is required: pass format=CSV|NDJSON or Content-Type text/csv or application/x-ndjson");
+    }
+}
@@ -0,0 +1,41 @@
+package com.llmocr.mcp.invoice.bulkimport;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Progress and outcome of a bulk invoice import, as stored in invoice_import_jobs
+ */
+public record InvoiceImportJob(
+        String importId,
+        String tenantId,
+        InvoiceImportFormat format,
+        Status status,
+        long recordsRead,
+        long recordsStaged,
+        long recordsRejected,
+        long invoicesInserted,
+        long invoicesSkipped,
+        long lineItemsInserted,
+        List<String> errors,
+        String createdBy,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        LocalDateTime completedAt) {
+
+    public enum Status {
+        /** Input is being streamed into the staging table */
+        STAGING,
+        /** All input staged; merging into invoices */
+        MERGING,
+        COMPLETED,
+        /** Stopped part-way; re-POST the same input with the same importId to resume */
+        FAILED,
+        /** Abandoned import whose staged rows were purged */
+        EXPIRED
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.EXPIRED;
+    }
+}
@@ -0,0 +1,178 @@
+package com.llmocr.mcp.invoice.bulkimport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC access to invoice_import_jobs
+ * 
+ * Every counter update is written in the same transaction as the staged rows it
+ * describes, so records_read is always a safe point to resume from.
+ * 
+ * A merge holds the job row lock for its whole transaction; claim and markExpired
+ * skip locked rows, so neither can take over an import that is still merging.
+ */
+@Component
+@RequiredArgsConstructor
+class InvoiceImportJobStore {
+
+    private static final TypeReference<List<String>> ERROR_LIST = new TypeReference<>() {};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    Optional<InvoiceImportJob> find(String importId) {
+        return jdbcTemplate.query("SELECT * FROM mcp_invoice.invoice_import_jobs WHERE import_id = ?", 
+                jobMapper(), importId).stream().findFirst();
+    }
+
+    /**
+     * @return false if a job with this id already exists
+     */
+    boolean create(String importId, String tenantId, InvoiceImportFormat format, String userId) {
+        return jdbcTemplate.update("INSERT INTO mcp_invoice.invoice_import_jobs " +
+                "(import_id, tenant_id, format, status, created_by) VALUES (?, ?, ?, ?, ?) " +
+                "ON CONFLICT (import_id) DO NOTHING",
+                importId, tenantId, format.name(), InvoiceImportJob.Status.STAGING.name(), userId) > 0;
+    }
+
+    /**
+     * Take over a failed import, or one whose previous runner stopped checkpointing
+     * before staleBefore (e.g. the pod was killed)
+     * 
+     * @return false if another runner holds the import
+     */
+    boolean claim(String importId, LocalDateTime staleBefore) {
+        return jdbcTemplate.update("UPDATE mcp_invoice.invoice_import_jobs " +
+                "SET status = 'STAGING', updated_at = CURRENT_TIMESTAMP " +
+                "WHERE import_id = (SELECT import_id FROM mcp_invoice.invoice_import_jobs " +
+                "WHERE import_id = ? AND (status = 'FAILED' " +
+                "OR (status IN ('STAGING', 'MERGING') AND updated_at < ?)) " +
+                "FOR UPDATE SKIP LOCKED)",
+                importId, Timestamp.valueOf(staleBefore)) > 0;
+    }
+
+    /**
+     * Lock the job row until the end of the current transaction
+     */
+    void lock(String importId) {
+        jdbcTemplate.queryForList("SELECT import_id FROM mcp_invoice.invoice_import_jobs WHERE import_id = ? FOR UPDATE",
+                String.class, importId);
+    }
+
+    /**
+     * Number of distinct input records with rows in staging, to compare with records_staged
+     */
+    long countStagedRecords(String importId) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT record_number) " +
+                "FROM mcp_invoice.invoice_import_staging WHERE import_id = ?", Long.class, importId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Drop whatever is staged and reset the checkpoint, so the import starts over from record 0
+     */
+    void restart(String importId) {
+        jdbcTemplate.update("DELETE FROM mcp_invoice.invoice_import_staging WHERE import_id = ?", importId);
+        jdbcTemplate.update("UPDATE mcp_invoice.invoice_import_jobs " +
+                "SET records_read = 0, records_staged = 0, records_rejected = 0, errors = '[]'::jsonb, " +
+                "updated_at = CURRENT_TIMESTAMP WHERE import_id = ?", importId);
+    }
+
+    void checkpoint(String importId, long recordsRead, long recordsStaged, long recordsRejected, List<String> newErrors) {
+        jdbcTemplate.update("UPDATE mcp_invoice.invoice_import_jobs " +
+                "SET records_read = ?, records_staged = ?, records_rejected = ?, " +
+                "errors = errors || CAST(? AS jsonb), updated_at = CURRENT_TIMESTAMP " +
+                "WHERE import_id = ?",
+                recordsRead, recordsStaged, recordsRejected, toJson(newErrors), importId);
+    }
+
+    void markMerging(String importId) {
+        jdbcTemplate.update("UPDATE mcp_invoice.invoice_import_jobs " +
+                "SET status = 'MERGING', updated_at = CURRENT_TIMESTAMP WHERE import_id = ?", importId);
+    }
+
+    void complete(String importId, long invoicesInserted, long invoicesSkipped, long lineItemsInserted) {
+        jdbcTemplate.update("UPDATE mcp_invoice.invoice_import_jobs " +
+                "SET status = 'COMPLETED', invoices_inserted = ?, invoices_skipped = ?, line_items_inserted = ?, " +
+                "updated_at = CURRENT_TIMESTAMP, completed_at = CURRENT_TIMESTAMP WHERE import_id = ?",
+                invoicesInserted, invoicesSkipped, lineItemsInserted, importId);
+    }
+
+    void fail(String importId, String error) {
+        jdbcTemplate.update("UPDATE mcp_invoice.invoice_import_jobs " +
+                "SET status = 'FAILED', errors = errors || CAST(? AS jsonb), updated_at = CURRENT_TIMESTAMP " +
+                "WHERE import_id = ?",
+                toJson(List.of("Import failed: " + error)), importId);
+    }
+
+    /**
+     * @return ids of unfinished imports that have not checkpointed since the given time
+     */
+    List<String> findAbandoned(LocalDateTime updatedBefore) {
+        return jdbcTemplate.queryForList("SELECT import_id FROM mcp_invoice.invoice_import_jobs " +
+                "WHERE status IN ('STAGING', 'MERGING', 'FAILED') AND updated_at < ?",
+                String.class, Timestamp.valueOf(updatedBefore));
+    }
+
+    /**
+     * @return false if the import was resumed, finished or is locked by a running merge since it was found
+     */
+    boolean markExpired(String importId, LocalDateTime updatedBefore) {
+        return jdbcTemplate.update("UPDATE mcp_invoice.invoice_import_jobs " +
+                "SET status = 'EXPIRED', updated_at = CURRENT_TIMESTAMP " +
+                "WHERE import_id = (SELECT import_id FROM mcp_invoice.invoice_import_jobs " +
+                "WHERE import_id = ? AND status IN ('STAGING', 'MERGING', 'FAILED') AND updated_at < ? " +
+                "FOR UPDATE SKIP LOCKED)",
+                importId, Timestamp.valueOf(updatedBefore)) > 0;
+    }
+
+    private RowMapper<InvoiceImportJob> jobMapper() {
+        return (rs, rowNum) -> new InvoiceImportJob(
+                rs.getString("import_id"),
+                rs.getString("tenant_id"),
+                InvoiceImportFormat.valueOf(rs.getString("format")),
+                InvoiceImportJob.Status.valueOf(rs.getString("status")),
+                rs.getLong("records_read"),
+                rs.getLong("records_staged"),
+                rs.getLong("records_rejected"),
+                rs.getLong("invoices_inserted"),
+                rs.getLong("invoices_skipped"),
+                rs.getLong("line_items_inserted"),
+                fromJson(rs.getString("errors")),
+                rs.getString("created_by"),
+                toLocalDateTime(rs.getTimestamp("created_at")),
+                toLocalDateTime(rs.getTimestamp("updated_at")),
+                toLocalDateTime(rs.getTimestamp("completed_at")));
+    }
+
+    private String toJson(List<String> errors) {
+        try {
+            return objectMapper.writeValueAsString(errors);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize import errors", e);
+        }
+    }
+
+    private List<String> fromJson(String errors) {
+        try {
+            return errors != null ? objectMapper.readValue(errors, ERROR_LIST) : List.of();
+        } catch (JsonProcessingException e) {
+            return List.of();
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
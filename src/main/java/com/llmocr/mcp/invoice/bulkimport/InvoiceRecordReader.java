@@ -0,0 +1,60 @@
+package com.llmocr.mcp.invoice.bulkimport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmocr.mcp.invoice.dto.InvoiceInput;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams invoice records out of a bulk import body, one at a time
+ * 
+ * Readers never buffer more than the current record, so arbitrarily large inputs can
+ * be imported in constant memory.
+ */
+abstract class InvoiceRecordReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    protected final BufferedReader reader;
+
+    protected InvoiceRecordReader(InputStream input) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    static InvoiceRecordReader open(InvoiceImportFormat format, InputStream input, ObjectMapper objectMapper) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvInvoiceRecordReader(input);
+            case NDJSON -> new NdjsonInvoiceRecordReader(input, objectMapper);
+        };
+    }
+
+    /**
+     * Read the next record
+     * 
+     * @return the record, or null at end of input
+     * @throws InvalidRecordException if the record is malformed; the record has been
+     *                                consumed and reading can continue with the next one
+     */
+    abstract InvoiceInput next() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * A single record could not be parsed
+     */
+    static class InvalidRecordException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        InvalidRecordException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.llmocr.mcp.invoice.bulkimport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.llmocr.mcp.invoice.dto.InvoiceInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Newline-delimited JSON reader: one InvoiceInput object per line, blank lines ignored
+ * 
+ * Lines are parsed independently so a malformed line only rejects that record.
+ */
+class NdjsonInvoiceRecordReader extends InvoiceRecordReader {
+
+    private final ObjectReader objectReader;
+
+    NdjsonInvoiceRecordReader(InputStream input, ObjectMapper objectMapper) {
+        super(input);
+        this.objectReader = objectMapper.readerFor(InvoiceInput.class);
+    }
+
+    @Override
+    InvoiceInput next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        try {
+            return objectReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            throw new InvalidRecordException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.llmocr.mcp.invoice.bulkimport;
+
+import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.domain.InvoiceLineItem;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * Encodes invoices as CSV rows for COPY ... FROM STDIN into invoice_import_staging
+ * 
+ * One row per line item (line_number 0 and empty line columns when the invoice has
+ * none), header fields repeated. Text values are always quoted so empty strings stay
+ * distinct from NULL, which COPY CSV represents as an unquoted empty field.
+ */
+class StagingCopyWriter {
+
+    static final String COPY_SQL = "COPY mcp_invoice.invoice_import_staging " +
+            "(import_id, record_number, line_number, invoice_number, vendor_name, vendor_address, customer_name, " +
+            "invoice_date, due_date, total_amount, currency, description, line_description, quantity, unit_price, " +
+            "line_total, tax_rate, tax_amount, product_code, unit_of_measure) " +
+            "FROM STDIN WITH (FORMAT csv)";
+
+    private final CopyIn copyIn;
+    private final String importId;
+    private final StringBuilder row = new StringBuilder(512);
+
+    StagingCopyWriter(CopyIn copyIn, String importId) {
+        this.copyIn = copyIn;
+        this.importId = importId;
+    }
+
+    void write(long recordNumber, Invoice invoice) throws SQLException {
+        if (invoice.getLineItems().isEmpty()) {
+            writeRow(recordNumber, invoice, null);
+        } else {
+            for (InvoiceLineItem lineItem : invoice.getLineItems()) {
+                writeRow(recordNumber, invoice, lineItem);
+            }
+        }
+    }
+
+    private void writeRow(long recordNumber, Invoice invoice, InvoiceLineItem lineItem) throws SQLException {
+        row.setLength(0);
+        text(importId);
+        value(recordNumber);
+        value(lineItem != null ? lineItem.getLineNumber() : 0);
+        text(invoice.getInvoiceNumber());
+        text(invoice.getVendorName());
+        text(invoice.getVendorAddress());
+        text(invoice.getCustomerName());
+        value(invoice.getInvoiceDate());
+        value(invoice.getDueDate());
+        value(invoice.getTotalAmount() != null ? invoice.getTotalAmount().toPlainString() : null);
+        text(invoice.getCurrency());
+        text(invoice.getDescription());
+        if (lineItem != null) {
+            text(lineItem.getDescription());
+            value(lineItem.getQuantity() != null ? lineItem.getQuantity().toPlainString() : null);
+            value(lineItem.getUnitPrice() != null ? lineItem.getUnitPrice().toPlainString() : null);
+            value(lineItem.getLineTotal() != null ? lineItem.getLineTotal().toPlainString() : null);
+            value(lineItem.getTaxRate() != null ? lineItem.getTaxRate().toPlainString() : null);
+            value(lineItem.getTaxAmount() != null ? lineItem.getTaxAmount().toPlainString() : null);
+            text(lineItem.getProductCode());
+            text(lineItem.getUnitOfMeasure());
+        } else {
+            row.append(",,,,,,,,");
+        }
+        row.setCharAt(row.length() - 1, '\n');
+
+        byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+    }
+
+    private void text(String value) {
+        if (value != null) {
+            row.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    row.append('"');
+                }
+                row.append(c);
+            }
+            row.append('"');
+        }
+        row.append(',');
+    }
+
+    private void value(Object value) {
+        if (value != null) {
+            row.append(value);
+        }
+        row.append(',');
+    }
+}
@@ -1,19 +1,139 @@
 package com.llmocr.mcp.invoice.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.routing.RoutingSupport;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 /**
  * HTTP Client Configuration for MCP Server
  * 
  * Separate configuration to avoid circular dependencies with security configuration.
+ * 
+ * Introspection and JWKS calls go through a pooled, keep-alive Apache HttpClient.
+ * The pool is partitioned by route, so each tenant's introspection endpoint gets its
+ * own connection limit and a slow endpoint cannot exhaust connections for the others.
+ * Pool usage is published as httpcomponents.httpclient.pool.* metrics.
  */
 @Configuration
+@Slf4j
 public class HttpClientConfiguration {
 
+    @Value("${http-client.max-total-connections:200}")
+    private int maxTotalConnections;
+
+    @Value("${http-client.max-connections-per-route:20}")
+    private int maxConnectionsPerRoute;
+
+    // Comma-separated endpoint=limit overrides, e.g. https://auth.example.com=50
+    @Value("${http-client.route-max-connections:}")
+    private String routeMaxConnections;
+
+    @Value("${http-client.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${http-client.read-timeout:5s}")
+    private Duration readTimeout;
+
+    @Value("${http-client.connection-request-timeout:1s}")
+    private Duration connectionRequestTimeout;
+
+    @Value("${http-client.keep-alive:30s}")
+    private Duration keepAlive;
+
+    @Value("${http-client.idle-eviction:60s}")
+    private Duration idleEviction;
+
+    @Bean
+    public PoolingHttpClientConnectionManager httpClientConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotalConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .build())
+                .build();
+
+        applyRouteOverrides(connectionManager);
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "introspection")
+                .bindTo(meterRegistry);
+
+        log.info("HTTP client pool configured: max total {}, max per route {}, connect timeout {}, read timeout {}",
+                maxTotalConnections, maxConnectionsPerRoute, connectTimeout, readTimeout);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager) {
+        TimeValue defaultKeepAlive = TimeValue.of(keepAlive);
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                // Honour the server's Keep-Alive header, otherwise keep connections for the configured time
+                .setKeepAliveStrategy((response, context) -> {
+                    TimeValue serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                            .getKeepAliveDuration(response, context);
+                    return TimeValue.isPositive(serverKeepAlive)
+                            && serverKeepAlive.compareTo(defaultKeepAlive) < 0 ? serverKeepAlive : defaultKeepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    private void applyRouteOverrides(PoolingHttpClientConnectionManager connectionManager) {
+        if (routeMaxConnections == null || routeMaxConnections.isBlank()) {
+            return;
+        }
+
+        for (String override : routeMaxConnections.split(",")) {
+            int separator = override.lastIndexOf('=');
+            if (separator < 0) {
+                log.warn("Ignoring malformed http-client.route-max-connections entry: {}", override);
+                continue;
+            }
+
+            String endpoint = override.substring(0, separator).trim();
+            try {
+                int maxConnections = Integer.parseInt(override.substring(separator + 1).trim());
+                HttpHost target = RoutingSupport.normalize(HttpHost.create(endpoint), DefaultSchemePortResolver.INSTANCE);
+                HttpRoute route = new HttpRoute(target, null, "https".equalsIgnoreCase(target.getSchemeName()));
+
+                connectionManager.setMaxPerRoute(route, maxConnections);
+                log.info("HTTP client pool limit for {} set to {}", target, maxConnections);
+            } catch (Exception e) {
+                log.warn("Ignoring invalid http-client.route-max-connections entry '{}': {}", override, e.getMessage());
+            }
+        }
     }
 }
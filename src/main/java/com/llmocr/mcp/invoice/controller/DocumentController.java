@@ -0,0 +1,181 @@
+package com.llmocr.mcp.invoice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmocr.mcp.invoice.document.ByteRange;
+import com.llmocr.mcp.invoice.document.DocumentService;
+import com.llmocr.mcp.invoice.document.DocumentUpload;
+import com.llmocr.mcp.invoice.document.SourceDocument;
+import com.llmocr.mcp.invoice.document.StoredObject;
+import com.llmocr.mcp.invoice.security.McpSecurityContext;
+import com.llmocr.mcp.invoice.service.McpAuditService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Source document endpoint
+ *
+ * Uploads store the raw request body in the content-addressed document store
+ * (optionally linking it to an invoice); reads support single HTTP byte ranges so
+ * agents can page through large scans. Uncompressed documents are handed to Tomcat's
+ * sendfile when the connector supports it, otherwise copied with FileChannel.transferTo.
+ */
+@RestController
+@RequestMapping("/mcp/documents")
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentController {
+
+    // Tomcat request attributes for zero-copy file responses (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final DocumentService documentService;
+    private final McpAuditService mcpAuditService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Store the request body as a source document
+     *
+     * Content type is taken from the Content-Type header.
+     */
+    @PostMapping
+    public ResponseEntity<Object> uploadDocument(
+            @RequestParam(required = false) String fileName,
+            @RequestParam(required = false) String invoiceNumber,
+            HttpServletRequest request) {
+
+        long startTime = System.currentTimeMillis();
+
+        String tenantId = McpSecurityContext.getCurrentTenantId();
+        String userId = McpSecurityContext.getCurrentUserId();
+
+        if (!McpSecurityContext.isAuthenticated()) {
+            String errorMessage = "Unauthorized: Valid Bearer token required";
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "uploadDocument", false, errorMessage, startTime);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", errorMessage));
+        }
+
+        try {
+            DocumentUpload upload = documentService.upload(tenantId, userId, fileName, request.getContentType(),
+                    invoiceNumber, request.getInputStream());
+
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "uploadDocument", true,
+                    String.format("Document %s stored (%d bytes%s)", upload.document().sha256(), upload.document().size(),
+                            upload.deduplicated() ? ", deduplicated" : ""), startTime);
+
+            return ResponseEntity.ok(upload);
+
+        } catch (IllegalArgumentException e) {
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "uploadDocument", false, e.getMessage(), startTime);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Document upload failed for tenant {}: {}", tenantId, e.getMessage(), e);
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "uploadDocument", false, e.getMessage(), startTime);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Document upload failed"));
+        }
+    }
+
+    /**
+     * Stream a document, or the byte range given in the Range header
+     */
+    @GetMapping("/{sha256}")
+    public void readDocument(@PathVariable String sha256, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+
+        long startTime = System.currentTimeMillis();
+
+        String tenantId = McpSecurityContext.getCurrentTenantId();
+
+        if (!McpSecurityContext.isAuthenticated()) {
+            String errorMessage = "Unauthorized: Valid Bearer token required";
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "readDocument", false, errorMessage, startTime);
+            writeError(response, HttpStatus.UNAUTHORIZED, errorMessage);
+            return;
+        }
+
+        Optional<DocumentService.OpenDocument> opened;
+        try {
+            opened = documentService.open(tenantId, sha256);
+        } catch (IllegalArgumentException e) {
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "readDocument", false, e.getMessage(), startTime);
+            writeError(response, HttpStatus.BAD_REQUEST, e.getMessage());
+            return;
+        } catch (Exception e) {
+            log.error("Failed to open document {} for tenant {}: {}", sha256, tenantId, e.getMessage(), e);
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "readDocument", false, e.getMessage(), startTime);
+            writeError(response, HttpStatus.INTERNAL_SERVER_ERROR, "Document read failed");
+            return;
+        }
+        if (opened.isEmpty()) {
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "readDocument", false, "Document not found", startTime);
+            writeError(response, HttpStatus.NOT_FOUND, "Document not found: " + sha256);
+            return;
+        }
+
+        SourceDocument document = opened.get().document();
+        StoredObject object = opened.get().object();
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, "\"" + document.sha256() + "\"");
+        // Content-addressed: the bytes behind a hash never change
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+
+        ByteRange range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE), document.size());
+        if (range == null) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + document.size());
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "readDocument", false, "Range not satisfiable", startTime);
+            writeError(response, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, "Range not satisfiable");
+            return;
+        }
+
+        if (range.isPartial(document.size())) {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + range.offset() + "-" + range.end() + "/" + document.size());
+        }
+        response.setContentType(document.contentType() != null
+                ? document.contentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        if (document.fileName() != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                    .filename(document.fileName(), StandardCharsets.UTF_8).build().toString());
+        }
+        response.setContentLengthLong(range.length());
+
+        if (!"HEAD".equals(request.getMethod()) && range.length() > 0) {
+            if (object.encoding() == StoredObject.Encoding.RAW
+                    && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+                // Tomcat writes the file region to the socket itself after this handler returns
+                request.setAttribute(SENDFILE_FILENAME_ATTR, object.path().toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START_ATTR, range.offset());
+                request.setAttribute(SENDFILE_END_ATTR, range.offset() + range.length());
+            } else {
+                documentService.transferTo(opened.get(), range, Channels.newChannel(response.getOutputStream()));
+            }
+        }
+
+        mcpAuditService.logOperation("RESOURCE_ACCESS", "readDocument", true,
+                String.format("Document %s bytes %d-%d", document.sha256(), range.offset(), range.end()), startTime);
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", message));
+    }
+}
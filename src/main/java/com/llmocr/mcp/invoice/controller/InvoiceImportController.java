@@ -0,0 +1,100 @@
+package com.llmocr.mcp.invoice.controller;
+
+import com.llmocr.mcp.invoice.bulkimport.BulkInvoiceImportService;
+import com.llmocr.mcp.invoice.bulkimport.InvoiceImportFormat;
+import com.llmocr.mcp.invoice.bulkimport.InvoiceImportJob;
+import com.llmocr.mcp.invoice.security.McpSecurityContext;
+import com.llmocr.mcp.invoice.service.McpAuditService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Bulk import endpoint for historical invoice backfills
+ * 
+ * Tenant onboarding can involve years of invoices, which is too much for MCP tool
+ * calls. The request body (CSV or NDJSON) is streamed straight into Postgres COPY;
+ * progress can be polled while the upload runs, and a failed upload is resumed by
+ * POSTing the same file again with the same importId.
+ */
+@RestController
+@RequestMapping("/mcp/import")
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceImportController {
+
+    private final BulkInvoiceImportService bulkInvoiceImportService;
+    private final McpAuditService mcpAuditService;
+
+    /**
+     * Stream invoices into the tenant's account
+     * 
+     * Format comes from the format parameter or the Content-Type (text/csv, application/x-ndjson).
+     */
+    @PostMapping("/invoices")
+    public ResponseEntity<Object> importInvoices(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String importId,
+            HttpServletRequest request) {
+        
+        long startTime = System.currentTimeMillis();
+        
+        String tenantId = McpSecurityContext.getCurrentTenantId();
+        String userId = McpSecurityContext.getCurrentUserId();
+        
+        if (!McpSecurityContext.isAuthenticated()) {
+            String errorMessage = "Unauthorized: Valid Bearer token required";
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "bulkImportInvoices", false, errorMessage, startTime);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", errorMessage));
+        }
+        
+        try {
+            InvoiceImportFormat importFormat = InvoiceImportFormat.resolve(format, request.getContentType());
+            log.info("Bulk {} import {} requested for tenant {} by user {}", importFormat, importId, tenantId, userId);
+
+            InvoiceImportJob job = bulkInvoiceImportService.importInvoices(
+                    tenantId, userId, importId, importFormat, request.getInputStream());
+
+            boolean success = job.status() != InvoiceImportJob.Status.FAILED;
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "bulkImportInvoices", success, 
+                    String.format("Import %s %s: %d invoices inserted, %d records rejected", 
+                            job.importId(), job.status(), job.invoicesInserted(), job.recordsRejected()), startTime);
+
+            return ResponseEntity.status(success ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR).body(job);
+
+        } catch (IllegalStateException e) {
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "bulkImportInvoices", false, e.getMessage(), startTime);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "bulkImportInvoices", false, e.getMessage(), startTime);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Bulk import failed for tenant {}: {}", tenantId, e.getMessage(), e);
+            mcpAuditService.logOperation("RESOURCE_ACCESS", "bulkImportInvoices", false, e.getMessage(), startTime);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Bulk import failed"));
+        }
+    }
+
+    /**
+     * Progress of an import started by the current tenant
+     */
+    @GetMapping("/invoices/{importId}")
+    public ResponseEntity<Object> getImportStatus(@PathVariable String importId) {
+        String tenantId = McpSecurityContext.getCurrentTenantId();
+        
+        if (!McpSecurityContext.isAuthenticated()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Unauthorized: Valid Bearer token required"));
+        }
+        
+        return bulkInvoiceImportService.findJob(tenantId, importId)
+                .<ResponseEntity<Object>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Import not found: " + importId)));
+    }
+}
@@ -0,0 +1,77 @@
+package com.llmocr.mcp.invoice.document;
+
+/**
+ * A contiguous range of a document: offset and length in bytes
+ */
+public record ByteRange(long offset, long length) {
+
+    public static ByteRange full(long size) {
+        return new ByteRange(0, size);
+    }
+
+    /**
+     * Parse an HTTP Range header against a document of the given size
+     *
+     * Only a single "bytes=" range is honoured (first-last, first- or -suffix); a missing
+     * header, another unit, a multi-range request or an invalid range (last before first)
+     * gets the full document, which RFC 9110 allows. Returns null if the range cannot be
+     * satisfied.
+     */
+    public static ByteRange parse(String rangeHeader, long size) {
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=") || rangeHeader.indexOf(',') >= 0) {
+            return full(size);
+        }
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return full(size);
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    return full(size);
+                }
+                return suffix > 0 && size > 0 ? new ByteRange(Math.max(0, size - suffix), Math.min(suffix, size)) : null;
+            }
+
+            long start = Long.parseLong(first);
+            long requestedEnd = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || requestedEnd < start) {
+                return full(size);
+            }
+            if (start >= size) {
+                return null;
+            }
+            long end = Math.min(requestedEnd, size - 1);
+            return new ByteRange(start, end - start + 1);
+        } catch (NumberFormatException e) {
+            return full(size);
+        }
+    }
+
+    /**
+     * Range requested through a tool call: length defaults to and is capped at maxLength
+     *
+     * @throws IllegalArgumentException if the offset is outside the document
+     */
+    public static ByteRange of(Long offset, Long length, long size, long maxLength) {
+        long start = offset != null ? offset : 0;
+        if (start < 0 || (start >= size && size > 0)) {
+            throw new IllegalArgumentException("Offset " + start + " is outside the document (" + size + " bytes)");
+        }
+        long requested = length != null && length > 0 ? Math.min(length, maxLength) : maxLength;
+        return new ByteRange(start, Math.min(requested, size - start));
+    }
+
+    public long end() {
+        return offset + length - 1;
+    }
+
+    public boolean isPartial(long size) {
+        return offset != 0 || length != size;
+    }
+}
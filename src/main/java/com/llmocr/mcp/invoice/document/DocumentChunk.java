@@ -0,0 +1,14 @@
+package com.llmocr.mcp.invoice.document;
+
+/**
+ * A byte range of a stored document, base64-encoded for tool responses
+ */
+public record DocumentChunk(
+        String sha256,
+        String fileName,
+        String contentType,
+        long size,
+        long offset,
+        long length,
+        String data) {
+}
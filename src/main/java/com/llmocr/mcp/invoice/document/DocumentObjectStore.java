@@ -0,0 +1,316 @@
+package com.llmocr.mcp.invoice.document;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.util.Native;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed file store for source documents
+ *
+ * Each distinct file is stored once, named by the SHA-256 of its bytes, so the same
+ * document uploaded by several tenants (or several times) takes the space of one.
+ * Objects are sharded two levels deep by hash prefix to keep directories small:
+ *
+ * objects/ab/cd/abcd...ef       stored as uploaded
+ * objects/ab/cd/abcd...ef.zst   zstd-compressed
+ *
+ * Compressed objects are split into independent zstd frames of at most frame-size
+ * bytes of the document, indexed by a trailing seek table (see ZstdSeekTable), so
+ * paging through a large document only decompresses the frames each range touches.
+ * Uploads are staged under tmp/ and moved into place atomically, so a reader never
+ * sees a partial object. A document is only compressed when zstd saves at least
+ * min-savings on a sample of it: invoice PDFs and scans are usually compressed already,
+ * and keeping them as-is lets ranges be sent straight from the file with transferTo.
+ *
+ * source_documents rows are shared through Postgres, so the directory must be shared
+ * by every instance too (k8s-deployment.yml mounts a ReadWriteMany volume); there is
+ * deliberately no default, and startup fails if it is not configured.
+ */
+@Component
+@Slf4j
+public class DocumentObjectStore {
+
+    /** Enough of the document to tell text-like content from already-compressed formats */
+    private static final int SAMPLE_SIZE = 128 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path objectsDirectory;
+    private final Path tmpDirectory;
+    private final int compressionLevel;
+    private final double minSavings;
+    private final int frameSize;
+    private final long maxSize;
+    private final boolean compressionAvailable;
+    private final Counter deduplicated;
+    private final Counter storedRaw;
+    private final Counter storedCompressed;
+
+    public DocumentObjectStore(MeterRegistry meterRegistry,
+                               @Value("${document.store.directory:}") String directory,
+                               @Value("${document.store.compression-level:3}") int compressionLevel,
+                               @Value("${document.store.min-savings:0.1}") double minSavings,
+                               @Value("${document.store.frame-size:1MB}") DataSize frameSize,
+                               @Value("${document.store.max-size:100MB}") DataSize maxSize) throws IOException {
+        if (directory == null || directory.isBlank()) {
+            // Objects are referenced from the shared database, so a per-instance default would
+            // lose documents on restart and miss them on every other replica
+            throw new IllegalStateException("document.store.directory (DOCUMENT_STORE_DIR) must be set to a " +
+                    "directory shared by all instances, e.g. a ReadWriteMany volume");
+        }
+        this.objectsDirectory = Path.of(directory, "objects");
+        this.tmpDirectory = Path.of(directory, "tmp");
+        this.compressionLevel = compressionLevel;
+        this.minSavings = minSavings;
+        this.frameSize = Math.toIntExact(frameSize.toBytes());
+        this.maxSize = maxSize.toBytes();
+        this.compressionAvailable = loadZstd();
+        Files.createDirectories(objectsDirectory);
+        Files.createDirectories(tmpDirectory);
+
+        this.deduplicated = Counter.builder("mcp.documents.deduplicated")
+                .description("Document uploads whose content was already stored")
+                .register(meterRegistry);
+        this.storedRaw = Counter.builder("mcp.documents.stored")
+                .description("Documents added to the content-addressed store")
+                .tag("encoding", StoredObject.Encoding.RAW.name())
+                .register(meterRegistry);
+        this.storedCompressed = Counter.builder("mcp.documents.stored")
+                .description("Documents added to the content-addressed store")
+                .tag("encoding", StoredObject.Encoding.ZSTD.name())
+                .register(meterRegistry);
+    }
+
+    private static boolean loadZstd() {
+        try {
+            Native.load();
+            return true;
+        } catch (Throwable e) {
+            // No native library for this platform: documents are stored uncompressed
+            log.warn("zstd native library unavailable, source documents will be stored uncompressed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Store the stream's bytes, or find the existing object with the same content
+     *
+     * @throws IllegalArgumentException if the document is empty or larger than max-size
+     */
+    public StoredObject put(InputStream content) throws IOException {
+        Files.createDirectories(tmpDirectory);
+        Path upload = Files.createTempFile(tmpDirectory, "upload-", ".tmp");
+        Path compressed = null;
+        try {
+            MessageDigest digest = sha256();
+            long size = copy(content, upload, digest);
+            if (size == 0) {
+                throw new IllegalArgumentException("Document is empty");
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+
+            Optional<StoredObject> existing = find(sha256);
+            if (existing.isPresent()) {
+                deduplicated.increment();
+                log.debug("Document {} already stored, upload deduplicated", sha256);
+                return existing.get().asDeduplicated();
+            }
+
+            Path target;
+            StoredObject.Encoding encoding;
+            if (worthCompressing(upload)) {
+                compressed = Files.createTempFile(tmpDirectory, "upload-", ".zst");
+                compress(upload, compressed);
+                if (Files.size(compressed) <= size * (1 - minSavings)) {
+                    encoding = StoredObject.Encoding.ZSTD;
+                    target = compressed;
+                } else {
+                    encoding = StoredObject.Encoding.RAW;
+                    target = upload;
+                }
+            } else {
+                encoding = StoredObject.Encoding.RAW;
+                target = upload;
+            }
+
+            Path path = objectPath(sha256, encoding);
+            Files.createDirectories(path.getParent());
+            // Same content, same name: a concurrent upload of this document is simply replaced
+            Files.move(target, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            (encoding == StoredObject.Encoding.ZSTD ? storedCompressed : storedRaw).increment();
+
+            long storedSize = Files.size(path);
+            log.info("Stored document {} ({} bytes, {} {} bytes)", sha256, size, encoding, storedSize);
+            return new StoredObject(sha256, size, encoding, path, storedSize, false);
+
+        } finally {
+            Files.deleteIfExists(upload);
+            if (compressed != null) {
+                Files.deleteIfExists(compressed);
+            }
+        }
+    }
+
+    /**
+     * Look up a stored object by its SHA-256 hex digest
+     *
+     * @throws IllegalArgumentException if sha256 is not 64 lowercase hex digits
+     */
+    public Optional<StoredObject> find(String sha256) throws IOException {
+        if (sha256 == null || !SHA256_HEX.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Invalid document hash, expected 64 lowercase hex digits");
+        }
+        for (StoredObject.Encoding encoding : StoredObject.Encoding.values()) {
+            Path path = objectPath(sha256, encoding);
+            if (Files.isRegularFile(path)) {
+                long storedSize = Files.size(path);
+                long size = encoding == StoredObject.Encoding.ZSTD ? contentSize(path) : storedSize;
+                return Optional.of(new StoredObject(sha256, size, encoding, path, storedSize, false));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Write length bytes of the original document, starting at offset, to the target
+     *
+     * Uncompressed objects go through FileChannel.transferTo, which the kernel can serve
+     * without copying through the heap; for compressed ones only the frames overlapping
+     * the range are read and decompressed.
+     */
+    public void transferTo(StoredObject object, long offset, long length, WritableByteChannel target) throws IOException {
+        if (object.encoding() == StoredObject.Encoding.RAW) {
+            try (FileChannel channel = FileChannel.open(object.path(), StandardOpenOption.READ)) {
+                long position = offset;
+                long remaining = length;
+                while (remaining > 0) {
+                    long transferred = channel.transferTo(position, remaining, target);
+                    if (transferred <= 0 && position >= channel.size()) {
+                        throw new EOFException("Document " + object.sha256() + " is shorter than the requested range");
+                    }
+                    position += transferred;
+                    remaining -= transferred;
+                }
+            }
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(object.path(), StandardOpenOption.READ)) {
+            transferFrames(object, ZstdSeekTable.read(channel), channel, offset, length, target);
+        }
+    }
+
+    private static void transferFrames(StoredObject object, ZstdSeekTable table, FileChannel channel,
+                                       long offset, long length, WritableByteChannel target) throws IOException {
+        long position = offset;
+        long end = offset + length;
+        for (int frame = table.frameAt(offset); position < end; frame++) {
+            if (frame >= table.frameCount()) {
+                throw new EOFException("Document " + object.sha256() + " is shorter than the requested range");
+            }
+            ByteBuffer compressed = ZstdSeekTable.readAt(channel, table.compressedOffset(frame), table.compressedSize(frame));
+            byte[] content = Zstd.decompress(compressed.array(), table.frameSize(frame));
+
+            int from = (int) (position - table.frameOffset(frame));
+            int to = (int) Math.min(content.length, end - table.frameOffset(frame));
+            ByteBuffer chunk = ByteBuffer.wrap(content, from, to - from);
+            while (chunk.hasRemaining()) {
+                target.write(chunk);
+            }
+            position += to - from;
+        }
+    }
+
+    private long copy(InputStream content, Path upload, MessageDigest digest) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        try (OutputStream out = Files.newOutputStream(upload)) {
+            int read;
+            while ((read = content.read(buffer)) >= 0) {
+                size += read;
+                if (size > maxSize) {
+                    throw new IllegalArgumentException("Document exceeds the maximum size of " + maxSize + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        return size;
+    }
+
+    private boolean worthCompressing(Path upload) throws IOException {
+        if (!compressionAvailable) {
+            return false;
+        }
+        byte[] sample;
+        try (InputStream in = Files.newInputStream(upload)) {
+            sample = in.readNBytes(SAMPLE_SIZE);
+        }
+        return Zstd.compress(sample, compressionLevel).length <= sample.length * (1 - minSavings);
+    }
+
+    /**
+     * Compress as a sequence of frame-size frames, each recording its own size, followed by the seek table
+     */
+    private void compress(Path source, Path target) throws IOException {
+        byte[] frame = new byte[frameSize];
+        byte[] compressedFrame = new byte[Math.toIntExact(Zstd.compressBound(frameSize))];
+        ZstdSeekTable.Writer table = new ZstdSeekTable.Writer();
+        try (ZstdCompressCtx ctx = new ZstdCompressCtx();
+             InputStream in = Files.newInputStream(source);
+             OutputStream out = Files.newOutputStream(target)) {
+            ctx.setLevel(compressionLevel);
+            ctx.setContentSize(true);
+
+            int read;
+            while ((read = in.readNBytes(frame, 0, frame.length)) > 0) {
+                int compressedSize = ctx.compressByteArray(compressedFrame, 0, compressedFrame.length, frame, 0, read);
+                out.write(compressedFrame, 0, compressedSize);
+                table.add(compressedSize, read);
+            }
+            out.write(table.toByteArray());
+        }
+    }
+
+    private static long contentSize(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return ZstdSeekTable.read(channel).size();
+        }
+    }
+
+    private Path objectPath(String sha256, StoredObject.Encoding encoding) {
+        String name = encoding == StoredObject.Encoding.ZSTD ? sha256 + ".zst" : sha256;
+        return objectsDirectory.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(name);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.llmocr.mcp.invoice.document;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Source Document Service
+ *
+ * Stores the original documents invoices were extracted from, so agents can fetch
+ * them from the server instead of keeping their own copies. Bytes go to the
+ * content-addressed DocumentObjectStore (shared, deduplicated across tenants);
+ * access is per tenant through source_documents. An upload can be linked to an
+ * invoice, which points its source file columns at the stored document.
+ */
+@Service
+@Slf4j
+public class DocumentService {
+
+    private final DocumentObjectStore objectStore;
+    private final SourceDocumentStore sourceDocumentStore;
+    private final TransactionTemplate transactionTemplate;
+    private final long maxChunkSize;
+
+    public DocumentService(DocumentObjectStore objectStore,
+                           SourceDocumentStore sourceDocumentStore,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${document.store.max-chunk-size:1MB}") DataSize maxChunkSize) {
+        this.objectStore = objectStore;
+        this.sourceDocumentStore = sourceDocumentStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxChunkSize = maxChunkSize.toBytes();
+    }
+
+    /**
+     * Store a document for the tenant, optionally linking it to one of its invoices
+     *
+     * The body is streamed to disk before any database work, so no connection is held
+     * while the upload runs.
+     *
+     * @throws IllegalArgumentException if the invoice does not exist or the document is empty or too large
+     */
+    public DocumentUpload upload(String tenantId, String userId, String fileName, String contentType,
+                                 String invoiceNumber, InputStream content) throws IOException {
+        String linkedInvoice = invoiceNumber != null && !invoiceNumber.isBlank() ? invoiceNumber.trim() : null;
+        if (linkedInvoice != null && !sourceDocumentStore.invoiceExists(tenantId, linkedInvoice)) {
+            throw new IllegalArgumentException("Invoice not found: " + linkedInvoice);
+        }
+
+        StoredObject object = objectStore.put(content);
+        // Whether the store already had the bytes is not reported: for content uploaded by
+        // another tenant that would confirm the file exists elsewhere
+        boolean alreadyUploaded = sourceDocumentStore.find(tenantId, object.sha256()).isPresent();
+
+        SourceDocument document = transactionTemplate.execute(status -> {
+            SourceDocument saved = sourceDocumentStore.save(tenantId, object.sha256(), fileName, contentType, 
+                    object.size(), userId);
+            if (linkedInvoice != null && !sourceDocumentStore.linkInvoice(tenantId, linkedInvoice, saved, userId)) {
+                throw new IllegalArgumentException("Invoice not found: " + linkedInvoice);
+            }
+            return saved;
+        });
+
+        log.info("Tenant {} stored document {} ({} bytes{}{})", tenantId, object.sha256(), object.size(),
+                object.deduplicated() ? ", deduplicated" : "",
+                linkedInvoice != null ? ", linked to invoice " + linkedInvoice : "");
+        return new DocumentUpload(document, object.encoding(), object.storedSize(), alreadyUploaded, linkedInvoice);
+    }
+
+    /**
+     * Find a document the tenant has uploaded, together with its stored object
+     *
+     * @throws IllegalArgumentException if sha256 is not a valid hex digest
+     */
+    public Optional<OpenDocument> open(String tenantId, String sha256) throws IOException {
+        String hash = sha256 != null ? sha256.trim().toLowerCase() : null;
+        Optional<StoredObject> object = objectStore.find(hash);
+        Optional<SourceDocument> document = sourceDocumentStore.find(tenantId, hash);
+        if (document.isEmpty()) {
+            return Optional.empty();
+        }
+        if (object.isEmpty()) {
+            throw new IllegalStateException("Document " + hash + " is registered but missing from the document store");
+        }
+        return Optional.of(new OpenDocument(document.get(), object.get()));
+    }
+
+    /**
+     * Write a range of the document to the target channel
+     */
+    public void transferTo(OpenDocument document, ByteRange range, WritableByteChannel target) throws IOException {
+        objectStore.transferTo(document.object(), range.offset(), range.length(), target);
+    }
+
+    /**
+     * Read up to max-chunk-size bytes of a document for a tool response
+     */
+    public Optional<DocumentChunk> readChunk(String tenantId, String sha256, Long offset, Long length) throws IOException {
+        Optional<OpenDocument> opened = open(tenantId, sha256);
+        if (opened.isEmpty()) {
+            return Optional.empty();
+        }
+        SourceDocument document = opened.get().document();
+        ByteRange range = ByteRange.of(offset, length, document.size(), maxChunkSize);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) range.length());
+        transferTo(opened.get(), range, Channels.newChannel(out));
+
+        return Optional.of(new DocumentChunk(document.sha256(), document.fileName(), document.contentType(),
+                document.size(), range.offset(), range.length(), Base64.getEncoder().encodeToString(out.toByteArray())));
+    }
+
+    /**
+     * A tenant's document and the stored object holding its bytes
+     */
+    public record OpenDocument(SourceDocument document, StoredObject object) {
+    }
+}
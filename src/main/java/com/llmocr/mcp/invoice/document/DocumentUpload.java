@@ -0,0 +1,16 @@
+package com.llmocr.mcp.invoice.document;
+
+/**
+ * Result of a document upload
+ *
+ * deduplicated is true when this tenant had already uploaded the same content. Uploads
+ * by other tenants are deliberately not reflected, so the response cannot be used to
+ * confirm that someone else holds a given file.
+ */
+public record DocumentUpload(
+        SourceDocument document,
+        StoredObject.Encoding encoding,
+        long storedSize,
+        boolean deduplicated,
+        String linkedInvoiceNumber) {
+}
@@ -0,0 +1,15 @@
+package com.llmocr.mcp.invoice.document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A tenant's reference to a document in the content-addressed store, as stored in source_documents
+ */
+public record SourceDocument(
+        String sha256,
+        String fileName,
+        String contentType,
+        long size,
+        String createdBy,
+        LocalDateTime createdAt) {
+}
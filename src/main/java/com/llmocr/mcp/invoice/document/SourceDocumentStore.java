@@ -0,0 +1,73 @@
+package com.llmocr.mcp.invoice.document;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * JDBC access to source_documents and the source file columns of invoices
+ */
+@Component
+@RequiredArgsConstructor
+class SourceDocumentStore {
+
+    /** Stored in invoices.source_file_path, resolved against the /mcp/documents endpoint */
+    static final String SOURCE_FILE_PATH_PREFIX = "documents/";
+
+    private static final RowMapper<SourceDocument> ROW_MAPPER = (rs, rowNum) -> new SourceDocument(
+            rs.getString("sha256"),
+            rs.getString("file_name"),
+            rs.getString("content_type"),
+            rs.getLong("size_bytes"),
+            rs.getString("created_by"),
+            rs.getTimestamp("created_at").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    Optional<SourceDocument> find(String tenantId, String sha256) {
+        return jdbcTemplate.query("SELECT * FROM mcp_invoice.source_documents WHERE tenant_id = ? AND sha256 = ?",
+                ROW_MAPPER, tenantId, sha256).stream().findFirst();
+    }
+
+    /**
+     * Record the tenant's reference to a stored document; a repeated upload keeps the
+     * original row but takes the new file name and content type when given
+     */
+    SourceDocument save(String tenantId, String sha256, String fileName, String contentType, long size, String userId) {
+        return jdbcTemplate.queryForObject("INSERT INTO mcp_invoice.source_documents " +
+                "(tenant_id, sha256, file_name, content_type, size_bytes, created_by) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (tenant_id, sha256) DO UPDATE SET " +
+                "file_name = COALESCE(EXCLUDED.file_name, source_documents.file_name), " +
+                "content_type = COALESCE(EXCLUDED.content_type, source_documents.content_type) " +
+                "RETURNING *",
+                ROW_MAPPER, tenantId, sha256, truncate(fileName, 255), truncate(contentType, 100), size, userId);
+    }
+
+    boolean invoiceExists(String tenantId, String invoiceNumber) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM mcp_invoice.invoices " +
+                "WHERE tenant_id = ? AND invoice_number = ?)", Boolean.class, tenantId, invoiceNumber));
+    }
+
+    /**
+     * Point the invoice's source file columns at the stored document
+     *
+     * @return false if the invoice does not exist
+     */
+    boolean linkInvoice(String tenantId, String invoiceNumber, SourceDocument document, String userId) {
+        return jdbcTemplate.update("UPDATE mcp_invoice.invoices " +
+                "SET source_file_path = ?, source_file_name = ?, source_file_type = ?, " +
+                "updated_at = CURRENT_TIMESTAMP, updated_by = ? " +
+                "WHERE tenant_id = ? AND invoice_number = ?",
+                SOURCE_FILE_PATH_PREFIX + document.sha256(), 
+                truncate(document.fileName(), 255), 
+                truncate(document.contentType(), 50), 
+                userId, tenantId, invoiceNumber) > 0;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
@@ -0,0 +1,21 @@
+package com.llmocr.mcp.invoice.document;
+
+import java.nio.file.Path;
+
+/**
+ * One object in the content-addressed document store
+ *
+ * size is the length of the document itself; storedSize is its size on disk, which
+ * for ZSTD objects is smaller.
+ * deduplicated is set when a put found the content already stored.
+ */
+public record StoredObject(String sha256, long size, Encoding encoding, Path path, long storedSize, boolean deduplicated) {
+
+    public enum Encoding {
+        RAW, ZSTD
+    }
+
+    StoredObject asDeduplicated() {
+        return new StoredObject(sha256, size, encoding, path, storedSize, true);
+    }
+}
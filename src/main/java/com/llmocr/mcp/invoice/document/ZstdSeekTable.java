@@ -0,0 +1,152 @@
+package com.llmocr.mcp.invoice.document;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Frame index of a compressed document object, in the zstd seekable format
+ *
+ * Compressed objects are a sequence of independent zstd frames, each holding at most
+ * frame-size bytes of the document, followed by a skippable frame that lists every
+ * frame's compressed and original size:
+ *
+ * [frame 0][frame 1]...[frame n-1][0x184D2A5E, table size, n x (compressed, original), n, 0, 0x8F92EAB1]
+ *
+ * A range read only decompresses the frames it overlaps instead of the document up to
+ * the range. Plain zstd tools still decompress the whole object, as they ignore
+ * skippable frames. All integers are 32-bit little-endian.
+ */
+final class ZstdSeekTable {
+
+    static final int SKIPPABLE_MAGIC = 0x184D2A5E;
+    static final int SEEKABLE_MAGIC = 0x8F92EAB1;
+    private static final int SKIPPABLE_HEADER_SIZE = 8;
+    private static final int ENTRY_SIZE = 8;
+    private static final int FOOTER_SIZE = 9;
+
+    /** Start of each frame in the object, plus the end of the last frame */
+    private final long[] compressedOffsets;
+    /** Start of each frame's content in the document, plus the document size */
+    private final long[] offsets;
+
+    private ZstdSeekTable(long[] compressedOffsets, long[] offsets) {
+        this.compressedOffsets = compressedOffsets;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Read the table at the end of an object
+     *
+     * @throws IOException if the object does not end with a valid seek table
+     */
+    static ZstdSeekTable read(FileChannel channel) throws IOException {
+        long objectSize = channel.size();
+        if (objectSize < SKIPPABLE_HEADER_SIZE + FOOTER_SIZE) {
+            throw new IOException("Corrupt object: " + objectSize + " bytes is too short for a seek table");
+        }
+        ByteBuffer footer = readAt(channel, objectSize - FOOTER_SIZE, FOOTER_SIZE);
+        int frameCount = footer.getInt();
+        footer.get(); // descriptor: no per-frame checksums are written
+        if (footer.getInt() != SEEKABLE_MAGIC || frameCount < 0) {
+            throw new IOException("Corrupt object: no seek table");
+        }
+
+        long tableSize = (long) frameCount * ENTRY_SIZE + FOOTER_SIZE;
+        long tableStart = objectSize - tableSize - SKIPPABLE_HEADER_SIZE;
+        if (tableStart < 0) {
+            throw new IOException("Corrupt seek table: " + frameCount + " frames in a " + objectSize + " byte object");
+        }
+        ByteBuffer table = readAt(channel, tableStart, (int) (tableSize - FOOTER_SIZE + SKIPPABLE_HEADER_SIZE));
+        if (table.getInt() != SKIPPABLE_MAGIC || Integer.toUnsignedLong(table.getInt()) != tableSize) {
+            throw new IOException("Corrupt seek table header");
+        }
+
+        long[] compressedOffsets = new long[frameCount + 1];
+        long[] offsets = new long[frameCount + 1];
+        for (int i = 0; i < frameCount; i++) {
+            compressedOffsets[i + 1] = compressedOffsets[i] + Integer.toUnsignedLong(table.getInt());
+            offsets[i + 1] = offsets[i] + Integer.toUnsignedLong(table.getInt());
+        }
+        if (compressedOffsets[frameCount] != tableStart) {
+            throw new IOException("Corrupt seek table: frames end at " + compressedOffsets[frameCount] +
+                    ", table starts at " + tableStart);
+        }
+        return new ZstdSeekTable(compressedOffsets, offsets);
+    }
+
+    /** Original size of the document */
+    long size() {
+        return offsets[offsets.length - 1];
+    }
+
+    int frameCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Index of the frame holding the document byte at offset
+     */
+    int frameAt(long offset) {
+        int index = Arrays.binarySearch(offsets, 0, offsets.length - 1, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /** Offset of the frame's first byte in the document */
+    long frameOffset(int frame) {
+        return offsets[frame];
+    }
+
+    int frameSize(int frame) {
+        return (int) (offsets[frame + 1] - offsets[frame]);
+    }
+
+    long compressedOffset(int frame) {
+        return compressedOffsets[frame];
+    }
+
+    int compressedSize(int frame) {
+        return (int) (compressedOffsets[frame + 1] - compressedOffsets[frame]);
+    }
+
+    static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of object at " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Collects frame sizes while an object is written, then serializes the table
+     */
+    static final class Writer {
+
+        private int[] entries = new int[32];
+        private int frameCount;
+
+        void add(int compressedSize, int size) {
+            if (frameCount * 2 == entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            entries[frameCount * 2] = compressedSize;
+            entries[frameCount * 2 + 1] = size;
+            frameCount++;
+        }
+
+        byte[] toByteArray() {
+            int tableSize = frameCount * ENTRY_SIZE + FOOTER_SIZE;
+            ByteBuffer table = ByteBuffer.allocate(SKIPPABLE_HEADER_SIZE + tableSize).order(ByteOrder.LITTLE_ENDIAN);
+            table.putInt(SKIPPABLE_MAGIC).putInt(tableSize);
+            for (int i = 0; i < frameCount * 2; i++) {
+                table.putInt(entries[i]);
+            }
+            table.putInt(frameCount).put((byte) 0).putInt(SEEKABLE_MAGIC);
+            return table.array();
+        }
+    }
+}
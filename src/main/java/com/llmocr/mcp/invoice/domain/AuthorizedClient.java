@@ -49,6 +49,11 @@ public class AuthorizedClient {
     @Column(name = "audience_url", length = 500)
     private String audienceUrl;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "token_verification_mode", nullable = false, length = 20)
+    @Builder.Default
+    private TokenVerificationMode tokenVerificationMode = TokenVerificationMode.INTROSPECTION;
+
     @Column(name = "is_active", nullable = false)
     @Builder.Default
     private Boolean isActive = true;
@@ -78,4 +83,16 @@ public class AuthorizedClient {
         return scopes != null && scopes.stream()
                 .anyMatch(s -> s.getScope().equals(scope) && s.getIsActive());
     }
+
+    /**
+     * Check if tokens for this client should be verified locally against its JWKS key set
+     */
+    public boolean usesLocalVerification() {
+        return tokenVerificationMode == TokenVerificationMode.JWKS
+                && jwksEndpoint != null && !jwksEndpoint.trim().isEmpty();
+    }
+
+    public enum TokenVerificationMode {
+        INTROSPECTION, JWKS
+    }
 }
@@ -27,7 +27,8 @@ import java.util.Map;
 public class Invoice {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoices_id_seq")
+    @SequenceGenerator(name = "invoices_id_seq", sequenceName = "invoices_id_seq", schema = "mcp_invoice", allocationSize = 50)
     private Long id;
 
     @Column(name = "tenant_id", nullable = false, length = 100)
@@ -95,9 +96,6 @@ public class Invoice {
     @Column(name = "source_file_type", length = 50)
     private String sourceFileType;
 
-    @Column(name = "extracted_text", columnDefinition = "TEXT")
-    private String extractedText;
-
     @Column(name = "confidence_score", precision = 5, scale = 4)
     private BigDecimal confidenceScore;
 
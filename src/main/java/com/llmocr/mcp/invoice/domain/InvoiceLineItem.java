@@ -24,7 +24,8 @@ import java.util.Map;
 public class InvoiceLineItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_line_items_id_seq")
+    @SequenceGenerator(name = "invoice_line_items_id_seq", sequenceName = "invoice_line_items_id_seq", schema = "mcp_invoice", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -84,9 +85,13 @@ public class InvoiceLineItem {
         }
     }
 
-    @PrePersist
-    @PreUpdate
-    protected void calculateAmounts() {
+    /**
+     * Derive line total and tax amount from quantity, unit price and tax rate
+     * 
+     * Called once when the line item is built rather than from entity lifecycle
+     * callbacks, so batched inserts do no per-row work in the flush.
+     */
+    public void calculateAmounts() {
         calculateLineTotal();
         calculateTaxAmount();
     }
@@ -0,0 +1,22 @@
+package com.llmocr.mcp.invoice.domain;
+
+import java.util.List;
+
+/**
+ * Published when invoices have been inserted for a tenant
+ * 
+ * Listeners keeping in-memory views of invoices (duplicate filters, search indexes,
+ * statistics caches) should use @TransactionalEventListener so they only see
+ * committed data. Bulk loads that insert too many rows to list publish a
+ * bulkLoad event instead, telling listeners to reload the tenant from the database.
+ */
+public record InvoicesPersistedEvent(String tenantId, List<Invoice> invoices, boolean bulkLoad) {
+
+    public static InvoicesPersistedEvent of(String tenantId, List<Invoice> invoices) {
+        return new InvoicesPersistedEvent(tenantId, List.copyOf(invoices), false);
+    }
+
+    public static InvoicesPersistedEvent bulkLoad(String tenantId) {
+        return new InvoicesPersistedEvent(tenantId, List.of(), true);
+    }
+}
@@ -0,0 +1,21 @@
+package com.llmocr.mcp.invoice.dto;
+
+import com.llmocr.mcp.invoice.domain.Invoice.InvoiceStatus;
+import com.llmocr.mcp.invoice.domain.Invoice.ProcessingStatus;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * A tenant's invoice counts and amounts in one currency
+ *
+ * Every ProcessingStatus and InvoiceStatus is present in the maps, with zero when no
+ * invoice has that status.
+ */
+public record CurrencyInvoiceStatistics(
+        String currency,
+        long invoiceCount,
+        BigDecimal totalAmount,
+        Map<ProcessingStatus, Long> processingStatusCounts,
+        Map<InvoiceStatus, BigDecimal> statusAmounts) {
+}
@@ -0,0 +1,20 @@
+package com.llmocr.mcp.invoice.dto;
+
+/**
+ * Outcome of one invoice within a processInvoiceBatch call
+ */
+public record InvoiceBatchItemResult(
+        int index,
+        String invoiceNumber,
+        Status status,
+        Long invoiceId,
+        String message) {
+
+    public enum Status {
+        CREATED, DUPLICATE, INVALID, ERROR
+    }
+
+    public static InvoiceBatchItemResult failed(int index, String invoiceNumber, Status status, String message) {
+        return new InvoiceBatchItemResult(index, invoiceNumber, status, null, message);
+    }
+}
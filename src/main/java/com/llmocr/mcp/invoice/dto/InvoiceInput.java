@@ -0,0 +1,23 @@
+package com.llmocr.mcp.invoice.dto;
+
+import java.util.List;
+
+/**
+ * Extracted invoice fields as supplied by an MCP client
+ * 
+ * Values are kept as the raw strings produced by extraction; dates and amounts
+ * are parsed by InvoiceInputMapper so single and batch ingestion behave the same.
+ * Line items are optional.
+ */
+public record InvoiceInput(
+        String invoiceNumber,
+        String vendorName,
+        String vendorAddress,
+        String customerName,
+        String invoiceDate,
+        String dueDate,
+        String totalAmount,
+        String currency,
+        String description,
+        List<InvoiceLineItemInput> lineItems) {
+}
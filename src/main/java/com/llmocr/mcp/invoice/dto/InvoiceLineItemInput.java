@@ -0,0 +1,18 @@
+package com.llmocr.mcp.invoice.dto;
+
+/**
+ * Extracted line item fields as supplied by an MCP client
+ * 
+ * Numeric values are raw strings (currency symbols and thousands separators allowed).
+ * If quantity and unit price are both given, the line total is calculated from them;
+ * otherwise lineTotal must be supplied.
+ */
+public record InvoiceLineItemInput(
+        String description,
+        String quantity,
+        String unitPrice,
+        String lineTotal,
+        String taxRate,
+        String productCode,
+        String unitOfMeasure) {
+}
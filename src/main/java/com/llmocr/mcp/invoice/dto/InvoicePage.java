@@ -0,0 +1,13 @@
+package com.llmocr.mcp.invoice.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing
+ *
+ * nextCursor is null on the last page; otherwise pass it back unchanged to get the next page.
+ */
+public record InvoicePage(
+        List<InvoiceSummary> invoices,
+        String nextCursor) {
+}
@@ -0,0 +1,9 @@
+package com.llmocr.mcp.invoice.dto;
+
+/**
+ * One ranked searchInvoices result; score is in [0, 1], higher is a better match
+ */
+public record InvoiceSearchHit(
+        InvoiceSummary invoice,
+        double score) {
+}
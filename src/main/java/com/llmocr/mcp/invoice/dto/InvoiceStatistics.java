@@ -0,0 +1,36 @@
+package com.llmocr.mcp.invoice.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.llmocr.mcp.invoice.domain.Invoice.InvoiceStatus;
+import com.llmocr.mcp.invoice.domain.Invoice.ProcessingStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Result of getInvoiceStatistics
+ *
+ * The headline fields keep their original names and formats (totalApprovedAmount is a
+ * string, summed across currencies); byCurrency carries the full breakdown.
+ */
+public record InvoiceStatistics(
+        long totalInvoices,
+        long pendingInvoices,
+        long processedInvoices,
+        @JsonFormat(shape = JsonFormat.Shape.STRING) BigDecimal totalApprovedAmount,
+        List<CurrencyInvoiceStatistics> byCurrency) {
+
+    public static InvoiceStatistics of(List<CurrencyInvoiceStatistics> byCurrency) {
+        long total = 0;
+        long pending = 0;
+        long processed = 0;
+        BigDecimal approved = BigDecimal.ZERO;
+        for (CurrencyInvoiceStatistics currency : byCurrency) {
+            total += currency.invoiceCount();
+            pending += currency.processingStatusCounts().get(ProcessingStatus.NEW);
+            processed += currency.processingStatusCounts().get(ProcessingStatus.COMPLETED);
+            approved = approved.add(currency.statusAmounts().get(InvoiceStatus.APPROVED));
+        }
+        return new InvoiceStatistics(total, pending, processed, approved, byCurrency);
+    }
+}
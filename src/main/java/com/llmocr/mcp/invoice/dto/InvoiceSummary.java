@@ -0,0 +1,24 @@
+package com.llmocr.mcp.invoice.dto;
+
+import com.llmocr.mcp.invoice.domain.Invoice;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Header fields of an invoice as returned by the listing tools
+ */
+public record InvoiceSummary(
+        Long id,
+        String invoiceNumber,
+        String vendorName,
+        String customerName,
+        LocalDate invoiceDate,
+        LocalDate dueDate,
+        BigDecimal totalAmount,
+        String currency,
+        Invoice.InvoiceStatus status,
+        Invoice.ProcessingStatus processingStatus,
+        LocalDateTime createdAt) {
+}
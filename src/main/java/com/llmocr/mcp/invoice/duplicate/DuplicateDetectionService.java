@@ -0,0 +1,472 @@
+package com.llmocr.mcp.invoice.duplicate;
+
+import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.domain.InvoicesPersistedEvent;
+import com.llmocr.mcp.invoice.duplicate.TenantDuplicateIndex.MatchSettings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToLongFunction;
+
+/**
+ * Fuzzy duplicate detection at ingest
+ * 
+ * Keeps a compact per-tenant index of every invoice (normalized number, vendor tokens,
+ * amount, date) in memory and scores a new invoice against the few candidates sharing
+ * its amount bucket or normalized number, so near-duplicates (OCR-garbled invoice
+ * numbers, vendor name variants, slightly different amounts) are found without a
+ * table scan. Matches are flagged, not rejected: the invoice is stored with
+ * processing status DUPLICATE_DETECTED for review.
+ * 
+ * Indexes are built per tenant at startup, most recently active tenants first, and kept
+ * current the same way as the invoice number Bloom filter: InvoicesPersistedEvent on
+ * commit plus a created_at poll for other replicas' inserts.
+ * 
+ * Memory is bounded like the in-memory search index:
+ * - a tenant whose index outgrows max-tenant-memory is unloaded and stays on the database
+ * - when all indexes together exceed max-total-memory, the least recently checked
+ *   tenants are unloaded and reloaded in the background on their next check
+ * A tenant without an index is checked against the database instead: invoices with the
+ * same number, or in the same currency within the amount tolerance and date window, are
+ * scored the same way. Only numbers that differ before OCR folding and amount are missed.
+ */
+@Service
+@Slf4j
+public class DuplicateDetectionService {
+
+    private static final int FETCH_SIZE = 10_000;
+    private static final int MAX_DATABASE_CANDIDATES = 1000;
+    private static final String FINGERPRINT_COLUMNS = 
+            "id, tenant_id, invoice_number, vendor_name, total_amount, currency, invoice_date";
+
+    private static final String SAME_NUMBER_SQL = "SELECT " + FINGERPRINT_COLUMNS +
+            " FROM mcp_invoice.invoices WHERE tenant_id = ? AND invoice_number = ?";
+
+    /** Served by the (tenant_id, invoice_date DESC, id DESC) keyset index */
+    private static final String NEAR_AMOUNT_SQL = "SELECT " + FINGERPRINT_COLUMNS +
+            " FROM mcp_invoice.invoices WHERE tenant_id = ? AND invoice_date BETWEEN ? AND ?" +
+            " AND upper(currency) = ? AND total_amount BETWEEN ? AND ? LIMIT " + MAX_DATABASE_CANDIDATES;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService loader;
+
+    /** Access-ordered, so iteration starts at the least recently checked tenant */
+    private final LinkedHashMap<String, TenantDuplicateIndex> indexes = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+    private final Set<String> oversized = ConcurrentHashMap.newKeySet();
+
+    private final Timer detectionTimer;
+    private final Counter flaggedCounter;
+    private final Counter memoryChecks;
+    private final Counter databaseChecks;
+    private final Counter unloadedCounter;
+
+    @Value("${invoice.duplicate-detection.enabled:true}")
+    private boolean enabled;
+
+    @Value("${invoice.duplicate-detection.threshold:0.85}")
+    private double threshold;
+
+    @Value("${invoice.duplicate-detection.amount-tolerance:0.01}")
+    private double amountTolerance;
+
+    @Value("${invoice.duplicate-detection.date-window-days:7}")
+    private int dateWindowDays;
+
+    @Value("${invoice.duplicate-detection.max-number-edit-distance:2}")
+    private int maxNumberEditDistance;
+
+    @Value("${invoice.duplicate-detection.max-matches:5}")
+    private int maxMatches;
+
+    @Value("${invoice.duplicate-detection.max-tenant-memory:64MB}")
+    private DataSize maxTenantMemory;
+
+    @Value("${invoice.duplicate-detection.max-total-memory:256MB}")
+    private DataSize maxTotalMemory;
+
+    @Value("${invoice.duplicate-detection.refresh-overlap:2m}")
+    private Duration refreshOverlap;
+
+    private volatile LocalDateTime watermark;
+
+    public DuplicateDetectionService(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "duplicate-index-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.detectionTimer = Timer.builder("mcp.invoice.duplicate.detection")
+                .description("Time to score an invoice against the tenant's duplicate index")
+                .register(meterRegistry);
+        this.flaggedCounter = Counter.builder("mcp.invoice.duplicate.flagged")
+                .description("Invoices stored flagged as likely duplicates")
+                .register(meterRegistry);
+        this.memoryChecks = checks(meterRegistry, "memory");
+        this.databaseChecks = checks(meterRegistry, "database");
+        this.unloadedCounter = Counter.builder("mcp.invoice.duplicate.unloaded")
+                .description("Tenant duplicate indexes unloaded to stay within memory caps")
+                .register(meterRegistry);
+        Gauge.builder("mcp.invoice.duplicate.indexed", this, service -> service.sum(TenantDuplicateIndex::size))
+                .description("Invoices held in the in-memory duplicate index")
+                .register(meterRegistry);
+        Gauge.builder("mcp.invoice.duplicate.memory", this, DuplicateDetectionService::totalMemoryBytes)
+                .description("Estimated memory held by tenant duplicate indexes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        watermark = LocalDateTime.now();
+        loader.execute(this::preload);
+    }
+
+    /**
+     * Find stored invoices the given (not yet stored) invoice likely duplicates, best match first
+     * 
+     * Uses the tenant's in-memory index, or the database while it is not loaded.
+     */
+    public List<DuplicateMatch> findLikelyDuplicates(Invoice invoice) {
+        if (!enabled) {
+            return List.of();
+        }
+        String tenantId = invoice.getTenantId();
+        InvoiceFingerprint probe = InvoiceFingerprint.of(invoice.getId() != null ? invoice.getId() : -1,
+                invoice.getInvoiceNumber(), invoice.getVendorName(), invoice.getTotalAmount(),
+                invoice.getCurrency(), invoice.getInvoiceDate());
+
+        TenantDuplicateIndex index;
+        synchronized (indexes) {
+            index = indexes.get(tenantId);
+        }
+        if (index == null) {
+            databaseChecks.increment();
+            scheduleLoad(tenantId);
+            return detectionTimer.record(() -> findInDatabase(tenantId, probe, invoice));
+        }
+        memoryChecks.increment();
+        return detectionTimer.record(() -> index.findMatches(probe, settings()));
+    }
+
+    /**
+     * Flag the invoice as DUPLICATE_DETECTED and record the matches in its metadata
+     * 
+     * @return the matches, empty if the invoice was not flagged
+     */
+    public List<DuplicateMatch> flagIfDuplicate(Invoice invoice) {
+        List<DuplicateMatch> matches = findLikelyDuplicates(invoice);
+        if (!matches.isEmpty()) {
+            invoice.setProcessingStatus(Invoice.ProcessingStatus.DUPLICATE_DETECTED);
+            Map<String, Object> metadata = invoice.getMetadata() != null 
+                    ? new HashMap<>(invoice.getMetadata()) : new HashMap<>();
+            metadata.put("possibleDuplicates", matches.stream()
+                    .map(match -> Map.of(
+                            "invoiceId", match.invoiceId(),
+                            "invoiceNumber", match.invoiceNumber(),
+                            "score", Math.round(match.score() * 1000) / 1000.0))
+                    .toList());
+            invoice.setMetadata(metadata);
+        }
+        return matches;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInvoicesPersisted(InvoicesPersistedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.bulkLoad()) {
+            // Cheaper to rebuild than to replay a large merge through the event
+            unload(event.tenantId(), "bulk load");
+            scheduleLoad(event.tenantId());
+            return;
+        }
+        TenantDuplicateIndex index;
+        synchronized (indexes) {
+            index = indexes.get(event.tenantId());
+        }
+        for (Invoice invoice : event.invoices()) {
+            // Counted once stored: a flagged invoice can still be rejected by insertIfAbsent
+            if (invoice.getProcessingStatus() == Invoice.ProcessingStatus.DUPLICATE_DETECTED) {
+                flaggedCounter.increment();
+            }
+            if (index != null && invoice.getId() != null) {
+                index.add(InvoiceFingerprint.of(invoice.getId(), invoice.getInvoiceNumber(), invoice.getVendorName(),
+                        invoice.getTotalAmount(), invoice.getCurrency(), invoice.getInvoiceDate()));
+            }
+        }
+        if (index != null) {
+            enforceCaps(event.tenantId(), index);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${invoice.duplicate-detection.refresh-interval-ms:60000}",
+               initialDelayString = "${invoice.duplicate-detection.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!enabled || watermark == null) {
+            return;
+        }
+        try {
+            // Pick up invoices inserted by other replicas; indexes ignore ids they already hold
+            LocalDateTime pollStart = LocalDateTime.now();
+            Map<String, TenantDuplicateIndex> touched = new LinkedHashMap<>();
+            jdbcTemplate.query("SELECT " + FINGERPRINT_COLUMNS + " FROM mcp_invoice.invoices WHERE created_at >= ?", rs -> {
+                String tenantId = rs.getString("tenant_id");
+                if (!touched.containsKey(tenantId)) {
+                    touched.put(tenantId, peek(tenantId));
+                }
+                TenantDuplicateIndex index = touched.get(tenantId);
+                if (index != null) {
+                    index.add(fingerprint(rs));
+                }
+            }, Timestamp.valueOf(watermark.minus(refreshOverlap)));
+            watermark = pollStart;
+            touched.forEach((tenantId, index) -> {
+                if (index != null) {
+                    enforceCaps(tenantId, index);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to refresh duplicate detection index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Score the invoice against candidates read from the database
+     */
+    private List<DuplicateMatch> findInDatabase(String tenantId, InvoiceFingerprint probe, Invoice invoice) {
+        TenantDuplicateIndex candidates = new TenantDuplicateIndex(amountTolerance);
+        RowCallbackHandler addCandidate = rs -> candidates.add(fingerprint(rs));
+
+        if (invoice.getInvoiceNumber() != null) {
+            jdbcTemplate.query(SAME_NUMBER_SQL, addCandidate, tenantId, invoice.getInvoiceNumber());
+        }
+        BigDecimal amount = invoice.getTotalAmount();
+        LocalDate invoiceDate = invoice.getInvoiceDate();
+        if (amount != null && invoiceDate != null) {
+            // The neighbouring buckets the in-memory index probes span up to two tolerances either way
+            BigDecimal spread = BigDecimal.valueOf((1 + amountTolerance) * (1 + amountTolerance));
+            BigDecimal scaledUp = amount.multiply(spread);
+            BigDecimal scaledDown = amount.divide(spread, 2, RoundingMode.FLOOR);
+            jdbcTemplate.query(NEAR_AMOUNT_SQL, addCandidate, tenantId,
+                    Date.valueOf(invoiceDate.minusDays(dateWindowDays)), Date.valueOf(invoiceDate.plusDays(dateWindowDays)),
+                    probe.currency(), scaledUp.min(scaledDown), scaledUp.max(scaledDown));
+        }
+        return candidates.findMatches(probe, settings());
+    }
+
+    private void preload() {
+        try {
+            // Most recently written tenants first, until the memory budget is used
+            List<String> tenantIds = jdbcTemplate.queryForList(
+                    "SELECT tenant_id FROM mcp_invoice.tenant_invoice_stats " +
+                    "GROUP BY tenant_id ORDER BY MAX(updated_at) DESC", String.class);
+            for (String tenantId : tenantIds) {
+                if (totalMemoryBytes() >= maxTotalMemory.toBytes() * 9 / 10) {
+                    break;
+                }
+                load(tenantId);
+            }
+            log.info("Duplicate detection index loaded for {} tenants ({} invoices, {} MB)", loadedTenants(),
+                    sum(TenantDuplicateIndex::size), totalMemoryBytes() / (1024 * 1024));
+        } catch (Exception e) {
+            log.error("Failed to preload duplicate detection index, duplicates are checked in the database: {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    private void scheduleLoad(String tenantId) {
+        if (!oversized.contains(tenantId) && loading.add(tenantId)) {
+            loader.execute(() -> {
+                try {
+                    load(tenantId);
+                } catch (Exception e) {
+                    log.error("Failed to load duplicate detection index for tenant {}: {}", tenantId, e.getMessage(), e);
+                } finally {
+                    loading.remove(tenantId);
+                }
+            });
+        }
+    }
+
+    private void load(String tenantId) {
+        if (oversized.contains(tenantId)) {
+            return;
+        }
+        LocalDateTime loadStart = LocalDateTime.now();
+        TenantDuplicateIndex index = new TenantDuplicateIndex(amountTolerance);
+        long maxBytes = maxTenantMemory.toBytes();
+
+        Boolean complete = readOnlyTransaction.execute(status -> {
+            boolean[] fits = {true};
+            streamingJdbcTemplate.query("SELECT " + FINGERPRINT_COLUMNS + " FROM mcp_invoice.invoices WHERE tenant_id = ?",
+                    (RowCallbackHandler) rs -> {
+                        if (fits[0]) {
+                            index.add(fingerprint(rs));
+                            fits[0] = index.memoryBytes() <= maxBytes;
+                        }
+                    }, tenantId);
+            return fits[0];
+        });
+        if (!Boolean.TRUE.equals(complete)) {
+            oversized.add(tenantId);
+            log.warn("Duplicate detection index for tenant {} exceeds {}, duplicates are checked in the database",
+                    tenantId, maxTenantMemory);
+            return;
+        }
+
+        // Catch up on invoices committed while loading; they may have missed the event
+        jdbcTemplate.query("SELECT " + FINGERPRINT_COLUMNS + " FROM mcp_invoice.invoices WHERE tenant_id = ? AND created_at >= ?",
+                (RowCallbackHandler) rs -> index.add(fingerprint(rs)),
+                tenantId, Timestamp.valueOf(loadStart.minus(refreshOverlap)));
+
+        synchronized (indexes) {
+            indexes.put(tenantId, index);
+        }
+        log.info("Duplicate detection index loaded for tenant {} ({} invoices, {} KB)",
+                tenantId, index.size(), index.memoryBytes() / 1024);
+        enforceCaps(tenantId, index);
+    }
+
+    /**
+     * Unload the tenant if it outgrew its cap, then the least recently checked tenants
+     * until the total is back under max-total-memory
+     */
+    private void enforceCaps(String tenantId, TenantDuplicateIndex index) {
+        if (index.memoryBytes() > maxTenantMemory.toBytes()) {
+            oversized.add(tenantId);
+            unload(tenantId, "over tenant cap " + maxTenantMemory);
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (indexes) {
+            long total = indexes.values().stream().mapToLong(TenantDuplicateIndex::memoryBytes).sum();
+            var eldest = indexes.entrySet().iterator();
+            while (total > maxTotalMemory.toBytes() && indexes.size() > 1 && eldest.hasNext()) {
+                var entry = eldest.next();
+                total -= entry.getValue().memoryBytes();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        for (String evictedTenant : evicted) {
+            unloadedCounter.increment();
+            log.info("Unloaded cold duplicate detection index for tenant {} (total over {})", evictedTenant, maxTotalMemory);
+        }
+    }
+
+    private void unload(String tenantId, String reason) {
+        TenantDuplicateIndex removed;
+        synchronized (indexes) {
+            removed = indexes.remove(tenantId);
+        }
+        if (removed != null) {
+            unloadedCounter.increment();
+            log.info("Unloaded duplicate detection index for tenant {} ({})", tenantId, reason);
+        }
+    }
+
+    /**
+     * Look up without counting as a check, so polling does not keep cold tenants warm
+     */
+    private TenantDuplicateIndex peek(String tenantId) {
+        synchronized (indexes) {
+            for (Map.Entry<String, TenantDuplicateIndex> entry : indexes.entrySet()) {
+                if (entry.getKey().equals(tenantId)) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+    }
+
+    private int loadedTenants() {
+        synchronized (indexes) {
+            return indexes.size();
+        }
+    }
+
+    private long sum(ToLongFunction<TenantDuplicateIndex> value) {
+        synchronized (indexes) {
+            return indexes.values().stream().mapToLong(value).sum();
+        }
+    }
+
+    private long totalMemoryBytes() {
+        return sum(TenantDuplicateIndex::memoryBytes);
+    }
+
+    private static InvoiceFingerprint fingerprint(ResultSet rs) throws SQLException {
+        Date invoiceDate = rs.getDate("invoice_date");
+        return InvoiceFingerprint.of(
+                rs.getLong("id"),
+                rs.getString("invoice_number"),
+                rs.getString("vendor_name"),
+                rs.getBigDecimal("total_amount"),
+                rs.getString("currency"),
+                invoiceDate != null ? invoiceDate.toLocalDate() : null);
+    }
+
+    private MatchSettings settings() {
+        return new MatchSettings(threshold, dateWindowDays, maxNumberEditDistance, maxMatches);
+    }
+
+    private static Counter checks(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("mcp.invoice.duplicate.checks")
+                .description("Duplicate checks by where candidates were found")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+}
@@ -0,0 +1,16 @@
+package com.llmocr.mcp.invoice.duplicate;
+
+/**
+ * An existing invoice that a new invoice likely duplicates
+ * 
+ * @param score combined similarity in [0, 1]
+ */
+public record DuplicateMatch(
+        long invoiceId,
+        String invoiceNumber,
+        double score,
+        double invoiceNumberSimilarity,
+        double vendorSimilarity,
+        double amountSimilarity,
+        int daysApart) {
+}
@@ -0,0 +1,157 @@
+package com.llmocr.mcp.invoice.duplicate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Compact, normalized view of an invoice used for fuzzy duplicate matching
+ * 
+ * Invoice numbers are folded for common OCR confusions (O/0, I/l/1, S/5, B/8, Z/2) and
+ * stripped of punctuation and leading zeros; vendor names become a sorted array of
+ * token hashes with legal suffixes (Inc, LLC, GmbH...) dropped.
+ */
+record InvoiceFingerprint(
+        long invoiceId,
+        String invoiceNumber,
+        String normalizedNumber,
+        int[] vendorTokens,
+        long amountCents,
+        String currency,
+        int epochDay) {
+
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final Set<String> VENDOR_STOP_WORDS = Set.of(
+            "the", "and", "inc", "incorporated", "llc", "llp", "ltd", "limited", "co", "corp", "corporation",
+            "company", "plc", "gmbh", "ag", "sa", "sas", "srl", "bv", "nv", "pty", "oy", "ab", "kg");
+
+    static InvoiceFingerprint of(long invoiceId, String invoiceNumber, String vendorName,
+                                 BigDecimal totalAmount, String currency, LocalDate invoiceDate) {
+        return new InvoiceFingerprint(
+                invoiceId,
+                invoiceNumber,
+                normalizeInvoiceNumber(invoiceNumber),
+                vendorTokens(vendorName),
+                totalAmount != null ? totalAmount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue() : 0,
+                currency != null ? currency.toUpperCase(Locale.ROOT) : "",
+                invoiceDate != null ? (int) invoiceDate.toEpochDay() : NO_DATE);
+    }
+
+    static String normalizeInvoiceNumber(String invoiceNumber) {
+        if (invoiceNumber == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(invoiceNumber.length());
+        for (int i = 0; i < invoiceNumber.length(); i++) {
+            char c = Character.toUpperCase(invoiceNumber.charAt(i));
+            c = switch (c) {
+                case 'O', 'Q' -> '0';
+                case 'I', 'L', '|', '!' -> '1';
+                case 'S' -> '5';
+                case 'B' -> '8';
+                case 'Z' -> '2';
+                case 'G' -> '6';
+                default -> c;
+            };
+            if (Character.isLetterOrDigit(c)) {
+                // Leading zeros are frequently dropped or added by extraction
+                if (c != '0' || !normalized.isEmpty()) {
+                    normalized.append(c);
+                }
+            }
+        }
+        return normalized.toString();
+    }
+
+    static int[] vendorTokens(String vendorName) {
+        if (vendorName == null) {
+            return new int[0];
+        }
+        String[] words = vendorName.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        int[] tokens = new int[words.length];
+        int count = 0;
+        for (String word : words) {
+            if (!word.isEmpty() && !VENDOR_STOP_WORDS.contains(word)) {
+                tokens[count++] = word.hashCode();
+            }
+        }
+        int[] result = Arrays.copyOf(tokens, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Jaccard similarity of two sorted token arrays
+     */
+    static double vendorSimilarity(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0;
+        }
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    /**
+     * 1 - normalized Levenshtein distance, computed only while the distance stays within maxDistance
+     */
+    static double invoiceNumberSimilarity(String a, String b, int maxDistance) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        if (a.equals(b)) {
+            return 1;
+        }
+        if (Math.abs(a.length() - b.length()) > maxDistance) {
+            return 0;
+        }
+
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) {
+                return 0;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        int distance = previous[b.length()];
+        return distance > maxDistance ? 0 : 1 - (double) distance / Math.max(a.length(), b.length());
+    }
+
+    static double amountSimilarity(long a, long b) {
+        if (a == b) {
+            return 1;
+        }
+        long max = Math.max(Math.abs(a), Math.abs(b));
+        return max == 0 ? 1 : Math.max(0, 1 - (double) Math.abs(a - b) / max);
+    }
+}
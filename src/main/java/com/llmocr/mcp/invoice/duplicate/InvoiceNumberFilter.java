@@ -0,0 +1,326 @@
+package com.llmocr.mcp.invoice.duplicate;
+
+import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.domain.InvoicesPersistedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-tenant Bloom filter of invoice numbers
+ * 
+ * Lets duplicate checks skip the database when an invoice number has definitely never
+ * been seen for the tenant, which is the common case; only probable hits are checked
+ * against Postgres.
+ * 
+ * Filters are warmed from invoices at startup, updated from InvoicesPersistedEvent on
+ * commit, and polled from created_at to pick up rows inserted by other replicas. Until
+ * warm-up completes every lookup answers "maybe". Between polls a row inserted by
+ * another replica can be missed, so a negative is not authoritative: use the filter only
+ * where a false negative is harmless, such as batch inserts that still handle the unique
+ * constraint on (tenant_id, invoice_number), and never to answer "does it exist".
+ * 
+ * Filters that fill beyond their sized capacity are rebuilt at twice the size so the
+ * false-positive rate stays near invoice.bloom-filter.expected-fpp.
+ */
+@Component
+@Slf4j
+public class InvoiceNumberFilter {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<String, TenantFilter> filters = new ConcurrentHashMap<>();
+
+    private final Counter negativeChecks;
+    private final Counter positiveChecks;
+    private final Counter falsePositives;
+
+    @Value("${invoice.bloom-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${invoice.bloom-filter.expected-fpp:0.01}")
+    private double expectedFpp;
+
+    @Value("${invoice.bloom-filter.min-capacity:10000}")
+    private long minCapacity;
+
+    @Value("${invoice.bloom-filter.refresh-overlap:2m}")
+    private Duration refreshOverlap;
+
+    private volatile boolean loaded;
+    private volatile LocalDateTime watermark;
+
+    public InvoiceNumberFilter(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.negativeChecks = Counter.builder("mcp.invoice.bloom.checks")
+                .tag("result", "negative")
+                .description("Duplicate checks answered by the Bloom filter without a database query")
+                .register(meterRegistry);
+        this.positiveChecks = Counter.builder("mcp.invoice.bloom.checks")
+                .tag("result", "maybe")
+                .description("Duplicate checks the Bloom filter passed on to the database")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("mcp.invoice.bloom.false.positives")
+                .description("Bloom filter hits the database showed were not duplicates")
+                .register(meterRegistry);
+
+        Gauge.builder("mcp.invoice.bloom.fpp", this, InvoiceNumberFilter::maxExpectedFpp)
+                .description("Highest expected false-positive probability across tenant filters")
+                .register(meterRegistry);
+        Gauge.builder("mcp.invoice.bloom.memory", this, InvoiceNumberFilter::memoryBytes)
+                .description("Memory held by tenant Bloom filters")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("mcp.invoice.bloom.tenants", filters, Map::size)
+                .description("Tenants with a Bloom filter")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            warmUp();
+        } catch (Exception e) {
+            log.error("Failed to warm invoice number Bloom filters, duplicate checks will query the database: {}", 
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return false if the invoice number was not stored for the tenant as of the last
+     *         event or poll; inserts by other replicas since then are not reflected
+     */
+    public boolean mightExist(String tenantId, String invoiceNumber) {
+        if (!enabled || !loaded) {
+            return true;
+        }
+        boolean maybe = tenantFilter(tenantId).mightContain(invoiceNumber);
+        (maybe ? positiveChecks : negativeChecks).increment();
+        return maybe;
+    }
+
+    /**
+     * @return the subset of invoice numbers that may already exist for the tenant
+     */
+    public Set<String> filterPossiblyExisting(String tenantId, Collection<String> invoiceNumbers) {
+        Set<String> candidates = new LinkedHashSet<>();
+        for (String invoiceNumber : invoiceNumbers) {
+            if (mightExist(tenantId, invoiceNumber)) {
+                candidates.add(invoiceNumber);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Record that a "maybe" answer turned out not to exist in the database
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInvoicesPersisted(InvoicesPersistedEvent event) {
+        if (!enabled || !loaded) {
+            return;
+        }
+        if (event.bulkLoad()) {
+            rebuild(event.tenantId());
+            return;
+        }
+        TenantFilter filter = tenantFilter(event.tenantId());
+        for (Invoice invoice : event.invoices()) {
+            filter.put(invoice.getInvoiceNumber());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${invoice.bloom-filter.refresh-interval-ms:60000}",
+               initialDelayString = "${invoice.bloom-filter.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!loaded) {
+                warmUp();
+                return;
+            }
+
+            // Pick up invoices inserted by other replicas; re-adding a known number is harmless
+            LocalDateTime pollStart = LocalDateTime.now();
+            int[] rows = {0};
+            jdbcTemplate.query("SELECT tenant_id, invoice_number FROM mcp_invoice.invoices WHERE created_at >= ?",
+                    rs -> {
+                        tenantFilter(rs.getString(1)).put(rs.getString(2));
+                        rows[0]++;
+                    },
+                    Timestamp.valueOf(watermark.minus(refreshOverlap)));
+            watermark = pollStart;
+            log.debug("Invoice number Bloom filters applied {} recent invoices", rows[0]);
+
+            // Resize filters that have outgrown their capacity
+            for (Map.Entry<String, TenantFilter> entry : filters.entrySet()) {
+                if (entry.getValue().isSaturated()) {
+                    log.info("Invoice number Bloom filter for tenant {} is over capacity, rebuilding", entry.getKey());
+                    rebuild(entry.getKey());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to refresh invoice number Bloom filters: {}", e.getMessage(), e);
+        }
+    }
+
+    private void warmUp() {
+        LocalDateTime loadStart = LocalDateTime.now();
+
+        Map<String, Long> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT tenant_id, COUNT(*) FROM mcp_invoice.invoices GROUP BY tenant_id",
+                rs -> {
+                    counts.put(rs.getString(1), rs.getLong(2));
+                });
+
+        Map<String, TenantFilter> warmed = new HashMap<>();
+        counts.forEach((tenantId, count) -> warmed.put(tenantId, new TenantFilter(newFilter(count))));
+
+        // Cursor-based streaming needs a transaction (autocommit off) with the PostgreSQL driver
+        readOnlyTransaction.executeWithoutResult(status -> 
+                streamingJdbcTemplate.query("SELECT tenant_id, invoice_number FROM mcp_invoice.invoices",
+                        rs -> {
+                            warmed.computeIfAbsent(rs.getString(1), tenantId -> new TenantFilter(newFilter(0)))
+                                    .put(rs.getString(2));
+                        }));
+
+        filters.putAll(warmed);
+        watermark = loadStart;
+        loaded = true;
+
+        log.info("Invoice number Bloom filters warmed for {} tenants ({} bytes)", warmed.size(), memoryBytes());
+    }
+
+    /**
+     * Rebuild one tenant's filter from the database, sized for its current count
+     */
+    private void rebuild(String tenantId) {
+        TenantFilter filter = tenantFilter(tenantId);
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM mcp_invoice.invoices WHERE tenant_id = ?", Long.class, tenantId);
+
+        BloomFilter replacement = newFilter(count != null ? count : 0);
+        // Inserts committed while the reload runs go into both filters
+        filter.startRebuild(replacement);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> 
+                    streamingJdbcTemplate.query("SELECT invoice_number FROM mcp_invoice.invoices WHERE tenant_id = ?",
+                            rs -> {
+                                replacement.put(rs.getString(1));
+                            }, tenantId));
+            filter.finishRebuild();
+            log.info("Rebuilt invoice number Bloom filter for tenant {} with capacity {}", tenantId, replacement.capacity());
+        } catch (RuntimeException e) {
+            filter.abortRebuild();
+            throw e;
+        }
+    }
+
+    private TenantFilter tenantFilter(String tenantId) {
+        // A tenant without a filter had no invoices when the filters were loaded
+        return filters.computeIfAbsent(tenantId, id -> new TenantFilter(newFilter(0)));
+    }
+
+    private BloomFilter newFilter(long invoiceCount) {
+        // Leave room to grow before the next resize
+        return new BloomFilter(Math.max(minCapacity, invoiceCount * 2), expectedFpp);
+    }
+
+    private double maxExpectedFpp() {
+        return filters.values().stream().mapToDouble(TenantFilter::expectedFpp).max().orElse(0);
+    }
+
+    private long memoryBytes() {
+        return filters.values().stream().mapToLong(TenantFilter::sizeInBytes).sum();
+    }
+
+    /**
+     * A tenant's current filter plus, while rebuilding, its replacement
+     */
+    private static final class TenantFilter {
+
+        private volatile BloomFilter current;
+        private volatile BloomFilter next;
+
+        TenantFilter(BloomFilter filter) {
+            this.current = filter;
+        }
+
+        boolean mightContain(String invoiceNumber) {
+            return current.mightContain(invoiceNumber);
+        }
+
+        void put(String invoiceNumber) {
+            current.put(invoiceNumber);
+            BloomFilter rebuilding = next;
+            if (rebuilding != null) {
+                rebuilding.put(invoiceNumber);
+            }
+        }
+
+        void startRebuild(BloomFilter replacement) {
+            next = replacement;
+        }
+
+        void finishRebuild() {
+            current = next;
+            next = null;
+        }
+
+        void abortRebuild() {
+            next = null;
+        }
+
+        boolean isSaturated() {
+            return current.insertions() > current.capacity();
+        }
+
+        double expectedFpp() {
+            return current.expectedFpp();
+        }
+
+        long sizeInBytes() {
+            BloomFilter rebuilding = next;
+            return current.sizeInBytes() + (rebuilding != null ? rebuilding.sizeInBytes() : 0);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.llmocr.mcp.invoice.duplicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One tenant's fuzzy duplicate index
+ *
+ * Candidates come from two postings chains, so a lookup touches a handful of invoices
+ * rather than the tenant's whole history:
+ * - amount buckets: log-scale buckets of width amountTolerance per currency, probed at
+ *   the invoice's bucket and both neighbours, then filtered to the date window
+ * - OCR-normalized invoice number, to catch re-submissions whose amount or date was
+ *   extracted differently
+ * Candidates are then scored on invoice number edit distance, vendor token overlap,
+ * amount closeness and date proximity.
+ *
+ * Invoices are stored column-wise in primitive arrays indexed by a dense ordinal, and
+ * each chain is linked through an int array from a head ordinal per bucket or number
+ * hash, so an invoice costs its number string, vendor token hashes and a few dozen
+ * bytes of slots. Memory use is estimated as invoices are added so the owner can
+ * enforce per-tenant and total caps.
+ */
+final class TenantDuplicateIndex {
+
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 64;
+    /** Array slots per invoice: id, amount, date, currency, number and vendor references, two chain links */
+    private static final int SLOT_BYTES = 2 * Long.BYTES + 6 * Integer.BYTES;
+    /** String header and its byte array header, excluding the characters */
+    private static final int STRING_OVERHEAD_BYTES = 40;
+    /** int[] header */
+    private static final int ARRAY_OVERHEAD_BYTES = 16;
+
+    private final double amountBucketBase;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final LongIntMap ordinals = new LongIntMap();
+    /** (currency, amount bucket) to the most recently added ordinal in it */
+    private final LongIntMap amountHeads = new LongIntMap();
+    /** Normalized number hash to the most recently added ordinal with it */
+    private final LongIntMap numberHeads = new LongIntMap();
+    private final Map<String, Integer> currencyCodes = new HashMap<>();
+    private final List<String> currencies = new ArrayList<>();
+
+    private long[] invoiceIds = new long[INITIAL_CAPACITY];
+    private long[] amountCents = new long[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private int[] currencyOf = new int[INITIAL_CAPACITY];
+    private String[] invoiceNumbers = new String[INITIAL_CAPACITY];
+    private int[][] vendorTokens = new int[INITIAL_CAPACITY][];
+    private int[] nextSameAmount = new int[INITIAL_CAPACITY];
+    private int[] nextSameNumber = new int[INITIAL_CAPACITY];
+    private int size;
+    /** Written under the write lock, read by the owner's cap checks without it */
+    private volatile long memoryBytes = (long) INITIAL_CAPACITY * SLOT_BYTES + 3L * LongIntMap.INITIAL_BYTES;
+
+    TenantDuplicateIndex(double amountTolerance) {
+        this.amountBucketBase = Math.log1p(amountTolerance);
+    }
+
+    /**
+     * Index an invoice; ignored if its id is already indexed
+     */
+    void add(InvoiceFingerprint fingerprint) {
+        lock.writeLock().lock();
+        try {
+            if (ordinals.get(fingerprint.invoiceId()) != NONE) {
+                return;
+            }
+            int ordinal = size++;
+            if (ordinal == invoiceIds.length) {
+                grow();
+            }
+            invoiceIds[ordinal] = fingerprint.invoiceId();
+            amountCents[ordinal] = fingerprint.amountCents();
+            epochDays[ordinal] = fingerprint.epochDay();
+            currencyOf[ordinal] = currencyCode(fingerprint.currency());
+            invoiceNumbers[ordinal] = fingerprint.invoiceNumber();
+            vendorTokens[ordinal] = fingerprint.vendorTokens();
+            long grown = ordinals.put(fingerprint.invoiceId(), ordinal);
+
+            long amountKey = amountKey(currencyOf[ordinal], bucketOf(fingerprint.amountCents()));
+            nextSameAmount[ordinal] = amountHeads.get(amountKey);
+            grown += amountHeads.put(amountKey, ordinal);
+
+            nextSameNumber[ordinal] = NONE;
+            if (!fingerprint.normalizedNumber().isEmpty()) {
+                long numberKey = fingerprint.normalizedNumber().hashCode();
+                nextSameNumber[ordinal] = numberHeads.get(numberKey);
+                grown += numberHeads.put(numberKey, ordinal);
+            }
+
+            memoryBytes += grown + STRING_OVERHEAD_BYTES + length(fingerprint.invoiceNumber())
+                    + ARRAY_OVERHEAD_BYTES + (long) Integer.BYTES * fingerprint.vendorTokens().length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<DuplicateMatch> findMatches(InvoiceFingerprint probe, MatchSettings settings) {
+        List<DuplicateMatch> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int[] candidates = new int[16];
+            int count = 0;
+            Integer currency = currencyCodes.get(probe.currency());
+            if (currency != null) {
+                int bucket = bucketOf(probe.amountCents());
+                for (int offset = -1; offset <= 1; offset++) {
+                    for (int o = amountHeads.get(amountKey(currency, bucket + offset)); o != NONE; o = nextSameAmount[o]) {
+                        if (withinDateWindow(probe.epochDay(), epochDays[o], settings.dateWindowDays())) {
+                            candidates = append(candidates, count++, o);
+                        }
+                    }
+                }
+            }
+            if (!probe.normalizedNumber().isEmpty()) {
+                for (int o = numberHeads.get(probe.normalizedNumber().hashCode()); o != NONE; o = nextSameNumber[o]) {
+                    candidates = append(candidates, count++, o);
+                }
+            }
+
+            // An invoice can be reached through both chains; score it once
+            Arrays.sort(candidates, 0, count);
+            for (int i = 0; i < count; i++) {
+                int candidate = candidates[i];
+                if ((i > 0 && candidates[i - 1] == candidate) || invoiceIds[candidate] == probe.invoiceId()) {
+                    continue;
+                }
+                DuplicateMatch match = score(probe, candidate, settings);
+                if (match != null) {
+                    matches.add(match);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Comparator.comparingDouble(DuplicateMatch::score).reversed());
+        return matches.size() > settings.maxMatches() ? matches.subList(0, settings.maxMatches()) : matches;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long memoryBytes() {
+        return memoryBytes;
+    }
+
+    private DuplicateMatch score(InvoiceFingerprint probe, int candidate, MatchSettings settings) {
+        // Recomputed rather than stored, so each invoice keeps a single number string
+        String candidateNumber = InvoiceFingerprint.normalizeInvoiceNumber(invoiceNumbers[candidate]);
+        double numberSimilarity = InvoiceFingerprint.invoiceNumberSimilarity(
+                probe.normalizedNumber(), candidateNumber, settings.maxNumberEditDistance());
+        double vendorSimilarity = InvoiceFingerprint.vendorSimilarity(probe.vendorTokens(), vendorTokens[candidate]);
+        boolean sameCurrency = probe.currency().equals(currencies.get(currencyOf[candidate]));
+        double amountSimilarity = sameCurrency
+                ? InvoiceFingerprint.amountSimilarity(probe.amountCents(), amountCents[candidate]) : 0;
+        int candidateDay = epochDays[candidate];
+        int daysApart = probe.epochDay() == InvoiceFingerprint.NO_DATE || candidateDay == InvoiceFingerprint.NO_DATE
+                ? Integer.MAX_VALUE : Math.abs(probe.epochDay() - candidateDay);
+        double dateSimilarity = daysApart > settings.dateWindowDays()
+                ? 0 : 1 - (double) daysApart / (settings.dateWindowDays() + 1);
+
+        double score = 0.40 * numberSimilarity
+                + 0.25 * vendorSimilarity
+                + 0.25 * amountSimilarity
+                + 0.10 * dateSimilarity;
+
+        // Same number after OCR folding from the same vendor is a re-submission regardless of amount noise
+        boolean sameNumberSameVendor = numberSimilarity == 1 && vendorSimilarity >= 0.5;
+        if (score < settings.threshold() && !sameNumberSameVendor) {
+            return null;
+        }
+        return new DuplicateMatch(invoiceIds[candidate], invoiceNumbers[candidate], Math.max(score,
+                sameNumberSameVendor ? settings.threshold() : 0),
+                numberSimilarity, vendorSimilarity, amountSimilarity, daysApart);
+    }
+
+    private static boolean withinDateWindow(int a, int b, int windowDays) {
+        if (a == InvoiceFingerprint.NO_DATE || b == InvoiceFingerprint.NO_DATE) {
+            return true;
+        }
+        return Math.abs(a - b) <= windowDays;
+    }
+
+    private int bucketOf(long cents) {
+        return cents <= 0 ? 0 : (int) Math.floor(Math.log((double) cents) / amountBucketBase);
+    }
+
+    private static long amountKey(int currency, int bucket) {
+        return ((long) currency << 32) | (bucket & 0xFFFFFFFFL);
+    }
+
+    private int currencyCode(String currency) {
+        Integer code = currencyCodes.get(currency);
+        if (code == null) {
+            code = currencies.size();
+            currencies.add(currency);
+            currencyCodes.put(currency, code);
+        }
+        return code;
+    }
+
+    private void grow() {
+        int capacity = invoiceIds.length * 2;
+        memoryBytes += (long) invoiceIds.length * SLOT_BYTES;
+        invoiceIds = Arrays.copyOf(invoiceIds, capacity);
+        amountCents = Arrays.copyOf(amountCents, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        currencyOf = Arrays.copyOf(currencyOf, capacity);
+        invoiceNumbers = Arrays.copyOf(invoiceNumbers, capacity);
+        vendorTokens = Arrays.copyOf(vendorTokens, capacity);
+        nextSameAmount = Arrays.copyOf(nextSameAmount, capacity);
+        nextSameNumber = Arrays.copyOf(nextSameNumber, capacity);
+    }
+
+    private static int[] append(int[] values, int index, int value) {
+        int[] target = index == values.length ? Arrays.copyOf(values, values.length * 2) : values;
+        target[index] = value;
+        return target;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    record MatchSettings(double threshold, int dateWindowDays, int maxNumberEditDistance, int maxMatches) {
+    }
+
+    /**
+     * Open-addressing long to int map without boxing; put replaces an existing value
+     */
+    private static final class LongIntMap {
+
+        static final int INITIAL_BYTES = 64 * (Long.BYTES + Integer.BYTES);
+
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys = newKeys(64);
+        private int[] values = new int[64];
+        private int size;
+
+        /**
+         * @return the value, or NONE if the key is absent
+         */
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                if (keys[slot] == EMPTY) {
+                    return NONE;
+                }
+            }
+        }
+
+        /**
+         * @return bytes the map grew by
+         */
+        int put(long key, int value) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    values[slot] = value;
+                    return 0;
+                }
+            }
+            int grown = 0;
+            if ((size + 1) * 4 > keys.length * 3) {
+                grown = keys.length * (Long.BYTES + Integer.BYTES);
+                rehash(keys.length * 2);
+            }
+            insert(key, value);
+            size++;
+            return grown;
+        }
+
+        private void insert(long key, int value) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(capacity);
+            values = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    insert(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +23,19 @@ public interface AuthorizedClientRepository extends JpaRepository<AuthorizedClie
      */
     List<AuthorizedClient> findByTenantIdAndIsActiveTrue(String tenantId);
 
+    /**
+     * Load all clients with their scopes in one query (client registry full refresh)
+     */
+    @Query("SELECT DISTINCT ac FROM AuthorizedClient ac LEFT JOIN FETCH ac.scopes")
+    List<AuthorizedClient> findAllWithScopes();
+
+    /**
+     * Load clients changed since the given time, including deactivated ones (client registry incremental refresh)
+     */
+    @Query("SELECT DISTINCT ac FROM AuthorizedClient ac LEFT JOIN FETCH ac.scopes " +
+           "WHERE ac.updatedAt > :since")
+    List<AuthorizedClient> findUpdatedSinceWithScopes(@Param("since") LocalDateTime since);
+
     /**
      * Check if a client has a specific scope for a tenant
      */
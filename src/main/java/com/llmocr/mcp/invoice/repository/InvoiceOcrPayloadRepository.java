@@ -0,0 +1,9 @@
+package com.llmocr.mcp.invoice.repository;
+
+import com.llmocr.mcp.invoice.domain.InvoiceOcrPayload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InvoiceOcrPayloadRepository extends JpaRepository<InvoiceOcrPayload, Long> {
+}
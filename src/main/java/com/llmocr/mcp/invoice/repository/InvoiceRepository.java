@@ -1,6 +1,8 @@
 package com.llmocr.mcp.invoice.repository;
 
 import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.dto.InvoiceSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,11 +12,14 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
+public interface InvoiceRepository extends JpaRepository<Invoice, Long>, InvoiceRepositoryCustom {
 
     // Basic tenant-aware queries
     List<Invoice> findByTenantId(String tenantId);
@@ -94,24 +99,63 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
             @Param("tenantId") String tenantId,
             @Param("processingStatus") Invoice.ProcessingStatus processingStatus);
 
-    // Search queries
-    @Query("SELECT i FROM Invoice i WHERE i.tenantId = :tenantId " +
-           "AND (LOWER(i.invoiceNumber) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(i.vendorName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
-           "OR LOWER(i.customerName) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    Page<Invoice> searchByTenantIdAndTerm(
-            @Param("tenantId") String tenantId,
-            @Param("searchTerm") String searchTerm,
-            Pageable pageable);
-
     // Recent invoices
     @Query("SELECT i FROM Invoice i WHERE i.tenantId = :tenantId " +
            "ORDER BY i.createdAt DESC")
     Page<Invoice> findRecentByTenantId(@Param("tenantId") String tenantId, Pageable pageable);
 
+    // Keyset (seek) pagination - no OFFSET and no count query, see idx_invoices_tenant_*_id
+    @Query("SELECT new com.llmocr.mcp.invoice.dto.InvoiceSummary(i.id, i.invoiceNumber, i.vendorName, " +
+           "i.customerName, i.invoiceDate, i.dueDate, i.totalAmount, i.currency, i.status, i.processingStatus, i.createdAt) " +
+           "FROM Invoice i WHERE i.tenantId = :tenantId " +
+           "ORDER BY i.createdAt DESC, i.id DESC")
+    List<InvoiceSummary> findFirstPageByCreatedAt(@Param("tenantId") String tenantId, Limit limit);
+
+    @Query("SELECT new com.llmocr.mcp.invoice.dto.InvoiceSummary(i.id, i.invoiceNumber, i.vendorName, " +
+           "i.customerName, i.invoiceDate, i.dueDate, i.totalAmount, i.currency, i.status, i.processingStatus, i.createdAt) " +
+           "FROM Invoice i WHERE i.tenantId = :tenantId " +
+           "AND (i.createdAt, i.id) < (:createdAt, :id) " +
+           "ORDER BY i.createdAt DESC, i.id DESC")
+    List<InvoiceSummary> findPageByCreatedAtAfter(
+            @Param("tenantId") String tenantId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Limit limit);
+
+    @Query("SELECT new com.llmocr.mcp.invoice.dto.InvoiceSummary(i.id, i.invoiceNumber, i.vendorName, " +
+           "i.customerName, i.invoiceDate, i.dueDate, i.totalAmount, i.currency, i.status, i.processingStatus, i.createdAt) " +
+           "FROM Invoice i WHERE i.tenantId = :tenantId " +
+           "AND i.invoiceDate >= :startDate AND i.invoiceDate <= :endDate " +
+           "ORDER BY i.invoiceDate DESC, i.id DESC")
+    List<InvoiceSummary> findFirstPageByInvoiceDate(
+            @Param("tenantId") String tenantId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Limit limit);
+
+    @Query("SELECT new com.llmocr.mcp.invoice.dto.InvoiceSummary(i.id, i.invoiceNumber, i.vendorName, " +
+           "i.customerName, i.invoiceDate, i.dueDate, i.totalAmount, i.currency, i.status, i.processingStatus, i.createdAt) " +
+           "FROM Invoice i WHERE i.tenantId = :tenantId " +
+           "AND i.invoiceDate >= :startDate AND i.invoiceDate <= :endDate " +
+           "AND (i.invoiceDate, i.id) < (:invoiceDate, :id) " +
+           "ORDER BY i.invoiceDate DESC, i.id DESC")
+    List<InvoiceSummary> findPageByInvoiceDateAfter(
+            @Param("tenantId") String tenantId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("invoiceDate") LocalDate invoiceDate,
+            @Param("id") Long id,
+            Limit limit);
+
     // Validation queries
     boolean existsByTenantIdAndInvoiceNumber(String tenantId, String invoiceNumber);
 
+    @Query("SELECT i.invoiceNumber FROM Invoice i WHERE i.tenantId = :tenantId " +
+           "AND i.invoiceNumber IN :invoiceNumbers")
+    Set<String> findExistingInvoiceNumbers(
+            @Param("tenantId") String tenantId,
+            @Param("invoiceNumbers") Collection<String> invoiceNumbers);
+
     @Query("SELECT CASE WHEN COUNT(i) > 0 THEN true ELSE false END " +
            "FROM Invoice i WHERE i.tenantId = :tenantId " +
            "AND i.invoiceNumber = :invoiceNumber " +
@@ -0,0 +1,23 @@
+package com.llmocr.mcp.invoice.repository;
+
+import com.llmocr.mcp.invoice.domain.Invoice;
+
+import java.util.Optional;
+
+/**
+ * Invoice persistence operations that need native SQL
+ */
+public interface InvoiceRepositoryCustom {
+
+    /**
+     * Insert the invoice (and its line items) unless the tenant already has an invoice
+     * with the same number
+     * 
+     * Uses INSERT ... ON CONFLICT (tenant_id, invoice_number) DO NOTHING, so the check
+     * and the insert are one atomic statement and concurrent duplicates never raise a
+     * constraint violation. On success the invoice's id is set.
+     * 
+     * @return the new invoice id, or empty if the invoice number already exists
+     */
+    Optional<Long> insertIfAbsent(Invoice invoice);
+}
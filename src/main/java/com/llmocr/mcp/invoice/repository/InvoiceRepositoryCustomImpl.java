@@ -0,0 +1,114 @@
+package com.llmocr.mcp.invoice.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.domain.InvoiceLineItem;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Native SQL implementation of InvoiceRepositoryCustom
+ * 
+ * The header row is inserted natively and takes its id from the column default, i.e.
+ * one nextval of its own. Line items are persisted through JPA against a reference to
+ * it; their ids come from the pooled-lo optimizer (one nextval per 50 items), so they
+ * go out in one JDBC batch.
+ */
+public class InvoiceRepositoryCustomImpl implements InvoiceRepositoryCustom {
+
+    private static final String INSERT_IF_ABSENT_SQL = "INSERT INTO mcp_invoice.invoices " +
+            "(tenant_id, invoice_number, vendor_name, vendor_address, vendor_tax_id, customer_name, customer_address, " +
+            "invoice_date, due_date, subtotal_amount, tax_amount, total_amount, currency, payment_terms, description, " +
+            "status, processing_status, source_file_path, source_file_name, source_file_type, " +
+            "confidence_score, validation_errors, metadata, created_at, updated_at, created_by) " +
+            "VALUES (:tenantId, :invoiceNumber, :vendorName, :vendorAddress, :vendorTaxId, :customerName, :customerAddress, " +
+            ":invoiceDate, :dueDate, :subtotalAmount, :taxAmount, :totalAmount, :currency, :paymentTerms, :description, " +
+            ":status, :processingStatus, :sourceFilePath, :sourceFileName, :sourceFileType, " +
+            ":confidenceScore, CAST(:validationErrors AS jsonb), CAST(:metadata AS jsonb), :createdAt, :updatedAt, :createdBy) " +
+            "ON CONFLICT (tenant_id, invoice_number) DO NOTHING " +
+            "RETURNING id";
+
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public InvoiceRepositoryCustomImpl(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Optional<Long> insertIfAbsent(Invoice invoice) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // Nullable dates and amounts are bound with explicit types so nulls reach Postgres as the column type
+        @SuppressWarnings("unchecked")
+        List<Number> ids = entityManager.createNativeQuery(INSERT_IF_ABSENT_SQL)
+                .unwrap(NativeQuery.class)
+                .setParameter("tenantId", invoice.getTenantId())
+                .setParameter("invoiceNumber", invoice.getInvoiceNumber())
+                .setParameter("vendorName", invoice.getVendorName())
+                .setParameter("vendorAddress", invoice.getVendorAddress())
+                .setParameter("vendorTaxId", invoice.getVendorTaxId())
+                .setParameter("customerName", invoice.getCustomerName())
+                .setParameter("customerAddress", invoice.getCustomerAddress())
+                .setParameter("invoiceDate", invoice.getInvoiceDate(), StandardBasicTypes.LOCAL_DATE)
+                .setParameter("dueDate", invoice.getDueDate(), StandardBasicTypes.LOCAL_DATE)
+                .setParameter("subtotalAmount", invoice.getSubtotalAmount(), StandardBasicTypes.BIG_DECIMAL)
+                .setParameter("taxAmount", invoice.getTaxAmount(), StandardBasicTypes.BIG_DECIMAL)
+                .setParameter("totalAmount", invoice.getTotalAmount(), StandardBasicTypes.BIG_DECIMAL)
+                .setParameter("currency", invoice.getCurrency())
+                .setParameter("paymentTerms", invoice.getPaymentTerms())
+                .setParameter("description", invoice.getDescription())
+                .setParameter("status", invoice.getStatus().name())
+                .setParameter("processingStatus", invoice.getProcessingStatus().name())
+                .setParameter("sourceFilePath", invoice.getSourceFilePath())
+                .setParameter("sourceFileName", invoice.getSourceFileName())
+                .setParameter("sourceFileType", invoice.getSourceFileType())
+                .setParameter("confidenceScore", invoice.getConfidenceScore(), StandardBasicTypes.BIG_DECIMAL)
+                .setParameter("validationErrors", toJson(invoice.getValidationErrors()), StandardBasicTypes.STRING)
+                .setParameter("metadata", toJson(invoice.getMetadata()), StandardBasicTypes.STRING)
+                .setParameter("createdAt", now)
+                .setParameter("updatedAt", now)
+                .setParameter("createdBy", invoice.getCreatedBy())
+                .getResultList();
+
+        if (ids.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Long id = ids.get(0).longValue();
+        invoice.setId(id);
+        invoice.setCreatedAt(now);
+        invoice.setUpdatedAt(now);
+
+        if (!invoice.getLineItems().isEmpty()) {
+            Invoice reference = entityManager.getReference(Invoice.class, id);
+            for (InvoiceLineItem lineItem : invoice.getLineItems()) {
+                lineItem.setInvoice(reference);
+                entityManager.persist(lineItem);
+            }
+        }
+
+        return Optional.of(id);
+    }
+
+    private String toJson(Map<String, Object> value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invoice JSON field cannot be serialized: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.llmocr.mcp.invoice.search;
+
+import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.domain.InvoicesPersistedEvent;
+import com.llmocr.mcp.invoice.dto.InvoiceSearchHit;
+import com.llmocr.mcp.invoice.dto.InvoiceSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * In-process invoice search for chatty tenants
+ * 
+ * Holds a TenantInvertedIndex per tenant (tokens of invoice number, vendor, customer and
+ * description) so searchInvoices can be answered without touching Postgres. Indexes are
+ * built from invoices at startup, most recently active tenants first, and kept current
+ * like the other in-memory invoice indexes: InvoicesPersistedEvent on commit plus a
+ * created_at poll for other replicas' inserts.
+ * 
+ * Memory is bounded twice:
+ * - a tenant whose index outgrows max-tenant-memory is unloaded and left to Postgres
+ * - when all indexes together exceed max-total-memory, the least recently searched
+ *   tenants are unloaded; their next search falls back to Postgres and reloads them in
+ *   the background
+ * 
+ * Matching is whole-token AND over number, vendor, customer and description, so it is an
+ * accelerator for the common lookups rather than a replacement for InvoiceSearchService.
+ * Anything it would answer differently goes to Postgres: queries using the full-text
+ * syntax (quoted phrases, -exclusions, or) and queries with no in-memory match, which
+ * may still match OCR text or a fragment of an invoice number or name there.
+ */
+@Component
+@Slf4j
+public class InMemoryInvoiceSearchIndex {
+
+    private static final int FETCH_SIZE = 10_000;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final String INDEX_COLUMNS = "id, tenant_id, invoice_number, vendor_name, customer_name, " +
+            "invoice_date, due_date, total_amount, currency, status, processing_status, created_at, description";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService loader;
+
+    /** Access-ordered, so iteration starts at the least recently searched tenant */
+    private final LinkedHashMap<String, TenantInvertedIndex> indexes = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+    private final Set<String> oversized = ConcurrentHashMap.newKeySet();
+
+    private final Counter servedCounter;
+    private final Counter fallbackCounter;
+    private final Counter unloadedCounter;
+
+    @Value("${invoice.search.memory-index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${invoice.search.memory-index.max-tenant-memory:64MB}")
+    private DataSize maxTenantMemory;
+
+    @Value("${invoice.search.memory-index.max-total-memory:512MB}")
+    private DataSize maxTotalMemory;
+
+    @Value("${invoice.search.memory-index.refresh-overlap:2m}")
+    private Duration refreshOverlap;
+
+    private volatile LocalDateTime watermark;
+
+    public InMemoryInvoiceSearchIndex(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invoice-search-index-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.servedCounter = searches(meterRegistry, "memory");
+        this.fallbackCounter = searches(meterRegistry, "database");
+        this.unloadedCounter = Counter.builder("mcp.invoice.search.memory.unloaded")
+                .description("Tenant search indexes unloaded to stay within memory caps")
+                .register(meterRegistry);
+        Gauge.builder("mcp.invoice.search.memory.bytes", this, InMemoryInvoiceSearchIndex::totalMemoryBytes)
+                .description("Estimated memory held by in-memory search indexes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("mcp.invoice.search.memory.tenants", this, index -> index.loadedTenants().size())
+                .description("Tenants with an in-memory search index")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        watermark = LocalDateTime.now();
+        loader.execute(this::preload);
+    }
+
+    /**
+     * Search the tenant's in-memory index
+     *
+     * @return the hits, or empty if the caller should query Postgres instead: the tenant
+     *         is not (yet) indexed (a background load is started), the query uses syntax
+     *         the index does not implement, or nothing matched in memory
+     */
+    public Optional<List<InvoiceSearchHit>> search(String tenantId, String query, int limit) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        TenantInvertedIndex index;
+        synchronized (indexes) {
+            index = indexes.get(tenantId);
+        }
+        if (index == null) {
+            fallbackCounter.increment();
+            scheduleLoad(tenantId);
+            return Optional.empty();
+        }
+        if (!isPlainQuery(query)) {
+            fallbackCounter.increment();
+            return Optional.empty();
+        }
+        List<InvoiceSearchHit> hits = index.search(query, limit);
+        if (hits.isEmpty()) {
+            // Postgres also matches OCR text and substrings of numbers and names
+            fallbackCounter.increment();
+            return Optional.empty();
+        }
+        servedCounter.increment();
+        return Optional.of(hits);
+    }
+
+    /**
+     * Whether the query is plain words, without the websearch_to_tsquery operators
+     * (quoted phrases, -exclusions, or) that only the Postgres search implements
+     */
+    static boolean isPlainQuery(String query) {
+        if (query == null || query.indexOf('"') >= 0) {
+            return false;
+        }
+        for (String word : WHITESPACE.split(query.trim())) {
+            if (word.startsWith("-") || word.equalsIgnoreCase("or")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInvoicesPersisted(InvoicesPersistedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.bulkLoad()) {
+            // Cheaper to rebuild than to replay a large merge through the event
+            unload(event.tenantId(), "bulk load");
+            scheduleLoad(event.tenantId());
+            return;
+        }
+        TenantInvertedIndex index;
+        synchronized (indexes) {
+            index = indexes.get(event.tenantId());
+        }
+        if (index != null) {
+            for (Invoice invoice : event.invoices()) {
+                if (invoice.getId() != null) {
+                    index.add(summary(invoice), invoice.getDescription());
+                }
+            }
+            enforceCaps(event.tenantId(), index);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${invoice.search.memory-index.refresh-interval-ms:60000}",
+               initialDelayString = "${invoice.search.memory-index.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!enabled || watermark == null) {
+            return;
+        }
+        try {
+            // Pick up invoices inserted by other replicas; indexes ignore ids they already hold
+            LocalDateTime pollStart = LocalDateTime.now();
+            Map<String, TenantInvertedIndex> touched = new LinkedHashMap<>();
+            jdbcTemplate.query("SELECT " + INDEX_COLUMNS + " FROM mcp_invoice.invoices WHERE created_at >= ?", rs -> {
+                String tenantId = rs.getString("tenant_id");
+                if (!touched.containsKey(tenantId)) {
+                    touched.put(tenantId, peek(tenantId));
+                }
+                TenantInvertedIndex index = touched.get(tenantId);
+                if (index != null) {
+                    index.add(summary(rs), rs.getString("description"));
+                }
+            }, Timestamp.valueOf(watermark.minus(refreshOverlap)));
+            watermark = pollStart;
+            touched.forEach((tenantId, index) -> {
+                if (index != null) {
+                    enforceCaps(tenantId, index);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to refresh in-memory search indexes: {}", e.getMessage(), e);
+        }
+    }
+
+    private void preload() {
+        try {
+            // Most recently written tenants first, until the memory budget is used
+            List<String> tenantIds = jdbcTemplate.queryForList(
+                    "SELECT tenant_id FROM mcp_invoice.tenant_invoice_stats " +
+                    "GROUP BY tenant_id ORDER BY MAX(updated_at) DESC", String.class);
+            for (String tenantId : tenantIds) {
+                if (totalMemoryBytes() >= maxTotalMemory.toBytes() * 9 / 10) {
+                    break;
+                }
+                load(tenantId);
+            }
+            log.info("In-memory search indexes preloaded for {} tenants ({} MB)", 
+                    loadedTenants().size(), totalMemoryBytes() / (1024 * 1024));
+        } catch (Exception e) {
+            log.error("Failed to preload in-memory search indexes: {}", e.getMessage(), e);
+        }
+    }
+
+    private void scheduleLoad(String tenantId) {
+        if (!oversized.contains(tenantId) && loading.add(tenantId)) {
+            loader.execute(() -> {
+                try {
+                    load(tenantId);
+                } catch (Exception e) {
+                    log.error("Failed to load in-memory search index for tenant {}: {}", tenantId, e.getMessage(), e);
+                } finally {
+                    loading.remove(tenantId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Build the tenant's index now, on the calling thread
+     */
+    void load(String tenantId) {
+        if (oversized.contains(tenantId)) {
+            return;
+        }
+        LocalDateTime loadStart = LocalDateTime.now();
+        TenantInvertedIndex index = new TenantInvertedIndex();
+        long maxBytes = maxTenantMemory.toBytes();
+
+        Boolean complete = readOnlyTransaction.execute(status -> {
+            boolean[] fits = {true};
+            streamingJdbcTemplate.query("SELECT " + INDEX_COLUMNS + " FROM mcp_invoice.invoices WHERE tenant_id = ?",
+                    (RowCallbackHandler) rs -> {
+                        if (fits[0]) {
+                            index.add(summary(rs), rs.getString("description"));
+                            fits[0] = index.memoryBytes() <= maxBytes;
+                        }
+                    }, tenantId);
+            return fits[0];
+        });
+        if (!Boolean.TRUE.equals(complete)) {
+            oversized.add(tenantId);
+            log.warn("In-memory search index for tenant {} exceeds {}, searches stay on Postgres", tenantId, maxTenantMemory);
+            return;
+        }
+
+        // Catch up on invoices committed while loading; they may have missed the event
+        jdbcTemplate.query("SELECT " + INDEX_COLUMNS + " FROM mcp_invoice.invoices WHERE tenant_id = ? AND created_at >= ?",
+                (RowCallbackHandler) rs -> index.add(summary(rs), rs.getString("description")),
+                tenantId, Timestamp.valueOf(loadStart.minus(refreshOverlap)));
+        index.trim();
+
+        synchronized (indexes) {
+            indexes.put(tenantId, index);
+        }
+        log.info("In-memory search index loaded for tenant {} ({} invoices, {} KB)", 
+                tenantId, index.size(), index.memoryBytes() / 1024);
+        enforceCaps(tenantId, index);
+    }
+
+    /**
+     * Unload the tenant if it outgrew its cap, then the least recently searched tenants
+     * until the total is back under max-total-memory
+     */
+    private void enforceCaps(String tenantId, TenantInvertedIndex index) {
+        if (index.memoryBytes() > maxTenantMemory.toBytes()) {
+            oversized.add(tenantId);
+            unload(tenantId, "over tenant cap " + maxTenantMemory);
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (indexes) {
+            long total = indexes.values().stream().mapToLong(TenantInvertedIndex::memoryBytes).sum();
+            var eldest = indexes.entrySet().iterator();
+            while (total > maxTotalMemory.toBytes() && indexes.size() > 1 && eldest.hasNext()) {
+                var entry = eldest.next();
+                total -= entry.getValue().memoryBytes();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        for (String evictedTenant : evicted) {
+            unloadedCounter.increment();
+            log.info("Unloaded cold in-memory search index for tenant {} (total over {})", evictedTenant, maxTotalMemory);
+        }
+    }
+
+    private void unload(String tenantId, String reason) {
+        TenantInvertedIndex removed;
+        synchronized (indexes) {
+            removed = indexes.remove(tenantId);
+        }
+        if (removed != null) {
+            unloadedCounter.increment();
+            log.info("Unloaded in-memory search index for tenant {} ({})", tenantId, reason);
+        }
+    }
+
+    /**
+     * Look up without counting as a search, so polling does not keep cold tenants warm
+     */
+    private TenantInvertedIndex peek(String tenantId) {
+        synchronized (indexes) {
+            for (Map.Entry<String, TenantInvertedIndex> entry : indexes.entrySet()) {
+                if (entry.getKey().equals(tenantId)) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+    }
+
+    private List<String> loadedTenants() {
+        synchronized (indexes) {
+            return new ArrayList<>(indexes.keySet());
+        }
+    }
+
+    private long totalMemoryBytes() {
+        synchronized (indexes) {
+            return indexes.values().stream().mapToLong(TenantInvertedIndex::memoryBytes).sum();
+        }
+    }
+
+    private static InvoiceSummary summary(Invoice invoice) {
+        return new InvoiceSummary(invoice.getId(), invoice.getInvoiceNumber(), invoice.getVendorName(),
+                invoice.getCustomerName(), invoice.getInvoiceDate(), invoice.getDueDate(), invoice.getTotalAmount(),
+                invoice.getCurrency(), invoice.getStatus(), invoice.getProcessingStatus(), invoice.getCreatedAt());
+    }
+
+    private static InvoiceSummary summary(ResultSet rs) throws SQLException {
+        return new InvoiceSummary(
+                rs.getLong("id"),
+                rs.getString("invoice_number"),
+                rs.getString("vendor_name"),
+                rs.getString("customer_name"),
+                rs.getObject("invoice_date", LocalDate.class),
+                rs.getObject("due_date", LocalDate.class),
+                rs.getBigDecimal("total_amount"),
+                rs.getString("currency"),
+                Invoice.InvoiceStatus.valueOf(rs.getString("status")),
+                Invoice.ProcessingStatus.valueOf(rs.getString("processing_status")),
+                rs.getObject("created_at", LocalDateTime.class));
+    }
+
+    private static Counter searches(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("mcp.invoice.search.requests")
+                .description("Invoice searches by where they were answered")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+}
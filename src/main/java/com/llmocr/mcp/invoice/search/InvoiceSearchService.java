@@ -0,0 +1,122 @@
+package com.llmocr.mcp.invoice.search;
+
+import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.dto.InvoiceSearchHit;
+import com.llmocr.mcp.invoice.dto.InvoiceSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Invoice Search Service
+ * 
+ * Ranked free-text search over a tenant's invoices, replacing LOWER(col) LIKE '%term%'
+ * scans. Two index-backed match paths are combined (see changelogs 00019 and 00020):
+ * - full text: the generated search_vectors on invoices (number, vendor, customer,
+ *   description) and invoice_ocr_payloads (OCR text) matched with websearch_to_tsquery,
+ *   so "acme -credit" or quoted phrases work
+ * - substring: ILIKE '%term%' on invoice number, vendor and customer via pg_trgm, which
+ *   finds partial invoice numbers and name fragments the tokenizer would not
+ * 
+ * Each match path is a separate tenant-leading GIN index scan (btree_gin) whose ids are
+ * unioned, so cost follows the number of matches rather than the size of the tenant.
+ * An exact invoice number match always ranks first; the rest are ordered by the better
+ * of the normalised full-text rank and the trigram similarity of the matched column.
+ */
+@Service
+@Slf4j
+public class InvoiceSearchService {
+
+    /** pg_trgm needs at least one full trigram; shorter terms would fall back to a scan */
+    static final int MIN_SUBSTRING_LENGTH = 3;
+
+    private static final String QUERY = """
+            WITH q AS (SELECT websearch_to_tsquery('simple', ?) AS query, ?::text AS term),
+            matches AS (
+                SELECT i.id FROM mcp_invoice.invoices i, q
+                WHERE i.tenant_id = ? AND i.search_vector @@ q.query
+                UNION
+                SELECT p.invoice_id FROM mcp_invoice.invoice_ocr_payloads p, q
+                WHERE p.tenant_id = ? AND p.search_vector @@ q.query
+            """;
+
+    private static final String SUBSTRING_MATCHES = """
+                UNION
+                SELECT i.id FROM mcp_invoice.invoices i
+                WHERE i.tenant_id = ?
+                  AND (i.invoice_number ILIKE ? OR i.vendor_name ILIKE ? OR i.customer_name ILIKE ?)
+            """;
+
+    private static final String RANKED = """
+            )
+            SELECT i.id, i.invoice_number, i.vendor_name, i.customer_name, i.invoice_date, i.due_date,
+                   i.total_amount, i.currency, i.status, i.processing_status, i.created_at,
+                   GREATEST(ts_rank_cd(i.search_vector || coalesce(p.search_vector, ''::tsvector), q.query, 32),
+                            similarity(i.invoice_number, q.term),
+                            word_similarity(q.term, i.vendor_name),
+                            word_similarity(q.term, coalesce(i.customer_name, ''))) AS score
+            FROM matches m
+            JOIN mcp_invoice.invoices i ON i.id = m.id
+            LEFT JOIN mcp_invoice.invoice_ocr_payloads p ON p.invoice_id = m.id
+            CROSS JOIN q
+            WHERE i.tenant_id = ?
+            ORDER BY lower(i.invoice_number) = lower(q.term) DESC, score DESC, i.id DESC
+            LIMIT ?
+            """;
+
+    private static final String FULL_TEXT_SQL = QUERY + RANKED;
+
+    private static final String FULL_TEXT_OR_SUBSTRING_SQL = QUERY + SUBSTRING_MATCHES + RANKED;
+
+    private static final RowMapper<InvoiceSearchHit> ROW_MAPPER = (rs, rowNum) -> new InvoiceSearchHit(
+            new InvoiceSummary(
+                    rs.getLong("id"),
+                    rs.getString("invoice_number"),
+                    rs.getString("vendor_name"),
+                    rs.getString("customer_name"),
+                    rs.getObject("invoice_date", LocalDate.class),
+                    rs.getObject("due_date", LocalDate.class),
+                    rs.getBigDecimal("total_amount"),
+                    rs.getString("currency"),
+                    Invoice.InvoiceStatus.valueOf(rs.getString("status")),
+                    Invoice.ProcessingStatus.valueOf(rs.getString("processing_status")),
+                    rs.getObject("created_at", LocalDateTime.class)),
+            rs.getDouble("score"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InvoiceSearchService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Search the tenant's invoices, best matches first
+     */
+    public List<InvoiceSearchHit> search(String tenantId, String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        String term = query.trim();
+
+        List<InvoiceSearchHit> hits;
+        if (term.length() < MIN_SUBSTRING_LENGTH) {
+            hits = jdbcTemplate.query(FULL_TEXT_SQL, ROW_MAPPER, term, term, tenantId, tenantId, tenantId, limit);
+        } else {
+            String pattern = "%" + escapeLike(term) + "%";
+            hits = jdbcTemplate.query(FULL_TEXT_OR_SUBSTRING_SQL, ROW_MAPPER, 
+                    term, term, tenantId, tenantId, tenantId, pattern, pattern, pattern, tenantId, limit);
+        }
+
+        log.debug("Invoice search for tenant {} matched {} invoices", tenantId, hits.size());
+        return hits;
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,84 @@
+package com.llmocr.mcp.invoice.search;
+
+import java.util.Arrays;
+
+/**
+ * Append-only list of ascending document ordinals, stored as varint-encoded deltas
+ *
+ * Ordinals are assigned in insertion order, so appends are always ascending and most
+ * deltas fit in one or two bytes. Not thread-safe; guarded by TenantInvertedIndex.
+ */
+final class PostingList {
+
+    /** Object header, fields and array header */
+    static final int OVERHEAD_BYTES = 48;
+
+    private byte[] data = new byte[4];
+    private int length;
+    private int count;
+    private int lastDoc = -1;
+
+    /**
+     * @return bytes the list grew by
+     */
+    int add(int doc) {
+        if (doc <= lastDoc) {
+            throw new IllegalArgumentException("Postings must be appended in ascending order");
+        }
+        int before = data.length;
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        }
+
+        int delta = lastDoc < 0 ? doc : doc - lastDoc;
+        while ((delta & ~0x7F) != 0) {
+            data[length++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        data[length++] = (byte) delta;
+
+        lastDoc = doc;
+        count++;
+        return data.length - before;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int[] decode() {
+        int[] docs = new int[count];
+        int position = 0;
+        int doc = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc = i == 0 ? delta : doc + delta;
+            docs[i] = doc;
+        }
+        return docs;
+    }
+
+    /**
+     * Release spare capacity, after a bulk load
+     *
+     * @return bytes released
+     */
+    int trim() {
+        int released = data.length - length;
+        if (released > 0) {
+            data = Arrays.copyOf(data, length);
+        }
+        return released;
+    }
+
+    long memoryBytes() {
+        return OVERHEAD_BYTES + data.length;
+    }
+}
@@ -0,0 +1,327 @@
+package com.llmocr.mcp.invoice.search;
+
+import com.llmocr.mcp.invoice.dto.InvoiceSearchHit;
+import com.llmocr.mcp.invoice.dto.InvoiceSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One tenant's in-memory inverted index
+ *
+ * Each invoice gets a dense int ordinal; terms are prefixed with the field they came
+ * from and map to a delta+varint PostingList of ordinals. The invoice summaries are
+ * kept alongside so results need no database round trip. Memory use is estimated as
+ * entries are added so the owner can enforce per-tenant and total caps.
+ */
+final class TenantInvertedIndex {
+
+    enum Field {
+        NUMBER('n', 1.0f), VENDOR('v', 0.8f), CUSTOMER('c', 0.6f), DESCRIPTION('d', 0.3f);
+
+        final char prefix;
+        final float weight;
+
+        Field(char prefix, float weight) {
+            this.prefix = prefix;
+            this.weight = weight;
+        }
+    }
+
+    /** HashMap entry, key String and its char array, excluding the characters */
+    private static final int TERM_OVERHEAD_BYTES = 96;
+    /** Summary record, its references and boxed values, excluding string characters */
+    private static final int DOCUMENT_OVERHEAD_BYTES = 260;
+
+    /** Worst hit first: lower score, then older (smaller) invoice id */
+    private static final Comparator<InvoiceSearchHit> BEST_LAST = Comparator
+            .comparingDouble(InvoiceSearchHit::score)
+            .thenComparingLong(hit -> hit.invoice().id());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final LongIntMap ordinals = new LongIntMap();
+    private InvoiceSummary[] documents = new InvoiceSummary[64];
+    private String[] compactNumbers = new String[64];
+    private int size;
+    /** Written under the write lock, read by the owner's cap checks without it */
+    private volatile long memoryBytes = 64L * (Long.BYTES + Integer.BYTES) + 64L * 2 * Integer.BYTES;
+
+    /**
+     * Index an invoice; ignored if its id is already indexed
+     */
+    void add(InvoiceSummary invoice, String description) {
+        lock.writeLock().lock();
+        try {
+            if (ordinals.get(invoice.id()) >= 0) {
+                return;
+            }
+            int doc = size++;
+            if (doc == documents.length) {
+                memoryBytes += (long) documents.length * 2 * Integer.BYTES;
+                documents = Arrays.copyOf(documents, documents.length * 2);
+                compactNumbers = Arrays.copyOf(compactNumbers, compactNumbers.length * 2);
+            }
+            documents[doc] = invoice;
+            compactNumbers[doc] = InvoiceTokenizer.compact(invoice.invoiceNumber());
+            memoryBytes += ordinals.put(invoice.id(), doc);
+            memoryBytes += DOCUMENT_OVERHEAD_BYTES + 2L * (length(invoice.invoiceNumber()) + length(invoice.vendorName())
+                    + length(invoice.customerName()) + compactNumbers[doc].length());
+
+            Set<String> numberTokens = InvoiceTokenizer.tokens(invoice.invoiceNumber());
+            numberTokens.add(compactNumbers[doc]);
+            index(Field.NUMBER, numberTokens, doc);
+            index(Field.VENDOR, InvoiceTokenizer.tokens(invoice.vendorName()), doc);
+            index(Field.CUSTOMER, InvoiceTokenizer.tokens(invoice.customerName()), doc);
+            index(Field.DESCRIPTION, InvoiceTokenizer.tokens(description), doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Field field, Set<String> tokens, int doc) {
+        for (String token : tokens) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            String term = field.prefix + token;
+            PostingList list = postings.get(term);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(term, list);
+                memoryBytes += TERM_OVERHEAD_BYTES + 2L * term.length() + list.memoryBytes();
+            }
+            memoryBytes += list.add(doc);
+        }
+    }
+
+    /**
+     * Release spare posting capacity after a bulk load
+     */
+    void trim() {
+        lock.writeLock().lock();
+        try {
+            for (PostingList list : postings.values()) {
+                memoryBytes -= list.trim();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Invoices containing every query token in some field, best first
+     *
+     * A token scores the weight of the best field it appears in; the invoice's score is
+     * the mean over tokens. An invoice whose number equals the whole query scores 1.
+     */
+    List<InvoiceSearchHit> search(String query, int limit) {
+        Set<String> tokens = InvoiceTokenizer.tokens(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        String compactQuery = InvoiceTokenizer.compact(query);
+
+        lock.readLock().lock();
+        try {
+            // Rarest token first, so the candidate set shrinks as early as possible
+            List<String> ordered = new ArrayList<>(tokens);
+            ordered.sort(Comparator.comparingInt(this::postingCount));
+
+            ScoredDocs matches = null;
+            for (String token : ordered) {
+                ScoredDocs tokenDocs = union(token);
+                matches = matches == null ? tokenDocs : matches.intersect(tokenDocs);
+                if (matches.size == 0) {
+                    return List.of();
+                }
+            }
+
+            // Keep only the best 'limit' hits: min-heap on (score, ordinal)
+            PriorityQueue<InvoiceSearchHit> best = new PriorityQueue<>(limit + 1, BEST_LAST);
+            for (int i = 0; i < matches.size; i++) {
+                int doc = matches.docs[i];
+                double score = compactNumbers[doc].equals(compactQuery) ? 1.0 : matches.scores[i] / tokens.size();
+                if (best.size() < limit || score > best.peek().score()) {
+                    best.add(new InvoiceSearchHit(documents[doc], score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            List<InvoiceSearchHit> hits = new ArrayList<>(best);
+            hits.sort(BEST_LAST.reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int postingCount(String token) {
+        int count = 0;
+        for (Field field : Field.values()) {
+            PostingList list = postings.get(field.prefix + token);
+            if (list != null) {
+                count += list.count();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Ordinals containing the token in any field, each with its best field weight
+     */
+    private ScoredDocs union(String token) {
+        ScoredDocs result = new ScoredDocs(new int[0], new float[0], 0);
+        for (Field field : Field.values()) {
+            PostingList list = postings.get(field.prefix + token);
+            if (list != null) {
+                result = result.union(list.decode(), field.weight);
+            }
+        }
+        return result;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long memoryBytes() {
+        return memoryBytes;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * Sorted ordinals with a running score each
+     */
+    private record ScoredDocs(int[] docs, float[] scores, int size) {
+
+        ScoredDocs union(int[] other, float weight) {
+            int[] docs = new int[size + other.length];
+            float[] scores = new float[docs.length];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < size || j < other.length) {
+                if (j == other.length || (i < size && this.docs[i] < other[j])) {
+                    docs[n] = this.docs[i];
+                    scores[n++] = this.scores[i++];
+                } else if (i == size || other[j] < this.docs[i]) {
+                    docs[n] = other[j++];
+                    scores[n++] = weight;
+                } else {
+                    docs[n] = this.docs[i];
+                    scores[n++] = Math.max(this.scores[i++], weight);
+                    j++;
+                }
+            }
+            return new ScoredDocs(docs, scores, n);
+        }
+
+        ScoredDocs intersect(ScoredDocs other) {
+            int[] docs = new int[Math.min(size, other.size)];
+            float[] scores = new float[docs.length];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < size && j < other.size) {
+                if (this.docs[i] < other.docs[j]) {
+                    i++;
+                } else if (other.docs[j] < this.docs[i]) {
+                    j++;
+                } else {
+                    docs[n] = this.docs[i];
+                    scores[n++] = this.scores[i++] + other.scores[j++];
+                }
+            }
+            return new ScoredDocs(docs, scores, n);
+        }
+    }
+
+    /**
+     * Open-addressing long to int map for invoice id to ordinal, without boxing
+     */
+    private static final class LongIntMap {
+
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys = newKeys(64);
+        private int[] values = new int[64];
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                if (keys[slot] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * @return bytes the map grew by
+         */
+        int put(long key, int value) {
+            int grown = 0;
+            if ((size + 1) * 4 > keys.length * 3) {
+                grown = keys.length * (Long.BYTES + Integer.BYTES);
+                rehash(keys.length * 2);
+            }
+            insert(key, value);
+            size++;
+            return grown;
+        }
+
+        private void insert(long key, int value) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(capacity);
+            values = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    insert(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.llmocr.mcp.invoice.security;
+
+import com.llmocr.mcp.invoice.domain.AuthorizedClient;
+import com.llmocr.mcp.invoice.repository.AuthorizedClientRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory registry of active authorized clients
+ * 
+ * Holds every active authorized_clients row (with its scopes) indexed by tenant and
+ * client ID so the authentication path does no database queries in steady state.
+ * Loaded at startup, refreshed incrementally by polling updated_at, and fully
+ * reloaded periodically to pick up deleted rows and scope changes (client_scopes
+ * has no updated_at column).
+ * 
+ * Until the first load completes, lookups fall through to the database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AuthorizedClientRegistry {
+
+    // Re-read a small window before the watermark so rows committed late with an older updated_at are not missed
+    private static final Duration WATERMARK_OVERLAP = Duration.ofSeconds(10);
+
+    private final AuthorizedClientRepository authorizedClientRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${security.mcp.client-registry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.mcp.client-registry.full-refresh-interval:5m}")
+    private Duration fullRefreshInterval;
+
+    private volatile Map<ClientKey, AuthorizedClient> clients = Map.of();
+    private volatile boolean loaded;
+    private volatile LocalDateTime watermark;
+    private volatile Instant lastFullRefresh = Instant.EPOCH;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        Gauge.builder("mcp.authorized.clients.cached", this, registry -> registry.clients.size())
+                .description("Active authorized clients held in the in-memory registry")
+                .register(meterRegistry);
+
+        if (enabled) {
+            fullRefresh();
+        }
+    }
+
+    /**
+     * Find an active authorized client by tenant and client ID
+     */
+    public AuthorizedClient find(String tenantId, String clientId) {
+        if (tenantId == null || clientId == null) {
+            return null;
+        }
+
+        if (!enabled || !loaded) {
+            return authorizedClientRepository
+                    .findByTenantIdAndClientIdAndIsActiveTrue(tenantId, clientId)
+                    .orElse(null);
+        }
+
+        return clients.get(new ClientKey(tenantId, clientId));
+    }
+
+    @Scheduled(fixedDelayString = "${security.mcp.client-registry.refresh-interval-ms:30000}",
+               initialDelayString = "${security.mcp.client-registry.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            if (!loaded || lastFullRefresh.plus(fullRefreshInterval).isBefore(Instant.now())) {
+                fullRefresh();
+            } else {
+                incrementalRefresh();
+            }
+        } catch (Exception e) {
+            // Keep serving the current snapshot; the next poll retries
+            log.error("Failed to refresh authorized client registry: {}", e.getMessage(), e);
+        }
+    }
+
+    private void fullRefresh() {
+        List<AuthorizedClient> all = authorizedClientRepository.findAllWithScopes();
+
+        Map<ClientKey, AuthorizedClient> snapshot = new HashMap<>();
+        LocalDateTime newWatermark = null;
+        for (AuthorizedClient client : all) {
+            if (Boolean.TRUE.equals(client.getIsActive())) {
+                snapshot.put(ClientKey.of(client), client);
+            }
+            newWatermark = later(newWatermark, client.getUpdatedAt());
+        }
+
+        clients = Map.copyOf(snapshot);
+        watermark = newWatermark;
+        lastFullRefresh = Instant.now();
+        loaded = true;
+
+        log.info("Authorized client registry loaded with {} active clients", snapshot.size());
+    }
+
+    private void incrementalRefresh() {
+        if (watermark == null) {
+            // Table was empty at the last load - nothing to compare against
+            fullRefresh();
+            return;
+        }
+
+        List<AuthorizedClient> changed = authorizedClientRepository
+                .findUpdatedSinceWithScopes(watermark.minus(WATERMARK_OVERLAP));
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        Map<ClientKey, AuthorizedClient> snapshot = new HashMap<>(clients);
+        LocalDateTime newWatermark = watermark;
+        for (AuthorizedClient client : changed) {
+            if (Boolean.TRUE.equals(client.getIsActive())) {
+                snapshot.put(ClientKey.of(client), client);
+            } else {
+                snapshot.remove(ClientKey.of(client));
+            }
+            newWatermark = later(newWatermark, client.getUpdatedAt());
+        }
+
+        clients = Map.copyOf(snapshot);
+        watermark = newWatermark;
+
+        log.debug("Authorized client registry applied {} changes", changed.size());
+    }
+
+    private LocalDateTime later(LocalDateTime current, LocalDateTime candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return current == null || candidate.isAfter(current) ? candidate : current;
+    }
+
+    private record ClientKey(String tenantId, String clientId) {
+
+        static ClientKey of(AuthorizedClient client) {
+            return new ClientKey(client.getTenantId(), client.getClientId());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.llmocr.mcp.invoice.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-endpoint circuit breaker for token introspection
+ * 
+ * Each introspection endpoint gets its own breaker so one tenant's slow or failing
+ * endpoint is short-circuited without affecting the others:
+ * - CLOSED: calls pass through; consecutive failures are counted
+ * - OPEN: after failure-threshold consecutive failures, calls are rejected immediately for open-duration
+ * - HALF_OPEN: after open-duration a single probe call is let through; success closes, failure re-opens
+ * 
+ * State is published as mcp.introspection.circuit.state (0 closed, 1 half-open, 2 open) and
+ * transitions as mcp.introspection.circuit.transitions, both tagged by endpoint.
+ */
+@Component
+@Slf4j
+public class IntrospectionCircuitBreaker {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, EndpointCircuit> circuits = new ConcurrentHashMap<>();
+
+    @Value("${security.mcp.introspection.circuit-breaker.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.mcp.introspection.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${security.mcp.introspection.circuit-breaker.open-duration:30s}")
+    private Duration openDuration;
+
+    public IntrospectionCircuitBreaker(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Check whether a call to the endpoint may proceed
+     * 
+     * Callers that are allowed must report the outcome via recordSuccess or recordFailure.
+     */
+    public boolean allowRequest(String endpoint) {
+        if (!enabled) {
+            return true;
+        }
+        return circuit(endpoint).allowRequest();
+    }
+
+    public void recordSuccess(String endpoint) {
+        if (enabled) {
+            circuit(endpoint).recordSuccess();
+        }
+    }
+
+    public void recordFailure(String endpoint) {
+        if (enabled) {
+            circuit(endpoint).recordFailure();
+        }
+    }
+
+    /**
+     * Current state of every endpoint seen so far, for health reporting
+     */
+    public Map<String, State> states() {
+        Map<String, State> states = new TreeMap<>();
+        circuits.forEach((endpoint, circuit) -> states.put(endpoint, circuit.state));
+        return states;
+    }
+
+    private EndpointCircuit circuit(String endpoint) {
+        return circuits.computeIfAbsent(endpoint, EndpointCircuit::new);
+    }
+
+    public enum State {
+        CLOSED(0), HALF_OPEN(1), OPEN(2);
+
+        private final int gaugeValue;
+
+        State(int gaugeValue) {
+            this.gaugeValue = gaugeValue;
+        }
+    }
+
+    private class EndpointCircuit {
+
+        private final String endpoint;
+        private final AtomicBoolean probeInFlight = new AtomicBoolean();
+        private volatile State state = State.CLOSED;
+        private volatile Instant openedAt;
+        private int consecutiveFailures;
+
+        EndpointCircuit(String endpoint) {
+            this.endpoint = endpoint;
+            Gauge.builder("mcp.introspection.circuit.state", this, circuit -> circuit.state.gaugeValue)
+                    .description("Introspection circuit state (0 closed, 1 half-open, 2 open)")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+        }
+
+        boolean allowRequest() {
+            if (state == State.CLOSED) {
+                return true;
+            }
+
+            synchronized (this) {
+                if (state == State.OPEN && openedAt.plus(openDuration).isBefore(Instant.now())) {
+                    transitionTo(State.HALF_OPEN);
+                }
+            }
+
+            // Only one probe at a time while half-open; everyone else is still short-circuited
+            return state == State.HALF_OPEN && probeInFlight.compareAndSet(false, true);
+        }
+
+        synchronized void recordSuccess() {
+            consecutiveFailures = 0;
+            probeInFlight.set(false);
+            if (state != State.CLOSED) {
+                transitionTo(State.CLOSED);
+            }
+        }
+
+        synchronized void recordFailure() {
+            probeInFlight.set(false);
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                openedAt = Instant.now();
+                transitionTo(State.OPEN);
+            }
+        }
+
+        private void transitionTo(State next) {
+            log.warn("Introspection circuit for {} changed {} -> {}", endpoint, state, next);
+            state = next;
+            Counter.builder("mcp.introspection.circuit.transitions")
+                    .description("Introspection circuit state transitions")
+                    .tag("endpoint", endpoint)
+                    .tag("state", next.name())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+}
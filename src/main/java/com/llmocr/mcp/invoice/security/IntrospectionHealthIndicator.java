@@ -0,0 +1,35 @@
+package com.llmocr.mcp.invoice.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Health indicator exposing introspection circuit breaker states
+ * 
+ * Always reports UP: an open circuit means one tenant's introspection endpoint is
+ * unavailable, which must not take the whole pod out of service. The per-endpoint
+ * states are published as details under /actuator/health.
+ */
+@Component("introspection")
+@RequiredArgsConstructor
+public class IntrospectionHealthIndicator implements HealthIndicator {
+
+    private final IntrospectionCircuitBreaker circuitBreaker;
+
+    @Override
+    public Health health() {
+        Map<String, IntrospectionCircuitBreaker.State> states = circuitBreaker.states();
+        long openCircuits = states.values().stream()
+                .filter(state -> state != IntrospectionCircuitBreaker.State.CLOSED)
+                .count();
+
+        return Health.up()
+                .withDetail("endpoints", states)
+                .withDetail("openCircuits", openCircuits)
+                .build();
+    }
+}
@@ -0,0 +1,192 @@
+package com.llmocr.mcp.invoice.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JWKS Key Service for MCP Server
+ *
+ * Fetches and caches the public signing keys published at each authorized client's
+ * jwks_endpoint so tokens can be verified locally instead of via introspection.
+ * Key sets are cached per endpoint and refreshed when they expire or when a token
+ * references a key id that is not in the cached set (key rotation).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JwksKeyService {
+
+    private final RestTemplate restTemplate;
+
+    private final Map<String, CachedKeySet> keySets = new ConcurrentHashMap<>();
+
+    @Value("${security.mcp.jwks.cache-ttl:10m}")
+    private Duration cacheTtl;
+
+    @Value("${security.mcp.jwks.min-refresh-interval:30s}")
+    private Duration minRefreshInterval;
+
+    /**
+     * Resolve the public key for the given key id from the JWKS endpoint
+     *
+     * Returns empty if the key set cannot be fetched or does not contain the key,
+     * in which case callers should fall back to remote introspection.
+     */
+    public Optional<PublicKey> resolveKey(String jwksEndpoint, String keyId) {
+        CachedKeySet keySet = keySets.get(jwksEndpoint);
+
+        if (keySet == null || keySet.isExpired(cacheTtl)) {
+            keySet = refresh(jwksEndpoint, keySet);
+        }
+
+        PublicKey key = keySet != null ? keySet.find(keyId) : null;
+        if (key == null && keySet != null && keySet.canRefresh(minRefreshInterval)) {
+            // Unknown kid - the issuer may have rotated its keys since we last fetched
+            log.debug("Key '{}' not found in cached JWKS for {}, refreshing", keyId, jwksEndpoint);
+            keySet = refresh(jwksEndpoint, keySet);
+            key = keySet != null ? keySet.find(keyId) : null;
+        }
+
+        return Optional.ofNullable(key);
+    }
+
+    /**
+     * Drop the cached key set for an endpoint so the next lookup refetches it
+     */
+    public void evict(String jwksEndpoint) {
+        keySets.remove(jwksEndpoint);
+    }
+
+    private CachedKeySet refresh(String jwksEndpoint, CachedKeySet previous) {
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> body = restTemplate.getForObject(jwksEndpoint, Map.class);
+            Map<String, PublicKey> keys = parseKeySet(body);
+
+            CachedKeySet keySet = new CachedKeySet(keys, Instant.now());
+            keySets.put(jwksEndpoint, keySet);
+
+            log.debug("Loaded {} signing keys from JWKS endpoint {}", keys.size(), jwksEndpoint);
+            return keySet;
+
+        } catch (Exception e) {
+            log.warn("Failed to fetch JWKS from {}: {}", jwksEndpoint, e.getMessage());
+            if (previous != null) {
+                // Keep serving the last known keys, but don't hammer the endpoint
+                CachedKeySet retained = new CachedKeySet(previous.keys(), Instant.now());
+                keySets.put(jwksEndpoint, retained);
+                return retained;
+            }
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, PublicKey> parseKeySet(Map<String, Object> body) {
+        Map<String, PublicKey> keys = new HashMap<>();
+        if (body == null || !(body.get("keys") instanceof List)) {
+            return keys;
+        }
+
+        for (Object entry : (List<Object>) body.get("keys")) {
+            if (!(entry instanceof Map)) {
+                continue;
+            }
+            Map<String, Object> jwk = (Map<String, Object>) entry;
+
+            // Only signature keys are relevant for token verification
+            Object use = jwk.get("use");
+            if (use != null && !"sig".equals(use)) {
+                continue;
+            }
+
+            try {
+                PublicKey key = toPublicKey(jwk);
+                if (key != null) {
+                    String kid = (String) jwk.get("kid");
+                    keys.put(kid != null ? kid : "", key);
+                }
+            } catch (Exception e) {
+                log.warn("Skipping unparseable JWK '{}': {}", jwk.get("kid"), e.getMessage());
+            }
+        }
+        return keys;
+    }
+
+    private PublicKey toPublicKey(Map<String, Object> jwk) throws Exception {
+        String kty = (String) jwk.get("kty");
+
+        if ("RSA".equals(kty)) {
+            BigInteger modulus = decodeUnsigned((String) jwk.get("n"));
+            BigInteger exponent = decodeUnsigned((String) jwk.get("e"));
+            return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(modulus, exponent));
+        }
+
+        if ("EC".equals(kty)) {
+            String curve = switch ((String) jwk.get("crv")) {
+                case "P-256" -> "secp256r1";
+                case "P-384" -> "secp384r1";
+                case "P-521" -> "secp521r1";
+                default -> throw new IllegalArgumentException("Unsupported curve: " + jwk.get("crv"));
+            };
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec(curve));
+            ECParameterSpec spec = parameters.getParameterSpec(ECParameterSpec.class);
+
+            ECPoint point = new ECPoint(
+                    decodeUnsigned((String) jwk.get("x")),
+                    decodeUnsigned((String) jwk.get("y")));
+            return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, spec));
+        }
+
+        log.debug("Ignoring JWK '{}' with unsupported key type {}", jwk.get("kid"), kty);
+        return null;
+    }
+
+    private BigInteger decodeUnsigned(String base64Url) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(base64Url));
+    }
+
+    /**
+     * Immutable snapshot of one endpoint's key set
+     */
+    private record CachedKeySet(Map<String, PublicKey> keys, Instant fetchedAt) {
+
+        PublicKey find(String keyId) {
+            if (keyId == null) {
+                // Tokens without a kid can only be matched against a single-key set
+                return keys.size() == 1 ? keys.values().iterator().next() : null;
+            }
+            return keys.get(keyId);
+        }
+
+        boolean isExpired(Duration ttl) {
+            return fetchedAt.plus(ttl).isBefore(Instant.now());
+        }
+
+        boolean canRefresh(Duration minInterval) {
+            return fetchedAt.plus(minInterval).isBefore(Instant.now());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.llmocr.mcp.invoice.security;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Base64;
+
+/**
+ * Pre-validation JWT claims parser
+ * 
+ * Decodes the token payload once and streams over it with a Jackson parser, reading
+ * only the handful of top-level claims needed to route validation. Nested values and
+ * unknown claims are skipped without being materialized.
+ */
+@Component
+@Slf4j
+public class JwtClaimsParser {
+
+    private final JsonFactory jsonFactory;
+
+    public JwtClaimsParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Parse the routing claims from a JWT without validating it
+     * 
+     * Handles both "tenant_id" (snake_case, preferred) and "tenantId" (camelCase, legacy).
+     * Returns {@link UnverifiedJwtClaims#EMPTY} if the token is not a well-formed JWT.
+     */
+    public UnverifiedJwtClaims parse(String token) {
+        if (token == null) {
+            return UnverifiedJwtClaims.EMPTY;
+        }
+
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            return UnverifiedJwtClaims.EMPTY;
+        }
+
+        try {
+            // The URL decoder accepts unpadded input, so no padding needs to be appended
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(firstDot + 1, secondDot));
+            return readClaims(payload);
+        } catch (Exception e) {
+            log.debug("Failed to parse JWT payload: {}", e.getMessage());
+            return UnverifiedJwtClaims.EMPTY;
+        }
+    }
+
+    private UnverifiedJwtClaims readClaims(byte[] payload) throws Exception {
+        String tenantId = null;
+        String legacyTenantId = null;
+        String clientId = null;
+        String subject = null;
+        String issuer = null;
+        Long expiration = null;
+
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return UnverifiedJwtClaims.EMPTY;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                switch (field) {
+                    case "tenant_id" -> tenantId = stringValue(parser, value);
+                    case "tenantId" -> legacyTenantId = stringValue(parser, value);
+                    case "client_id" -> clientId = stringValue(parser, value);
+                    case "sub" -> subject = stringValue(parser, value);
+                    case "iss" -> issuer = stringValue(parser, value);
+                    case "exp" -> expiration = value.isNumeric() ? parser.getLongValue() : null;
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        return new UnverifiedJwtClaims(
+                tenantId != null ? tenantId : legacyTenantId, clientId, subject, issuer, expiration);
+    }
+
+    private String stringValue(JsonParser parser, JsonToken value) throws Exception {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+}
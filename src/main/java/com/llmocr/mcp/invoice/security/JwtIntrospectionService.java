@@ -1,27 +1,47 @@
 package com.llmocr.mcp.invoice.security;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.llmocr.mcp.invoice.domain.AuthorizedClient;
-import com.llmocr.mcp.invoice.repository.AuthorizedClientRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import java.security.Key;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * JWT Introspection Service for MCP Server
  * 
  * Validates JWTs by calling back to the main application's introspection endpoint.
  * This approach avoids sharing JWT signing secrets between applications.
+ * 
+ * Clients configured with the JWKS verification mode have their tokens verified
+ * locally against the public keys published at their jwks_endpoint; introspection
+ * is then only used when the token's signing key is not in the key set.
  */
 @Service
 @RequiredArgsConstructor
@@ -29,8 +49,17 @@ import java.util.Map;
 public class JwtIntrospectionService {
 
     private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
-    private final AuthorizedClientRepository authorizedClientRepository;
+    private final JwtClaimsParser jwtClaimsParser;
+    private final AuthorizedClientRegistry authorizedClientRegistry;
+    private final JwksKeyService jwksKeyService;
+    private final TokenValidationCache tokenValidationCache;
+    private final MeterRegistry meterRegistry;
+    private final IntrospectionCircuitBreaker circuitBreaker;
+
+    // Validations currently running, keyed by token hash, so concurrent callers can share the result
+    private final Map<String, CompletableFuture<TokenValidationResult>> inFlightValidations = new ConcurrentHashMap<>();
+    private Counter coalescedValidations;
+    private Counter staleValidations;
 
     // All configuration now database-driven via MCP server frontend
     @Value("${server.servlet.context-path:/mcp-invoice}")
@@ -39,10 +68,198 @@ public class JwtIntrospectionService {
     @Value("${server.port:8081}")
     private int serverPort;
 
+    @Value("${security.mcp.jwks.allowed-clock-skew-seconds:30}")
+    private long allowedClockSkewSeconds;
+
+    @Value("${security.mcp.introspection.coalesce-timeout:5s}")
+    private Duration coalesceTimeout;
+
+    @PostConstruct
+    void registerMetrics() {
+        coalescedValidations = Counter.builder("mcp.token.validation.coalesced")
+                .description("Token validations that waited for an in-flight validation of the same token")
+                .register(meterRegistry);
+        staleValidations = Counter.builder("mcp.token.validation.stale")
+                .description("Cached validations served because the introspection endpoint was unavailable")
+                .register(meterRegistry);
+    }
+
     /**
-     * Validate a JWT token using the main app's introspection endpoint
+     * Validate a JWT token, serving repeated validations of the same token from cache
+     * 
+     * Concurrent validations of the same uncached token are coalesced: the first caller
+     * performs the validation and the others wait (bounded by the coalesce timeout)
+     * for its result instead of each calling the introspection endpoint.
      */
     public TokenValidationResult validateToken(String token) {
+        return validateToken(token, jwtClaimsParser.parse(token));
+    }
+
+    /**
+     * Validate a JWT token whose unverified claims have already been parsed by the caller
+     */
+    public TokenValidationResult validateToken(String token, UnverifiedJwtClaims claims) {
+        String tokenHash = TokenValidationCache.hash(token);
+
+        TokenValidationResult cached = tokenValidationCache.get(tokenHash);
+        if (cached != null) {
+            log.debug("Token validation served from cache: valid={}", cached.isValid());
+            return cached;
+        }
+
+        CompletableFuture<TokenValidationResult> pending = new CompletableFuture<>();
+        CompletableFuture<TokenValidationResult> inFlight = inFlightValidations.putIfAbsent(tokenHash, pending);
+        if (inFlight != null) {
+            return awaitInFlightValidation(tokenHash, inFlight);
+        }
+
+        TokenValidationResult result = TokenValidationResult.unavailable("Introspection service unavailable");
+        try {
+            // A previous leader may have cached its result and left between our cache miss and putIfAbsent
+            TokenValidationResult completed = tokenValidationCache.get(tokenHash);
+            if (completed != null) {
+                result = completed;
+                return result;
+            }
+            result = verifyToken(token, claims);
+            if (result.isUnavailable()) {
+                // Stale results are not re-cached, so the endpoint is retried once it recovers
+                result = staleOrUnavailable(tokenHash, result);
+            } else {
+                // Populate the cache before releasing waiters so later callers never miss both
+                tokenValidationCache.put(tokenHash, result);
+            }
+            return result;
+        } finally {
+            pending.complete(result);
+            inFlightValidations.remove(tokenHash, pending);
+        }
+    }
+
+    /**
+     * Serve a still-unexpired earlier validation while the introspection endpoint is down
+     */
+    private TokenValidationResult staleOrUnavailable(String tokenHash, TokenValidationResult unavailable) {
+        TokenValidationResult stale = tokenValidationCache.getStale(tokenHash);
+        if (stale == null) {
+            return unavailable;
+        }
+        staleValidations.increment();
+        log.warn("Introspection unavailable ({}), serving cached validation for user {} until token expiry",
+                unavailable.getError(), stale.getUserId());
+        return stale;
+    }
+
+    /**
+     * Wait for a validation of the same token already running on another thread
+     * 
+     * If it does not complete in time, the waiter falls back to a stale cached result
+     * exactly as the leader would when the endpoint is unavailable.
+     */
+    private TokenValidationResult awaitInFlightValidation(String tokenHash,
+                                                          CompletableFuture<TokenValidationResult> inFlight) {
+        coalescedValidations.increment();
+        try {
+            return inFlight.get(coalesceTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Timed out after {} waiting for in-flight token validation", coalesceTimeout);
+            return staleOrUnavailable(tokenHash, TokenValidationResult.unavailable("Token validation timed out"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return staleOrUnavailable(tokenHash, TokenValidationResult.unavailable("Token validation interrupted"));
+        } catch (ExecutionException e) {
+            log.error("In-flight token validation failed", e.getCause());
+            return staleOrUnavailable(tokenHash, TokenValidationResult.unavailable("Introspection service unavailable"));
+        }
+    }
+
+    /**
+     * Validate a JWT token, locally for JWKS-mode clients and otherwise via introspection
+     */
+    private TokenValidationResult verifyToken(String token, UnverifiedJwtClaims unverifiedClaims) {
+        try {
+            // Tenant and client claims select the client configuration from the database
+            String tenantId = unverifiedClaims.tenantId();
+            String clientId = unverifiedClaims.clientId();
+            AuthorizedClient authorizedClient = getAuthorizedClient(tenantId, clientId);
+
+            if (authorizedClient != null && authorizedClient.usesLocalVerification()) {
+                TokenValidationResult localResult = verifyLocally(token, tenantId, clientId, authorizedClient);
+                if (localResult != null) {
+                    return localResult;
+                }
+                log.debug("Signing key for client '{}' (tenant '{}') not in JWKS, falling back to introspection",
+                         clientId, tenantId);
+            }
+
+            return introspect(token, tenantId, clientId, authorizedClient);
+
+        } catch (Exception e) {
+            log.error("Token validation failed", e);
+            return TokenValidationResult.unavailable("Introspection service unavailable");
+        }
+    }
+
+    /**
+     * Verify signature, exp (required), iss and aud locally using the client's JWKS key set
+     * 
+     * Returns null when the signing key is unknown so the caller can fall back to introspection.
+     */
+    private TokenValidationResult verifyLocally(String token, String tenantId, String clientId,
+                                                AuthorizedClient authorizedClient) {
+        String jwksEndpoint = authorizedClient.getJwksEndpoint();
+        Claims claims;
+        try {
+            Jws<Claims> jws = Jwts.parserBuilder()
+                    .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                        // jjwt 0.11 declares the resolver with the raw JwsHeader type
+                        @Override
+                        @SuppressWarnings("rawtypes")
+                        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                            return jwksKeyService.resolveKey(jwksEndpoint, header.getKeyId())
+                                    .orElseThrow(() -> new UnknownSigningKeyException(header.getKeyId()));
+                        }
+                    })
+                    .requireIssuer(authorizedClient.getTrustedIssuer())
+                    .setAllowedClockSkewSeconds(allowedClockSkewSeconds)
+                    .build()
+                    .parseClaimsJws(token);
+            claims = jws.getBody();
+        } catch (UnknownSigningKeyException e) {
+            return null;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Local token verification failed for client '{}': {}", clientId, e.getMessage());
+            return TokenValidationResult.invalid("Token validation failed: " + e.getMessage());
+        }
+
+        // The parser only checks exp when present; a locally verified token must expire
+        if (claims.getExpiration() == null) {
+            log.debug("Local token verification failed for client '{}': no exp claim", clientId);
+            return TokenValidationResult.invalid("Token validation failed: token has no expiration");
+        }
+
+        if (!validateClientAccess(audienceValues(claims.get("aud")), authorizedClient, clientId, tenantId)) {
+            return TokenValidationResult.invalid("Client not authorized for this server");
+        }
+
+        log.debug("Token verified locally via JWKS for client '{}' (tenant '{}')", clientId, tenantId);
+
+        return TokenValidationResult.builder()
+                .valid(true)
+                .userId(claims.getSubject())
+                .email(claims.get("email", String.class))
+                .tenantId(tenantId)
+                .clientId(clientId)
+                .expiration(claims.getExpiration().getTime() / 1000)
+                .issuedAt(claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() / 1000 : null)
+                .build();
+    }
+
+    /**
+     * Validate a JWT token using the main app's introspection endpoint
+     */
+    private TokenValidationResult introspect(String token, String tenantId, String clientId,
+                                             AuthorizedClient authorizedClient) {
         try {
             // Prepare request
             Map<String, String> requestBody = new HashMap<>();
@@ -53,17 +270,12 @@ public class JwtIntrospectionService {
 
             HttpEntity<Map<String, String>> request = new HttpEntity<>(requestBody, headers);
 
-            // Try to extract tenant and client info from token for database lookup
+            // Client-specific introspection endpoints are resolved from the tenant and client claims
             // This enables per-tenant introspection endpoints while maintaining backward compatibility
-            String tenantId = extractTenantIdFromToken(token);
-            String clientId = extractClientIdFromToken(token);
-            
             String introspectionEndpoint;
-            AuthorizedClient authorizedClient = null;
             
             if (tenantId != null && clientId != null) {
                 // New flow: Use client-specific introspection endpoint from database
-                authorizedClient = getAuthorizedClient(tenantId, clientId);
                 if (authorizedClient != null && authorizedClient.getIntrospectionEndpoint() != null && 
                     !authorizedClient.getIntrospectionEndpoint().trim().isEmpty()) {
                     introspectionEndpoint = authorizedClient.getIntrospectionEndpoint();
@@ -82,9 +294,28 @@ public class JwtIntrospectionService {
                          introspectionEndpoint);
             }
             
-            // Call introspection endpoint
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                    introspectionEndpoint, request, Map.class);
+            // Call introspection endpoint, unless its circuit is open
+            if (!circuitBreaker.allowRequest(introspectionEndpoint)) {
+                log.debug("Introspection circuit open for {}, rejecting token validation", introspectionEndpoint);
+                return TokenValidationResult.unavailable("Introspection endpoint unavailable (circuit open)");
+            }
+
+            ResponseEntity<Map> response;
+            try {
+                response = restTemplate.postForEntity(introspectionEndpoint, request, Map.class);
+                circuitBreaker.recordSuccess(introspectionEndpoint);
+            } catch (HttpClientErrorException e) {
+                // A 4xx means the endpoint is up and refused the token: a definite answer, never served stale
+                circuitBreaker.recordSuccess(introspectionEndpoint);
+                log.debug("Introspection endpoint {} rejected the token with {}", introspectionEndpoint, e.getStatusCode());
+                return TokenValidationResult.invalid("Token validation failed: introspection endpoint returned " +
+                        e.getStatusCode().value());
+            } catch (RuntimeException e) {
+                // 5xx, I/O errors and timeouts: the endpoint could not answer
+                circuitBreaker.recordFailure(introspectionEndpoint);
+                log.error("Token introspection call to {} failed: {}", introspectionEndpoint, e.getMessage());
+                return TokenValidationResult.unavailable("Introspection service unavailable");
+            }
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 Map<String, Object> body = response.getBody();
@@ -101,7 +332,7 @@ public class JwtIntrospectionService {
                              userId, email, tenantId, issuer);
                     
                     // Validate audience and client access
-                    String audience = (String) body.get("aud");
+                    List<String> audiences = audienceValues(body.get("aud"));
                     
                     // Validate issuer against client-specific trusted issuer (if we have client config)
                     if (authorizedClient != null) {
@@ -116,7 +347,7 @@ public class JwtIntrospectionService {
                     
                     // Validate audience and final client access (only if we have client info)
                     if (tenantId != null && clientId != null) {
-                        if (!validateClientAccess(audience, clientId, tenantId)) {
+                        if (!validateClientAccess(audiences, authorizedClient, clientId, tenantId)) {
                             return TokenValidationResult.invalid("Client not authorized for this server");
                         }
                     } else {
@@ -139,12 +370,13 @@ public class JwtIntrospectionService {
                 }
             } else {
                 log.warn("Introspection endpoint returned non-success status: {}", response.getStatusCode());
-                return TokenValidationResult.invalid("Introspection endpoint error");
+                return TokenValidationResult.invalid("Token validation failed: unexpected introspection response");
             }
 
         } catch (Exception e) {
+            // The endpoint answered, but not with a usable introspection response
             log.error("Token introspection failed", e);
-            return TokenValidationResult.invalid("Introspection service unavailable");
+            return TokenValidationResult.invalid("Token validation failed: unexpected introspection response");
         }
     }
 
@@ -162,6 +394,8 @@ public class JwtIntrospectionService {
         private Long expiration;
         private Long issuedAt;
         private String error;
+        // True when validation could not be completed (e.g. introspection endpoint down)
+        private boolean unavailable;
 
         public static TokenValidationResult invalid(String error) {
             return TokenValidationResult.builder()
@@ -169,30 +403,33 @@ public class JwtIntrospectionService {
                     .error(error)
                     .build();
         }
+
+        public static TokenValidationResult unavailable(String error) {
+            return TokenValidationResult.builder()
+                    .valid(false)
+                    .unavailable(true)
+                    .error(error)
+                    .build();
+        }
     }
     
     /**
      * Validate client access based on audience, client ID, and tenant-specific authorization
      */
-    private boolean validateClientAccess(String audience, String clientId, String tenantId) {
-        // CRITICAL: Check client authorization in database (tenant-specific)
+    private boolean validateClientAccess(Collection<String> audiences, AuthorizedClient authorizedClient,
+                                         String clientId, String tenantId) {
+        // CRITICAL: Check client authorization (tenant-specific, from the client registry)
         // NO automatic access - clients must be explicitly registered per tenant
         if (clientId == null || tenantId == null) {
             log.warn("SECURITY: Missing client_id or tenant_id in token - access denied");
             return false;
         }
         
-        // Get authorized client from database
-        var authorizedClientOpt = authorizedClientRepository
-                .findByTenantIdAndClientIdAndIsActiveTrue(tenantId, clientId);
-        
-        if (authorizedClientOpt.isEmpty()) {
+        if (authorizedClient == null) {
             log.warn("SECURITY: Client '{}' not authorized for tenant '{}' on this MCP server", clientId, tenantId);
             return false;
         }
         
-        var authorizedClient = authorizedClientOpt.get();
-        
         // Check audience claim (OAuth 2.1 compliance)
         // Audience must match the expected audience URL from the database
         String expectedAudience = authorizedClient.getAudienceUrl();
@@ -203,24 +440,23 @@ public class JwtIntrospectionService {
             String localhostAudience = "http://localhost:" + serverPort + contextPath;
             String dockerAudience = "http://mcp-invoice-server:" + serverPort + contextPath;
             
-            boolean audienceValid = audience != null && 
-                    (audience.equals(localhostAudience) || audience.equals(dockerAudience));
+            boolean audienceValid = audiences.contains(localhostAudience) || audiences.contains(dockerAudience);
             
             if (!audienceValid) {
                 log.warn("SECURITY: Token audience mismatch (fallback validation). Expected: {} or {}, got: {}", 
-                        localhostAudience, dockerAudience, audience);
+                        localhostAudience, dockerAudience, audiences);
                 return false;
             }
             
-            log.debug("SECURITY: Token audience validated using fallback: {}", audience);
+            log.debug("SECURITY: Token audience validated using fallback: {}", audiences);
         } else {
             // Use configured audience URL from database
-            if (audience == null || !audience.equals(expectedAudience)) {
-                log.warn("SECURITY: Token audience mismatch. Expected: {}, got: {}", expectedAudience, audience);
+            if (!audiences.contains(expectedAudience)) {
+                log.warn("SECURITY: Token audience mismatch. Expected: {}, got: {}", expectedAudience, audiences);
                 return false;
             }
             
-            log.debug("SECURITY: Token audience validated against database configuration: {}", audience);
+            log.debug("SECURITY: Token audience validated against database configuration: {}", expectedAudience);
         }
         
         log.debug("SECURITY: Client '{}' authorized for tenant '{}' on this MCP server", clientId, tenantId);
@@ -229,83 +465,33 @@ public class JwtIntrospectionService {
     }
     
     /**
-     * Get the authorized client configuration from the database
+     * Normalize the aud claim, which may be a single string or an array of strings
      */
-    private AuthorizedClient getAuthorizedClient(String tenantId, String clientId) {
-        if (tenantId == null || clientId == null) {
-            return null;
+    private List<String> audienceValues(Object aud) {
+        if (aud instanceof String audience) {
+            return List.of(audience);
         }
-        
-        return authorizedClientRepository
-                .findByTenantIdAndClientIdAndIsActiveTrue(tenantId, clientId)
-                .orElse(null);
+        if (aud instanceof Collection<?> values) {
+            return values.stream().map(String::valueOf).toList();
+        }
+        return List.of();
     }
-    
+
     /**
-     * Extract tenant_id from JWT token without validation
-     * This is used to determine which introspection endpoint to use
-     * Handles both "tenantId" (camelCase) and "tenant_id" (snake_case) for backward compatibility
+     * Signals that a token's key id is not published in the client's JWKS key set
      */
-    private String extractTenantIdFromToken(String token) {
-        try {
-            // Decode JWT payload without verification (we'll validate via introspection)
-            String[] parts = token.split("\\.");
-            if (parts.length != 3) {
-                return null;
-            }
-            
-            String payload = parts[1];
-            // Add padding if needed
-            while (payload.length() % 4 != 0) {
-                payload += "=";
-            }
-            
-            byte[] decodedBytes = java.util.Base64.getUrlDecoder().decode(payload);
-            String payloadJson = new String(decodedBytes);
-            
-            Map<String, Object> claims = objectMapper.readValue(payloadJson, Map.class);
-            
-            // Try both formats for backward compatibility
-            String tenantId = (String) claims.get("tenant_id");  // snake_case (preferred)
-            if (tenantId == null) {
-                tenantId = (String) claims.get("tenantId");      // camelCase (legacy)
-            }
-            
-            return tenantId;
-            
-        } catch (Exception e) {
-            log.debug("Failed to extract tenant_id from token: {}", e.getMessage());
-            return null;
+    private static class UnknownSigningKeyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UnknownSigningKeyException(String keyId) {
+            super("Unknown signing key: " + keyId);
         }
     }
-    
+
     /**
-     * Extract client_id from JWT token without validation
-     * This is used to determine which introspection endpoint to use
+     * Get the authorized client configuration from the in-memory client registry
      */
-    private String extractClientIdFromToken(String token) {
-        try {
-            // Decode JWT payload without verification (we'll validate via introspection)
-            String[] parts = token.split("\\.");
-            if (parts.length != 3) {
-                return null;
-            }
-            
-            String payload = parts[1];
-            // Add padding if needed
-            while (payload.length() % 4 != 0) {
-                payload += "=";
-            }
-            
-            byte[] decodedBytes = java.util.Base64.getUrlDecoder().decode(payload);
-            String payloadJson = new String(decodedBytes);
-            
-            Map<String, Object> claims = objectMapper.readValue(payloadJson, Map.class);
-            return (String) claims.get("client_id");
-            
-        } catch (Exception e) {
-            log.debug("Failed to extract client_id from token: {}", e.getMessage());
-            return null;
-        }
+    private AuthorizedClient getAuthorizedClient(String tenantId, String clientId) {
+        return authorizedClientRegistry.find(tenantId, clientId);
     }
 }
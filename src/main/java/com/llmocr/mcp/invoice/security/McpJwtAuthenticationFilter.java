@@ -28,6 +28,7 @@ import java.util.ArrayList;
 public class McpJwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtIntrospectionService jwtIntrospectionService;
+    private final JwtClaimsParser jwtClaimsParser;
 
     @Override
     protected void doFilterInternal(
@@ -54,9 +55,13 @@ public class McpJwtAuthenticationFilter extends OncePerRequestFilter {
 
             String token = authHeader.substring(7); // Remove "Bearer " prefix
             
+            // Decode the payload once; the claims are shared with validation and later audit logging
+            UnverifiedJwtClaims claims = jwtClaimsParser.parse(token);
+            request.setAttribute(McpSecurityContext.TOKEN_CLAIMS_ATTRIBUTE, claims);
+            
             // Validate JWT token using introspection
             JwtIntrospectionService.TokenValidationResult validation = 
-                    jwtIntrospectionService.validateToken(token);
+                    jwtIntrospectionService.validateToken(token, claims);
             
             log.debug("Token validation result: valid={}, userId={}, tenantId={}, email={}, clientId={}", 
                      validation.isValid(), validation.getUserId(), validation.getTenantId(), validation.getEmail(), validation.getClientId());
@@ -15,6 +15,11 @@ import jakarta.servlet.http.HttpServletRequest;
 @Slf4j
 public class McpSecurityContext {
 
+    /**
+     * Request attribute holding the {@link UnverifiedJwtClaims} parsed by the authentication filter
+     */
+    public static final String TOKEN_CLAIMS_ATTRIBUTE = "mcpTokenClaims";
+
     /**
      * Get the current tenant ID from request context
      * 
@@ -82,6 +87,27 @@ public class McpSecurityContext {
         return null;
     }
 
+    /**
+     * Get the unverified token claims parsed once by the authentication filter
+     * 
+     * Available even when validation failed, so audit logging can attribute rejected
+     * requests to a tenant and client without decoding the token again.
+     */
+    public static UnverifiedJwtClaims getCurrentTokenClaims() {
+        try {
+            HttpServletRequest request = getCurrentRequest();
+            if (request != null) {
+                Object claims = request.getAttribute(TOKEN_CLAIMS_ATTRIBUTE);
+                if (claims instanceof UnverifiedJwtClaims unverifiedClaims) {
+                    return unverifiedClaims;
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Could not get token claims from request context: {}", e.getMessage());
+        }
+        return UnverifiedJwtClaims.EMPTY;
+    }
+
     /**
      * Get the current HTTP request from Spring's RequestContextHolder
      */
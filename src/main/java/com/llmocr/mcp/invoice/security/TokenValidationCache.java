@@ -0,0 +1,135 @@
+package com.llmocr.mcp.invoice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Token Validation Cache for MCP Server
+ * 
+ * Caches token validation results keyed by the SHA-256 of the bearer token so agents
+ * reusing one token for a burst of tool calls only pay for validation once.
+ * Valid results expire at the earlier of the token's exp claim and the configured
+ * max TTL; invalid results are cached for a short negative TTL. Results caused by
+ * an unavailable introspection endpoint are never cached.
+ * 
+ * Hit, miss and eviction counts are published as cache.* metrics with cache=mcp.token.validation.
+ * 
+ * When serve-stale is enabled, valid results are additionally retained until the token's
+ * own exp so they can be served while the introspection endpoint is unavailable.
+ */
+@Component
+@Slf4j
+public class TokenValidationCache {
+
+    private final boolean enabled;
+    private final boolean serveStale;
+    private final Cache<String, JwtIntrospectionService.TokenValidationResult> cache;
+    private final Cache<String, JwtIntrospectionService.TokenValidationResult> staleCache;
+
+    public TokenValidationCache(
+            MeterRegistry meterRegistry,
+            @Value("${security.mcp.token-cache.enabled:true}") boolean enabled,
+            @Value("${security.mcp.token-cache.max-size:10000}") long maxSize,
+            @Value("${security.mcp.token-cache.max-ttl:5m}") Duration maxTtl,
+            @Value("${security.mcp.token-cache.negative-ttl:10s}") Duration negativeTtl,
+            @Value("${security.mcp.token-cache.serve-stale:false}") boolean serveStale) {
+        this.enabled = enabled;
+        this.serveStale = serveStale;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ValidationResultExpiry(maxTtl, negativeTtl))
+                .recordStats()
+                .build();
+        // Valid results only, kept until token exp regardless of max TTL
+        this.staleCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ValidationResultExpiry(Duration.ofDays(1), Duration.ZERO))
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "mcp.token.validation");
+        log.info("Token validation cache {} (max size {}, max TTL {}, negative TTL {})",
+                enabled ? "enabled" : "disabled", maxSize, maxTtl, negativeTtl);
+    }
+
+    /**
+     * Get a cached validation result, or null if none is cached
+     */
+    public JwtIntrospectionService.TokenValidationResult get(String tokenHash) {
+        return enabled ? cache.getIfPresent(tokenHash) : null;
+    }
+
+    /**
+     * Cache a validation result unless it was caused by a transient failure
+     */
+    public void put(String tokenHash, JwtIntrospectionService.TokenValidationResult result) {
+        if (enabled && result != null && !result.isUnavailable()) {
+            cache.put(tokenHash, result);
+            if (serveStale && result.isValid()) {
+                staleCache.put(tokenHash, result);
+            }
+        }
+    }
+
+    /**
+     * Get a previously valid result whose token has not yet expired, for use while the
+     * introspection endpoint is down. Returns null if serving stale results is disabled.
+     */
+    public JwtIntrospectionService.TokenValidationResult getStale(String tokenHash) {
+        return enabled && serveStale ? staleCache.getIfPresent(tokenHash) : null;
+    }
+
+    /**
+     * Compute the cache key for a bearer token so raw tokens are never held as keys
+     */
+    public static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Per-entry expiry: token exp (capped at max TTL) for valid results, negative TTL otherwise
+     */
+    private record ValidationResultExpiry(Duration maxTtl, Duration negativeTtl)
+            implements Expiry<String, JwtIntrospectionService.TokenValidationResult> {
+
+        @Override
+        public long expireAfterCreate(String key, JwtIntrospectionService.TokenValidationResult result, long currentTime) {
+            if (!result.isValid()) {
+                return negativeTtl.toNanos();
+            }
+            if (result.getExpiration() == null) {
+                return maxTtl.toNanos();
+            }
+            long untilExpiryMillis = result.getExpiration() * 1000 - System.currentTimeMillis();
+            return Math.max(0, Math.min(maxTtl.toMillis(), untilExpiryMillis)) * 1_000_000;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtIntrospectionService.TokenValidationResult result,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(key, result, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtIntrospectionService.TokenValidationResult result,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
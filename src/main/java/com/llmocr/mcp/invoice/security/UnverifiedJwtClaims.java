@@ -0,0 +1,21 @@
+package com.llmocr.mcp.invoice.security;
+
+/**
+ * Claims read from a JWT payload before its signature has been verified
+ * 
+ * Only used for routing decisions (which client configuration, JWKS key set or
+ * introspection endpoint applies) and diagnostics - never for authorization.
+ */
+public record UnverifiedJwtClaims(
+        String tenantId,
+        String clientId,
+        String subject,
+        String issuer,
+        Long expiration) {
+
+    public static final UnverifiedJwtClaims EMPTY = new UnverifiedJwtClaims(null, null, null, null, null);
+
+    public boolean hasTenantAndClient() {
+        return tenantId != null && clientId != null;
+    }
+}
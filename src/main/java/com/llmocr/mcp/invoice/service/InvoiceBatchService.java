@@ -0,0 +1,221 @@
+package com.llmocr.mcp.invoice.service;
+
+import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.domain.InvoicesPersistedEvent;
+import com.llmocr.mcp.invoice.dto.InvoiceBatchItemResult;
+import com.llmocr.mcp.invoice.dto.InvoiceBatchItemResult.Status;
+import com.llmocr.mcp.invoice.dto.InvoiceInput;
+import com.llmocr.mcp.invoice.duplicate.DuplicateDetectionService;
+import com.llmocr.mcp.invoice.duplicate.InvoiceNumberFilter;
+import com.llmocr.mcp.invoice.repository.InvoiceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Invoice Batch Service
+ * 
+ * Ingests many extracted invoices in one call:
+ * - one set-based duplicate query for the invoice numbers the Bloom filter cannot rule out
+ * - mapping, validation and fuzzy duplicate flagging in parallel (pure CPU, no request context needed)
+ * - inserts in chunked transactions so Hibernate can use JDBC batching
+ * 
+ * A chunk that fails to commit (e.g. a concurrent insert of the same invoice number)
+ * is retried one invoice at a time with an atomic insert-if-absent, so concurrent
+ * duplicates are reported as DUPLICATE and only genuinely failing items as errors.
+ */
+@Service
+@Slf4j
+public class InvoiceBatchService {
+
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceValidationService invoiceValidationService;
+    private final InvoiceInputMapper invoiceInputMapper;
+    private final InvoiceNumberFilter invoiceNumberFilter;
+    private final DuplicateDetectionService duplicateDetectionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${invoice.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${invoice.batch.chunk-size:100}")
+    private int chunkSize;
+
+    public InvoiceBatchService(InvoiceRepository invoiceRepository,
+                               InvoiceValidationService invoiceValidationService,
+                               InvoiceInputMapper invoiceInputMapper,
+                               InvoiceNumberFilter invoiceNumberFilter,
+                               DuplicateDetectionService duplicateDetectionService,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager) {
+        this.invoiceRepository = invoiceRepository;
+        this.invoiceValidationService = invoiceValidationService;
+        this.invoiceInputMapper = invoiceInputMapper;
+        this.invoiceNumberFilter = invoiceNumberFilter;
+        this.duplicateDetectionService = duplicateDetectionService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Process a batch of invoices for one tenant
+     * 
+     * @return one result per input, in input order
+     * @throws IllegalArgumentException if the batch is empty or exceeds invoice.batch.max-size
+     */
+    public List<InvoiceBatchItemResult> processBatch(List<InvoiceInput> inputs, String tenantId, String userId) {
+        if (inputs == null || inputs.isEmpty()) {
+            throw new IllegalArgumentException("At least one invoice is required");
+        }
+        if (inputs.size() > maxBatchSize) {
+            throw new IllegalArgumentException(
+                    String.format("Batch of %d invoices exceeds the maximum of %d", inputs.size(), maxBatchSize));
+        }
+
+        InvoiceBatchItemResult[] results = new InvoiceBatchItemResult[inputs.size()];
+
+        // Map and validate in parallel; results are written by index so order is preserved
+        Invoice[] invoices = new Invoice[inputs.size()];
+        IntStream.range(0, inputs.size()).parallel().forEach(i -> {
+            InvoiceInput input = inputs.get(i);
+            String invoiceNumber = input != null ? input.invoiceNumber() : null;
+            try {
+                if (input == null) {
+                    throw new IllegalArgumentException("Invoice data is required");
+                }
+                Invoice invoice = invoiceInputMapper.toInvoice(input, tenantId, userId);
+                List<String> validationErrors = invoiceValidationService.validateInvoice(invoice);
+                if (validationErrors.isEmpty()) {
+                    duplicateDetectionService.flagIfDuplicate(invoice);
+                    invoices[i] = invoice;
+                } else {
+                    results[i] = InvoiceBatchItemResult.failed(i, invoiceNumber, Status.INVALID,
+                            "Validation failed: " + String.join(", ", validationErrors));
+                }
+            } catch (IllegalArgumentException e) {
+                results[i] = InvoiceBatchItemResult.failed(i, invoiceNumber, Status.INVALID, e.getMessage());
+            }
+        });
+
+        // One query for the invoice numbers the Bloom filter cannot rule out
+        Set<String> candidateNumbers = new HashSet<>();
+        for (Invoice invoice : invoices) {
+            if (invoice != null) {
+                candidateNumbers.add(invoice.getInvoiceNumber());
+            }
+        }
+        candidateNumbers = invoiceNumberFilter.filterPossiblyExisting(tenantId, candidateNumbers);
+        Set<String> existingNumbers = candidateNumbers.isEmpty()
+                ? Set.of()
+                : invoiceRepository.findExistingInvoiceNumbers(tenantId, candidateNumbers);
+        for (int i = existingNumbers.size(); i < candidateNumbers.size(); i++) {
+            invoiceNumberFilter.recordFalsePositive();
+        }
+
+        List<Integer> pending = new ArrayList<>();
+        Set<String> seenInBatch = new HashSet<>();
+        for (int i = 0; i < invoices.length; i++) {
+            Invoice invoice = invoices[i];
+            if (invoice == null) {
+                continue;
+            }
+            String invoiceNumber = invoice.getInvoiceNumber();
+            if (existingNumbers.contains(invoiceNumber)) {
+                results[i] = InvoiceBatchItemResult.failed(i, invoiceNumber, Status.DUPLICATE,
+                        String.format("Invoice %s already exists for tenant %s", invoiceNumber, tenantId));
+            } else if (!seenInBatch.add(invoiceNumber)) {
+                results[i] = InvoiceBatchItemResult.failed(i, invoiceNumber, Status.DUPLICATE,
+                        String.format("Invoice %s appears more than once in the batch", invoiceNumber));
+            } else {
+                pending.add(i);
+            }
+        }
+
+        for (int start = 0; start < pending.size(); start += chunkSize) {
+            List<Integer> chunk = pending.subList(start, Math.min(start + chunkSize, pending.size()));
+            persistChunk(chunk, invoices, results);
+        }
+
+        log.info("Processed invoice batch of {} for tenant {}: {} created", 
+                inputs.size(), tenantId, count(results, Status.CREATED));
+
+        return List.of(results);
+    }
+
+    private void persistChunk(List<Integer> chunk, Invoice[] invoices, InvoiceBatchItemResult[] results) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Invoice> batch = new ArrayList<>(chunk.size());
+                for (int i : chunk) {
+                    batch.add(invoices[i]);
+                }
+                invoiceRepository.saveAll(batch);
+            });
+            List<Invoice> saved = new ArrayList<>(chunk.size());
+            for (int i : chunk) {
+                saved.add(invoices[i]);
+            }
+            eventPublisher.publishEvent(InvoicesPersistedEvent.of(invoices[chunk.get(0)].getTenantId(), saved));
+            for (int i : chunk) {
+                results[i] = created(i, invoices[i]);
+            }
+        } catch (Exception e) {
+            log.warn("Invoice batch chunk of {} failed, retrying individually: {}", chunk.size(), e.getMessage());
+            for (int i : chunk) {
+                // The rolled-back attempt may have assigned IDs; start each retry from a clean entity
+                invoices[i].setId(null);
+                invoices[i].getLineItems().forEach(lineItem -> lineItem.setId(null));
+                insertIfAbsent(i, invoices, results);
+            }
+        }
+    }
+
+    /**
+     * Insert one invoice atomically, reporting a concurrent duplicate as DUPLICATE
+     */
+    private void insertIfAbsent(int i, Invoice[] invoices, InvoiceBatchItemResult[] results) {
+        Invoice invoice = invoices[i];
+        try {
+            Optional<Long> invoiceId = transactionTemplate.execute(status -> invoiceRepository.insertIfAbsent(invoice));
+            if (invoiceId != null && invoiceId.isPresent()) {
+                results[i] = created(i, invoice);
+                eventPublisher.publishEvent(InvoicesPersistedEvent.of(invoice.getTenantId(), List.of(invoice)));
+            } else {
+                results[i] = InvoiceBatchItemResult.failed(i, invoice.getInvoiceNumber(), Status.DUPLICATE,
+                        String.format("Invoice %s already exists for tenant %s", 
+                                invoice.getInvoiceNumber(), invoice.getTenantId()));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to save invoice {}: {}", invoice.getInvoiceNumber(), e.getMessage());
+            results[i] = InvoiceBatchItemResult.failed(i, invoice.getInvoiceNumber(), Status.ERROR, 
+                    "Failed to save invoice: " + e.getMessage());
+        }
+    }
+
+    private static InvoiceBatchItemResult created(int i, Invoice invoice) {
+        String message = invoice.getProcessingStatus() == Invoice.ProcessingStatus.DUPLICATE_DETECTED
+                ? "Flagged as possible duplicate, see metadata.possibleDuplicates" : null;
+        return new InvoiceBatchItemResult(i, invoice.getInvoiceNumber(), Status.CREATED, invoice.getId(), message);
+    }
+
+    private static long count(InvoiceBatchItemResult[] results, Status status) {
+        long count = 0;
+        for (InvoiceBatchItemResult result : results) {
+            if (result.status() == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,37 @@
+package com.llmocr.mcp.invoice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination cursor: the sort key and id of the last invoice on a page
+ *
+ * Encoded as base64url of "ordering|sortValue|id". The ordering is checked on decode so a
+ * cursor from one listing cannot be replayed against another.
+ */
+record InvoiceCursor(String ordering, String sortValue, long id) {
+
+    String encode() {
+        String raw = ordering + "|" + sortValue + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by encode, or return null for a blank cursor (first page)
+     */
+    static InvoiceCursor decode(String cursor, String expectedOrdering) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(expectedOrdering)) {
+                throw new IllegalArgumentException("Cursor does not belong to this listing");
+            }
+            return new InvoiceCursor(parts[0], parts[1], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage());
+        }
+    }
+}
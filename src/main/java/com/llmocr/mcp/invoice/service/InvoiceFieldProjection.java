@@ -0,0 +1,144 @@
+package com.llmocr.mcp.invoice.service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The set of invoice fields a retrieval tool should return
+ *
+ * Parsed from a comma-separated list of field names. Header fields are columns of
+ * the invoices row; lineItems and the OCR fields (extractedText, rawOcrPayload) are
+ * joins, so callers only pay for them when they name them. Without a list the
+ * projection is every header field plus lineItems, i.e. the full invoice minus the
+ * OCR payload. Field names and value formats match the Invoice entity's JSON.
+ */
+final class InvoiceFieldProjection {
+
+    static final String LINE_ITEMS = "lineItems";
+    static final String EXTRACTED_TEXT = "extractedText";
+    static final String RAW_OCR_PAYLOAD = "rawOcrPayload";
+
+    /**
+     * How a column's value is written to JSON
+     */
+    enum ValueType {
+        NUMBER, STRING, DATE, TIMESTAMP, JSON
+    }
+
+    /**
+     * A JSON field and the column it is read from
+     */
+    record Column(String field, String name, ValueType type) {
+    }
+
+    static final List<Column> HEADER_COLUMNS = List.of(
+            new Column("id", "id", ValueType.NUMBER),
+            new Column("tenantId", "tenant_id", ValueType.STRING),
+            new Column("invoiceNumber", "invoice_number", ValueType.STRING),
+            new Column("vendorName", "vendor_name", ValueType.STRING),
+            new Column("vendorAddress", "vendor_address", ValueType.STRING),
+            new Column("vendorTaxId", "vendor_tax_id", ValueType.STRING),
+            new Column("customerName", "customer_name", ValueType.STRING),
+            new Column("customerAddress", "customer_address", ValueType.STRING),
+            new Column("invoiceDate", "invoice_date", ValueType.DATE),
+            new Column("dueDate", "due_date", ValueType.DATE),
+            new Column("subtotalAmount", "subtotal_amount", ValueType.NUMBER),
+            new Column("taxAmount", "tax_amount", ValueType.NUMBER),
+            new Column("totalAmount", "total_amount", ValueType.NUMBER),
+            new Column("currency", "currency", ValueType.STRING),
+            new Column("paymentTerms", "payment_terms", ValueType.STRING),
+            new Column("description", "description", ValueType.STRING),
+            new Column("status", "status", ValueType.STRING),
+            new Column("processingStatus", "processing_status", ValueType.STRING),
+            new Column("sourceFilePath", "source_file_path", ValueType.STRING),
+            new Column("sourceFileName", "source_file_name", ValueType.STRING),
+            new Column("sourceFileType", "source_file_type", ValueType.STRING),
+            new Column("confidenceScore", "confidence_score", ValueType.NUMBER),
+            new Column("validationErrors", "validation_errors", ValueType.JSON),
+            new Column("metadata", "metadata", ValueType.JSON),
+            new Column("createdAt", "created_at", ValueType.TIMESTAMP),
+            new Column("updatedAt", "updated_at", ValueType.TIMESTAMP),
+            new Column("createdBy", "created_by", ValueType.STRING),
+            new Column("updatedBy", "updated_by", ValueType.STRING));
+
+    static final List<Column> LINE_ITEM_COLUMNS = List.of(
+            new Column("id", "id", ValueType.NUMBER),
+            new Column("lineNumber", "line_number", ValueType.NUMBER),
+            new Column("description", "description", ValueType.STRING),
+            new Column("quantity", "quantity", ValueType.NUMBER),
+            new Column("unitPrice", "unit_price", ValueType.NUMBER),
+            new Column("lineTotal", "line_total", ValueType.NUMBER),
+            new Column("taxRate", "tax_rate", ValueType.NUMBER),
+            new Column("taxAmount", "tax_amount", ValueType.NUMBER),
+            new Column("productCode", "product_code", ValueType.STRING),
+            new Column("unitOfMeasure", "unit_of_measure", ValueType.STRING),
+            new Column("metadata", "metadata", ValueType.JSON),
+            new Column("createdAt", "created_at", ValueType.TIMESTAMP),
+            new Column("updatedAt", "updated_at", ValueType.TIMESTAMP));
+
+    static final Set<String> AVAILABLE_FIELDS = Stream.concat(
+                    HEADER_COLUMNS.stream().map(Column::field),
+                    Stream.of(LINE_ITEMS, EXTRACTED_TEXT, RAW_OCR_PAYLOAD))
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+
+    static final InvoiceFieldProjection DEFAULT = new InvoiceFieldProjection(Stream.concat(
+                    HEADER_COLUMNS.stream().map(Column::field), Stream.of(LINE_ITEMS))
+            .collect(Collectors.toSet()));
+
+    private final Set<String> fields;
+    private final List<Column> headerColumns;
+
+    private InvoiceFieldProjection(Set<String> fields) {
+        this.fields = Set.copyOf(fields);
+        this.headerColumns = HEADER_COLUMNS.stream()
+                .filter(column -> fields.contains(column.field()))
+                .toList();
+    }
+
+    /**
+     * Parse a comma-separated field list, or return the default projection for a blank one
+     */
+    static InvoiceFieldProjection parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return DEFAULT;
+        }
+
+        Set<String> requested = new LinkedHashSet<>();
+        Set<String> unknown = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (AVAILABLE_FIELDS.contains(name)) {
+                requested.add(name);
+            } else {
+                unknown.add(name);
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown invoice fields " + unknown +
+                    ", available fields: " + String.join(", ", AVAILABLE_FIELDS));
+        }
+        return requested.isEmpty() ? DEFAULT : new InvoiceFieldProjection(requested);
+    }
+
+    boolean includes(String field) {
+        return fields.contains(field);
+    }
+
+    boolean includesOcrPayload() {
+        return includes(EXTRACTED_TEXT) || includes(RAW_OCR_PAYLOAD);
+    }
+
+    /**
+     * The selected header columns, in declaration order
+     */
+    List<Column> headerColumns() {
+        return headerColumns;
+    }
+}
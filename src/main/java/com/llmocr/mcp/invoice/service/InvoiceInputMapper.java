@@ -0,0 +1,155 @@
+package com.llmocr.mcp.invoice.service;
+
+import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.domain.InvoiceLineItem;
+import com.llmocr.mcp.invoice.dto.InvoiceInput;
+import com.llmocr.mcp.invoice.dto.InvoiceLineItemInput;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Invoice Input Mapper
+ * 
+ * Converts extracted invoice fields (and any line items) into a new Invoice entity.
+ * Line item amounts are calculated here, once, before persisting. Shared by the single
+ * and batch ingestion tools. Tenant and user are passed explicitly so the mapper can
+ * run on worker threads that have no request context.
+ */
+@Component
+@Slf4j
+public class InvoiceInputMapper {
+
+    // Supported date formats (most common first)
+    private static final DateTimeFormatter[] DATE_FORMATTERS = {
+        DateTimeFormatter.ofPattern("yyyy-MM-dd"),     // 2025-09-01
+        DateTimeFormatter.ofPattern("MM/dd/yyyy"),     // 09/01/2025
+        DateTimeFormatter.ofPattern("dd/MM/yyyy"),     // 01/09/2025
+        DateTimeFormatter.ofPattern("MM-dd-yyyy"),     // 09-01-2025
+        DateTimeFormatter.ofPattern("dd-MM-yyyy"),     // 01-09-2025
+        DateTimeFormatter.ofPattern("yyyy/MM/dd"),     // 2025/09/01
+        DateTimeFormatter.ofPattern("dd.MM.yyyy"),     // 01.09.2025
+        DateTimeFormatter.ofPattern("MMM dd, yyyy"),   // Sep 01, 2025
+        DateTimeFormatter.ofPattern("dd MMM yyyy"),    // 01 Sep 2025
+        DateTimeFormatter.ofPattern("MMMM dd, yyyy"),  // September 01, 2025
+    };
+
+    /**
+     * Build a new PENDING invoice from the input
+     * 
+     * @throws IllegalArgumentException if a required field is missing or a value cannot be parsed
+     */
+    public Invoice toInvoice(InvoiceInput input, String tenantId, String userId) {
+        // Validate required fields
+        if (input.invoiceNumber() == null || input.invoiceNumber().trim().isEmpty()) {
+            throw new IllegalArgumentException("Invoice number is required");
+        }
+        if (input.vendorName() == null || input.vendorName().trim().isEmpty()) {
+            throw new IllegalArgumentException("Vendor name is required");
+        }
+        if (input.totalAmount() == null || input.totalAmount().trim().isEmpty()) {
+            throw new IllegalArgumentException("Total amount is required");
+        }
+
+        Invoice invoice = Invoice.builder()
+                .tenantId(tenantId)
+                .invoiceNumber(input.invoiceNumber().trim())
+                .vendorName(input.vendorName().trim())
+                .vendorAddress(input.vendorAddress())
+                .customerName(input.customerName())
+                .invoiceDate(parseDate(input.invoiceDate()))
+                .dueDate(parseDate(input.dueDate()))
+                .totalAmount(parseCurrencyAmount(input.totalAmount()))
+                .currency(input.currency() != null ? input.currency() : "USD")
+                .description(input.description())
+                .status(Invoice.InvoiceStatus.PENDING)
+                .processingStatus(Invoice.ProcessingStatus.NEW)
+                .createdBy(userId)
+                .build();
+
+        if (input.lineItems() != null) {
+            int lineNumber = 1;
+            for (InvoiceLineItemInput lineItemInput : input.lineItems()) {
+                if (lineItemInput != null) {
+                    invoice.addLineItem(toLineItem(lineItemInput, lineNumber++));
+                }
+            }
+        }
+
+        return invoice;
+    }
+
+    private InvoiceLineItem toLineItem(InvoiceLineItemInput input, int lineNumber) {
+        InvoiceLineItem lineItem = InvoiceLineItem.builder()
+                .lineNumber(lineNumber)
+                .description(input.description() != null ? input.description().trim() : null)
+                .quantity(parseOptionalAmount(input.quantity()))
+                .unitPrice(parseOptionalAmount(input.unitPrice()))
+                .lineTotal(parseOptionalAmount(input.lineTotal()))
+                .taxRate(parseOptionalAmount(input.taxRate()))
+                .productCode(input.productCode())
+                .unitOfMeasure(input.unitOfMeasure())
+                .build();
+        lineItem.calculateAmounts();
+        return lineItem;
+    }
+
+    private BigDecimal parseOptionalAmount(String amountStr) {
+        return amountStr == null || amountStr.trim().isEmpty() ? null : parseCurrencyAmount(amountStr);
+    }
+
+    /**
+     * Parse currency amount string to BigDecimal, removing currency symbols
+     */
+    public BigDecimal parseCurrencyAmount(String amountStr) {
+        if (amountStr == null || amountStr.trim().isEmpty()) {
+            throw new IllegalArgumentException("Amount cannot be null or empty");
+        }
+        
+        try {
+            // Remove common currency symbols and whitespace
+            String cleanAmount = amountStr.trim()
+                    .replaceAll("[$€£¥₹]", "")  // Remove currency symbols
+                    .replaceAll("[,\\s]", "")   // Remove commas and spaces
+                    .trim();
+            
+            if (cleanAmount.isEmpty()) {
+                throw new IllegalArgumentException("No numeric value found in amount: " + amountStr);
+            }
+            
+            log.debug("Parsed currency amount '{}' to '{}'", amountStr, cleanAmount);
+            return new BigDecimal(cleanAmount);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount format: " + amountStr + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse date string to LocalDate with support for multiple formats
+     */
+    public LocalDate parseDate(String dateStr) {
+        if (dateStr == null || dateStr.trim().isEmpty()) {
+            return null;
+        }
+        
+        String trimmed = dateStr.trim();
+        
+        // Try each formatter
+        for (DateTimeFormatter formatter : DATE_FORMATTERS) {
+            try {
+                return LocalDate.parse(trimmed, formatter);
+            } catch (DateTimeParseException e) {
+                // Continue to next formatter
+            }
+        }
+        
+        // If all formatters fail, provide helpful error message
+        throw new IllegalArgumentException("Invalid date format: '" + dateStr + "'. " +
+                "Supported formats: YYYY-MM-DD, MM/DD/YYYY, DD/MM/YYYY, MM-DD-YYYY, DD-MM-YYYY, " +
+                "YYYY/MM/DD, DD.MM.YYYY, MMM DD, YYYY, DD MMM YYYY, MMMM DD, YYYY");
+    }
+}
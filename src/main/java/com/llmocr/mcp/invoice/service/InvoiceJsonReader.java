@@ -0,0 +1,194 @@
+package com.llmocr.mcp.invoice.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmocr.mcp.invoice.service.InvoiceFieldProjection.Column;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Single-query JSON read of one invoice for getInvoiceByNumber
+ *
+ * Selects only the projected header columns, joined with the line items and OCR
+ * payload when the projection asks for them, and writes each column straight from
+ * the ResultSet into a JsonGenerator. No entities are hydrated, so there is no
+ * persistence context, dirty-check snapshot or lazy lineItems query (the N+1 the
+ * entity path paid when Jackson touched the collection).
+ *
+ * The output matches what the application ObjectMapper writes for the Invoice entity:
+ * numbers as written by Postgres, ISO dates and timestamps, jsonb columns embedded as-is.
+ */
+@Component
+class InvoiceJsonReader {
+
+    private static final String INVOICE_ALIAS = "i";
+    private static final String LINE_ITEM_ALIAS = "li";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonFactory jsonFactory;
+    private final String defaultSql;
+
+    InvoiceJsonReader(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jsonFactory = objectMapper.getFactory();
+        this.defaultSql = buildSql(InvoiceFieldProjection.DEFAULT);
+    }
+
+    /**
+     * @return the invoice as JSON, or empty if the tenant has no invoice with this number
+     */
+    Optional<String> read(String tenantId, String invoiceNumber, InvoiceFieldProjection projection) {
+        String sql = projection == InvoiceFieldProjection.DEFAULT ? defaultSql : buildSql(projection);
+        return jdbcTemplate.query(sql, rs -> rs.next() ? Optional.of(write(rs, projection)) : Optional.<String>empty(),
+                tenantId, invoiceNumber);
+    }
+
+    /**
+     * Column 1 is always the invoice id (so the select list is never empty), followed by
+     * the projected header columns, the line item columns and the OCR payload columns.
+     * With both joins the payload is only returned on the first line item row, so large
+     * OCR text is not repeated over the wire for every line.
+     */
+    static String buildSql(InvoiceFieldProjection projection) {
+        boolean lineItems = projection.includes(InvoiceFieldProjection.LINE_ITEMS);
+        boolean ocrPayload = projection.includesOcrPayload();
+
+        StringBuilder sql = new StringBuilder("SELECT i.id");
+        appendColumns(sql, INVOICE_ALIAS, projection.headerColumns());
+        if (lineItems) {
+            appendColumns(sql, LINE_ITEM_ALIAS, InvoiceFieldProjection.LINE_ITEM_COLUMNS);
+        }
+        if (ocrPayload) {
+            if (lineItems) {
+                sql.append(", CASE WHEN row_number() OVER (ORDER BY li.line_number, li.id) = 1 THEN p.extracted_text END")
+                   .append(", CASE WHEN row_number() OVER (ORDER BY li.line_number, li.id) = 1 THEN p.raw_payload END");
+            } else {
+                sql.append(", p.extracted_text, p.raw_payload");
+            }
+        }
+
+        sql.append(" FROM mcp_invoice.invoices i");
+        if (lineItems) {
+            sql.append(" LEFT JOIN mcp_invoice.invoice_line_items li ON li.invoice_id = i.id");
+        }
+        if (ocrPayload) {
+            sql.append(" LEFT JOIN mcp_invoice.invoice_ocr_payloads p ON p.invoice_id = i.id");
+        }
+        sql.append(" WHERE i.tenant_id = ? AND i.invoice_number = ?");
+        if (lineItems) {
+            sql.append(" ORDER BY li.line_number, li.id");
+        }
+        return sql.toString();
+    }
+
+    private static void appendColumns(StringBuilder sql, String alias, List<Column> columns) {
+        for (Column column : columns) {
+            sql.append(", ").append(alias).append('.').append(column.name());
+        }
+    }
+
+    private String write(ResultSet rs, InvoiceFieldProjection projection) throws SQLException {
+        StringWriter json = new StringWriter(1024);
+        try (JsonGenerator generator = jsonFactory.createGenerator(json)) {
+            generator.writeStartObject();
+
+            int index = 2;
+            for (Column column : projection.headerColumns()) {
+                generator.writeFieldName(column.field());
+                writeValue(generator, rs, index++, column.type());
+            }
+
+            int lineItemIndex = index;
+            int payloadIndex = index;
+            boolean lineItems = projection.includes(InvoiceFieldProjection.LINE_ITEMS);
+            if (lineItems) {
+                payloadIndex += InvoiceFieldProjection.LINE_ITEM_COLUMNS.size();
+            }
+
+            // Payload columns are only populated on the first row; keep them for after lineItems
+            String extractedText = null;
+            String rawPayload = null;
+            if (projection.includesOcrPayload()) {
+                extractedText = rs.getString(payloadIndex);
+                rawPayload = rs.getString(payloadIndex + 1);
+            }
+
+            if (lineItems) {
+                generator.writeArrayFieldStart(InvoiceFieldProjection.LINE_ITEMS);
+                // LEFT JOIN: a single row with a null line item id means no line items
+                if (rs.getObject(lineItemIndex) != null) {
+                    do {
+                        generator.writeStartObject();
+                        int itemIndex = lineItemIndex;
+                        for (Column column : InvoiceFieldProjection.LINE_ITEM_COLUMNS) {
+                            generator.writeFieldName(column.field());
+                            writeValue(generator, rs, itemIndex++, column.type());
+                        }
+                        generator.writeEndObject();
+                    } while (rs.next());
+                }
+                generator.writeEndArray();
+            }
+
+            if (projection.includes(InvoiceFieldProjection.EXTRACTED_TEXT)) {
+                generator.writeStringField(InvoiceFieldProjection.EXTRACTED_TEXT, extractedText);
+            }
+            if (projection.includes(InvoiceFieldProjection.RAW_OCR_PAYLOAD)) {
+                generator.writeFieldName(InvoiceFieldProjection.RAW_OCR_PAYLOAD);
+                if (rawPayload != null) {
+                    generator.writeRawValue(rawPayload);
+                } else {
+                    generator.writeNull();
+                }
+            }
+
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write invoice JSON", e);
+        }
+        return json.toString();
+    }
+
+    private static void writeValue(JsonGenerator generator, ResultSet rs, int index, InvoiceFieldProjection.ValueType type)
+            throws SQLException, IOException {
+        switch (type) {
+            case NUMBER -> {
+                // Postgres' text form of a numeric is what BigDecimal.toString gives for the same value
+                String value = rs.getString(index);
+                if (value != null) {
+                    generator.writeNumber(value);
+                } else {
+                    generator.writeNull();
+                }
+            }
+            case STRING -> generator.writeString(rs.getString(index));
+            case DATE -> {
+                LocalDate value = rs.getObject(index, LocalDate.class);
+                generator.writeString(value != null ? value.toString() : null);
+            }
+            case TIMESTAMP -> {
+                LocalDateTime value = rs.getObject(index, LocalDateTime.class);
+                generator.writeString(value != null ? DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value) : null);
+            }
+            case JSON -> {
+                String value = rs.getString(index);
+                if (value != null) {
+                    generator.writeRawValue(value);
+                } else {
+                    generator.writeNull();
+                }
+            }
+        }
+    }
+}
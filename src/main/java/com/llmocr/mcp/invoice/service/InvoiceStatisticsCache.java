@@ -0,0 +1,115 @@
+package com.llmocr.mcp.invoice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.llmocr.mcp.invoice.domain.InvoicesPersistedEvent;
+import com.llmocr.mcp.invoice.dto.InvoiceStatistics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Short-lived per-tenant cache of invoice statistics
+ * 
+ * Dashboards and agents poll getInvoiceStatistics every few seconds; this serves repeat
+ * calls from memory for up to the configured TTL. Entries are invalidated:
+ * - on this instance, after the transaction that persisted invoices commits
+ * - on every instance, when the statistics trigger's mcp_invoice_stats notification
+ *   arrives (see InvoiceStatisticsChangeListener)
+ * - entirely, whenever the notification connection is (re)established, since
+ *   notifications sent while it was down are lost
+ * 
+ * The TTL bounds staleness should a notification still go missing. Hit and miss counts
+ * are published as cache.* metrics with cache=mcp.invoice.stats, and the age of each
+ * entry served from the cache as mcp.invoice.stats.cache.age.
+ */
+@Component
+@Slf4j
+public class InvoiceStatisticsCache {
+
+    private final boolean enabled;
+    private final Cache<String, CachedStatistics> cache;
+    private final Timer entryAge;
+    private final MeterRegistry meterRegistry;
+
+    public InvoiceStatisticsCache(
+            MeterRegistry meterRegistry,
+            @Value("${invoice.stats.cache.enabled:true}") boolean enabled,
+            @Value("${invoice.stats.cache.ttl:30s}") Duration ttl,
+            @Value("${invoice.stats.cache.max-size:10000}") long maxSize) {
+        this.enabled = enabled;
+        this.meterRegistry = meterRegistry;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.entryAge = Timer.builder("mcp.invoice.stats.cache.age")
+                .description("Age of invoice statistics served from the cache")
+                .register(meterRegistry);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "mcp.invoice.stats");
+        log.info("Invoice statistics cache {} (TTL {}, max size {})", enabled ? "enabled" : "disabled", ttl, maxSize);
+    }
+
+    /**
+     * Get a tenant's statistics, loading them with the loader on a miss
+     *
+     * Concurrent misses for one tenant share a single load, and an invalidation that
+     * arrives during a load waits for it and then discards the result.
+     */
+    public InvoiceStatistics get(String tenantId, Function<String, InvoiceStatistics> loader) {
+        if (!enabled) {
+            return loader.apply(tenantId);
+        }
+
+        long now = System.nanoTime();
+        CachedStatistics cached = cache.get(tenantId, key -> new CachedStatistics(loader.apply(key), System.nanoTime()));
+        if (cached.loadedAt() < now) {
+            entryAge.record(now - cached.loadedAt(), TimeUnit.NANOSECONDS);
+        }
+        return cached.statistics();
+    }
+
+    public void invalidate(String tenantId, String source) {
+        if (enabled) {
+            cache.invalidate(tenantId);
+            invalidations(source).increment();
+        }
+    }
+
+    public void invalidateAll(String source) {
+        if (enabled) {
+            log.debug("Invalidating all cached invoice statistics ({})", source);
+            cache.invalidateAll();
+            invalidations(source).increment();
+        }
+    }
+
+    /**
+     * Drop this instance's entry once invoices are committed, without waiting for the notification
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInvoicesPersisted(InvoicesPersistedEvent event) {
+        invalidate(event.tenantId(), "local");
+    }
+
+    private Counter invalidations(String source) {
+        return Counter.builder("mcp.invoice.stats.cache.invalidations")
+                .description("Invoice statistics cache invalidations by source")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    private record CachedStatistics(InvoiceStatistics statistics, long loadedAt) {
+    }
+}
@@ -0,0 +1,154 @@
+package com.llmocr.mcp.invoice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Listens for mcp_invoice_stats notifications and invalidates the statistics cache
+ * 
+ * The tenant_invoice_stats trigger sends the tenant id on this channel whenever a
+ * committed write changes its statistics, so invalidations reach every replica, whichever
+ * one (or bulk import, or manual SQL) wrote the invoices.
+ * 
+ * LISTEN needs a session that stays open, so a dedicated connection is opened outside
+ * the pool. If it drops, the whole cache is invalidated and the listener reconnects
+ * after reconnect-interval; until then the cache TTL bounds staleness.
+ */
+@Component
+@ConditionalOnProperty(name = "invoice.stats.cache.listen", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class InvoiceStatisticsChangeListener implements SmartLifecycle {
+
+    public static final String CHANNEL = "mcp_invoice_stats";
+
+    private final InvoiceStatisticsCache statisticsCache;
+    private final DataSourceProperties dataSourceProperties;
+    private final Duration pollTimeout;
+    private final Duration reconnectInterval;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile Connection connection;
+    private volatile Thread listenerThread;
+
+    public InvoiceStatisticsChangeListener(
+            InvoiceStatisticsCache statisticsCache,
+            DataSourceProperties dataSourceProperties,
+            MeterRegistry meterRegistry,
+            @Value("${invoice.stats.cache.listen-poll-timeout:10s}") Duration pollTimeout,
+            @Value("${invoice.stats.cache.reconnect-interval:5s}") Duration reconnectInterval) {
+        this.statisticsCache = statisticsCache;
+        this.dataSourceProperties = dataSourceProperties;
+        this.pollTimeout = pollTimeout;
+        this.reconnectInterval = reconnectInterval;
+
+        Gauge.builder("mcp.invoice.stats.cache.listener.connected", this, listener -> listener.connected ? 1 : 0)
+                .description("Whether the statistics change listener is connected")
+                .register(meterRegistry);
+    }
+
+    private void runListener() {
+        while (running) {
+            try (Connection listenConnection = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+                connection = listenConnection;
+                try (Statement statement = listenConnection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = listenConnection.unwrap(PGConnection.class);
+
+                // Anything committed before LISTEN took effect was never heard
+                connected = true;
+                statisticsCache.invalidateAll("reconnect");
+                log.info("Listening for invoice statistics changes on channel {}", CHANNEL);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeout.toMillis());
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        statisticsCache.invalidate(notification.getParameter(), "notify");
+                    }
+                }
+
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Invoice statistics change listener disconnected, retrying in {}: {}", 
+                            reconnectInterval, e.getMessage());
+                }
+            } finally {
+                connected = false;
+                connection = null;
+                statisticsCache.invalidateAll("disconnect");
+            }
+
+            if (running) {
+                sleep(reconnectInterval);
+            }
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::runListener, "invoice-stats-listener");
+        thread.setDaemon(true);
+        listenerThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = listenerThread;
+        if (thread == null) {
+            return;
+        }
+
+        // Closing the connection wakes up a blocked getNotifications
+        Connection current = connection;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                log.debug("Error closing invoice statistics listener connection: {}", e.getMessage());
+            }
+        }
+        thread.interrupt();
+        try {
+            thread.join(pollTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,322 @@
+package com.llmocr.mcp.invoice.service;
+
+import com.llmocr.mcp.invoice.domain.Invoice.InvoiceStatus;
+import com.llmocr.mcp.invoice.domain.Invoice.ProcessingStatus;
+import com.llmocr.mcp.invoice.dto.CurrencyInvoiceStatistics;
+import com.llmocr.mcp.invoice.dto.InvoiceStatistics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Invoice Statistics Service
+ * 
+ * Serves per-tenant statistics from tenant_invoice_stats, a summary table with one row
+ * per tenant and currency kept up to date by statement-level triggers on invoices (see
+ * changelog 00015), so a statistics call reads a handful of rows by primary key however
+ * many invoices the tenant has.
+ * 
+ * The same figures can be recounted from invoices in a single pass with FILTER
+ * aggregates grouped by currency. A scheduled reconciliation does that for every tenant
+ * and corrects any drift (manual SQL with triggers disabled, restored backups, ...). It
+ * runs on one replica at a time, guarded by a Postgres advisory lock, and takes no row
+ * locks while counting.
+ */
+@Service
+@Slf4j
+public class InvoiceStatisticsService {
+
+    /** Key of the advisory lock that keeps reconciliation to one replica at a time */
+    private static final long RECONCILE_LOCK_KEY = 0x6D63_7053_7461_7473L;
+
+    /** Summary value columns: invoice_count, total_amount, processing_<status>_count, status_<status>_amount */
+    private static final List<String> VALUE_COLUMNS = Stream.of(
+                    Stream.of("invoice_count", "total_amount"),
+                    Arrays.stream(ProcessingStatus.values()).map(InvoiceStatisticsService::countColumn),
+                    Arrays.stream(InvoiceStatus.values()).map(InvoiceStatisticsService::amountColumn))
+            .flatMap(columns -> columns)
+            .toList();
+
+    /** Summary columns, shared by the stats table read and the recount */
+    private static final String STATS_COLUMNS = "currency, " + String.join(", ", VALUE_COLUMNS);
+
+    private static final String RECOUNT_SELECT = "currency, COUNT(*) AS invoice_count, COALESCE(SUM(total_amount), 0) AS total_amount, " +
+            Arrays.stream(ProcessingStatus.values())
+                    .map(status -> "COUNT(*) FILTER (WHERE processing_status = '" + status.name() + "') AS " + countColumn(status))
+                    .collect(Collectors.joining(", ")) + ", " +
+            Arrays.stream(InvoiceStatus.values())
+                    .map(status -> "COALESCE(SUM(total_amount) FILTER (WHERE status = '" + status.name() + "'), 0) AS " + amountColumn(status))
+                    .collect(Collectors.joining(", "));
+
+    private static final String STATS_SQL = "SELECT " + STATS_COLUMNS + " FROM mcp_invoice.tenant_invoice_stats " +
+            "WHERE tenant_id = ? AND invoice_count > 0 ORDER BY currency";
+
+    private static final String STORED_STATS_SQL = "SELECT " + STATS_COLUMNS + " FROM mcp_invoice.tenant_invoice_stats " +
+            "WHERE tenant_id = ? ORDER BY currency";
+
+    private static final String RECOUNT_SQL = "SELECT " + RECOUNT_SELECT + " FROM mcp_invoice.invoices " +
+            "WHERE tenant_id = ? GROUP BY currency ORDER BY currency";
+
+    /** Adds a correction the way the trigger adds a delta, so concurrent deltas are kept */
+    private static final String APPLY_CORRECTION_SQL = "INSERT INTO mcp_invoice.tenant_invoice_stats AS s " +
+            "(tenant_id, " + STATS_COLUMNS + ", updated_at, reconciled_at) " +
+            "VALUES (?, ?, " + VALUE_COLUMNS.stream().map(column -> "?").collect(Collectors.joining(", ")) +
+            ", CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (tenant_id, currency) DO UPDATE SET " +
+            VALUE_COLUMNS.stream().map(column -> column + " = s." + column + " + EXCLUDED." + column)
+                    .collect(Collectors.joining(", ")) +
+            ", updated_at = EXCLUDED.updated_at, reconciled_at = EXCLUDED.reconciled_at";
+
+    private static final RowMapper<CurrencyInvoiceStatistics> ROW_MAPPER = (rs, rowNum) -> {
+        Map<ProcessingStatus, Long> counts = new EnumMap<>(ProcessingStatus.class);
+        for (ProcessingStatus status : ProcessingStatus.values()) {
+            counts.put(status, rs.getLong(countColumn(status)));
+        }
+        Map<InvoiceStatus, BigDecimal> amounts = new EnumMap<>(InvoiceStatus.class);
+        for (InvoiceStatus status : InvoiceStatus.values()) {
+            amounts.put(status, amount(rs.getBigDecimal(amountColumn(status))));
+        }
+        return new CurrencyInvoiceStatistics(rs.getString("currency"), rs.getLong("invoice_count"),
+                amount(rs.getBigDecimal("total_amount")), counts, amounts);
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InvoiceStatisticsCache statisticsCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final Counter driftCounter;
+
+    public InvoiceStatisticsService(JdbcTemplate jdbcTemplate,
+                                    InvoiceStatisticsCache statisticsCache,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statisticsCache = statisticsCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.driftCounter = Counter.builder("mcp.invoice.stats.drift.corrected")
+                .description("Tenant statistics corrected by reconciliation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Current statistics for a tenant from the summary table (via the short-lived cache);
+     * zeros if the tenant has no invoices
+     */
+    public InvoiceStatistics getStatistics(String tenantId) {
+        return statisticsCache.get(tenantId, 
+                key -> InvoiceStatistics.of(jdbcTemplate.query(STATS_SQL, ROW_MAPPER, key)));
+    }
+
+    /**
+     * Statistics for a tenant recounted from invoices in one pass, bypassing the summary table
+     */
+    public InvoiceStatistics recount(String tenantId) {
+        return InvoiceStatistics.of(jdbcTemplate.query(RECOUNT_SQL, ROW_MAPPER, tenantId));
+    }
+
+    /**
+     * Recount every tenant's statistics and correct those that drifted
+     * 
+     * Only the replica holding the advisory lock reconciles; the others skip the round.
+     * The session lock is held on a connection of its own for the duration of the run.
+     */
+    @Scheduled(fixedDelayString = "${invoice.stats.reconcile-interval-ms:3600000}", 
+               initialDelayString = "${invoice.stats.reconcile-interval-ms:3600000}")
+    public void reconcileAll() {
+        try {
+            Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+                if (!advisoryLock(connection, "SELECT pg_try_advisory_lock(?)")) {
+                    return false;
+                }
+                try {
+                    reconcileTenants();
+                    return true;
+                } finally {
+                    advisoryLock(connection, "SELECT pg_advisory_unlock(?)");
+                }
+            });
+            if (!Boolean.TRUE.equals(ran)) {
+                log.debug("Invoice statistics reconciliation is running on another replica, skipping");
+            }
+        } catch (Exception e) {
+            log.warn("Failed to reconcile invoice statistics: {}", e.getMessage());
+        }
+    }
+
+    private void reconcileTenants() {
+        List<String> tenantIds = jdbcTemplate.queryForList(
+                "SELECT tenant_id FROM mcp_invoice.tenants", String.class);
+
+        int corrected = 0;
+        for (String tenantId : tenantIds) {
+            try {
+                if (reconcile(tenantId)) {
+                    corrected++;
+                }
+            } catch (Exception e) {
+                log.warn("Failed to reconcile invoice statistics for tenant {}: {}", tenantId, e.getMessage());
+            }
+        }
+        log.debug("Reconciled invoice statistics for {} tenants, {} corrected", tenantIds.size(), corrected);
+    }
+
+    /**
+     * Recount one tenant's statistics from invoices, correcting its summary rows if needed
+     *
+     * The summary rows and the recount are read from one REPEATABLE READ snapshot, in which
+     * the triggers keep them equal unless they drifted; no locks are taken. A drift is
+     * corrected by adding the snapshot's difference to the current rows, exactly like a
+     * trigger delta, so writes committed since the snapshot are neither lost nor counted
+     * twice.
+     *
+     * @return true if the stored statistics had drifted
+     */
+    public boolean reconcile(String tenantId) {
+        List<List<CurrencyInvoiceStatistics>> snapshot = snapshotTransaction.execute(status -> List.of(
+                jdbcTemplate.query(STORED_STATS_SQL, ROW_MAPPER, tenantId),
+                jdbcTemplate.query(RECOUNT_SQL, ROW_MAPPER, tenantId)));
+        List<CurrencyInvoiceStatistics> stored = snapshot.get(0);
+        List<CurrencyInvoiceStatistics> actual = snapshot.get(1);
+
+        List<CurrencyInvoiceStatistics> corrections = corrections(stored, actual);
+        if (corrections.isEmpty()) {
+            jdbcTemplate.update("UPDATE mcp_invoice.tenant_invoice_stats SET reconciled_at = CURRENT_TIMESTAMP " +
+                    "WHERE tenant_id = ?", tenantId);
+            return false;
+        }
+
+        log.warn("Invoice statistics for tenant {} drifted, correcting: stored {} actual {}", tenantId, stored, actual);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (CurrencyInvoiceStatistics correction : corrections) {
+                jdbcTemplate.update(APPLY_CORRECTION_SQL, correctionArguments(tenantId, correction));
+            }
+            // The correction bypasses the trigger, so tell the statistics caches itself
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, InvoiceStatisticsChangeListener.CHANNEL, tenantId);
+        });
+        driftCounter.increment();
+        return true;
+    }
+
+    /**
+     * Per currency, actual minus stored, for the currencies where they differ
+     */
+    static List<CurrencyInvoiceStatistics> corrections(List<CurrencyInvoiceStatistics> stored,
+                                                       List<CurrencyInvoiceStatistics> actual) {
+        Map<String, CurrencyInvoiceStatistics> storedByCurrency = stored.stream()
+                .collect(Collectors.toMap(CurrencyInvoiceStatistics::currency, Function.identity()));
+        Map<String, CurrencyInvoiceStatistics> actualByCurrency = actual.stream()
+                .collect(Collectors.toMap(CurrencyInvoiceStatistics::currency, Function.identity()));
+        Set<String> currencies = new TreeSet<>(storedByCurrency.keySet());
+        currencies.addAll(actualByCurrency.keySet());
+
+        List<CurrencyInvoiceStatistics> corrections = new ArrayList<>();
+        for (String currency : currencies) {
+            CurrencyInvoiceStatistics correction = subtract(currency, 
+                    actualByCurrency.get(currency), storedByCurrency.get(currency));
+            if (!isZero(correction)) {
+                corrections.add(correction);
+            }
+        }
+        return corrections;
+    }
+
+    private static CurrencyInvoiceStatistics subtract(String currency, CurrencyInvoiceStatistics actual,
+                                                      CurrencyInvoiceStatistics stored) {
+        Map<ProcessingStatus, Long> counts = new EnumMap<>(ProcessingStatus.class);
+        for (ProcessingStatus status : ProcessingStatus.values()) {
+            counts.put(status, count(actual, status) - count(stored, status));
+        }
+        Map<InvoiceStatus, BigDecimal> amounts = new EnumMap<>(InvoiceStatus.class);
+        for (InvoiceStatus status : InvoiceStatus.values()) {
+            amounts.put(status, amount(actual, status).subtract(amount(stored, status)));
+        }
+        long invoiceCount = (actual != null ? actual.invoiceCount() : 0) - (stored != null ? stored.invoiceCount() : 0);
+        BigDecimal totalAmount = (actual != null ? actual.totalAmount() : BigDecimal.ZERO)
+                .subtract(stored != null ? stored.totalAmount() : BigDecimal.ZERO);
+        return new CurrencyInvoiceStatistics(currency, invoiceCount, totalAmount, counts, amounts);
+    }
+
+    private static boolean isZero(CurrencyInvoiceStatistics delta) {
+        return delta.invoiceCount() == 0
+                && delta.totalAmount().signum() == 0
+                && delta.processingStatusCounts().values().stream().allMatch(count -> count == 0)
+                && delta.statusAmounts().values().stream().allMatch(amount -> amount.signum() == 0);
+    }
+
+    private static long count(CurrencyInvoiceStatistics statistics, ProcessingStatus status) {
+        return statistics != null ? statistics.processingStatusCounts().get(status) : 0;
+    }
+
+    private static BigDecimal amount(CurrencyInvoiceStatistics statistics, InvoiceStatus status) {
+        return statistics != null ? statistics.statusAmounts().get(status) : BigDecimal.ZERO;
+    }
+
+    /**
+     * Arguments for APPLY_CORRECTION_SQL, in VALUE_COLUMNS order
+     */
+    private static Object[] correctionArguments(String tenantId, CurrencyInvoiceStatistics correction) {
+        List<Object> arguments = new ArrayList<>();
+        arguments.add(tenantId);
+        arguments.add(correction.currency());
+        arguments.add(correction.invoiceCount());
+        arguments.add(correction.totalAmount());
+        for (ProcessingStatus status : ProcessingStatus.values()) {
+            arguments.add(correction.processingStatusCounts().get(status));
+        }
+        for (InvoiceStatus status : InvoiceStatus.values()) {
+            arguments.add(correction.statusAmounts().get(status));
+        }
+        return arguments.toArray();
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, RECONCILE_LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static String countColumn(ProcessingStatus status) {
+        return "processing_" + status.name().toLowerCase(Locale.ROOT) + "_count";
+    }
+
+    private static String amountColumn(InvoiceStatus status) {
+        return "status_" + status.name().toLowerCase(Locale.ROOT) + "_amount";
+    }
+
+    private static BigDecimal amount(BigDecimal value) {
+        // Summary columns and recounted sums differ in scale; normalise so they compare equal
+        return value == null ? BigDecimal.ZERO.setScale(2) : value.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -1,23 +1,43 @@
 package com.llmocr.mcp.invoice.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmocr.mcp.invoice.document.DocumentChunk;
+import com.llmocr.mcp.invoice.document.DocumentService;
 import com.llmocr.mcp.invoice.domain.Invoice;
-import com.llmocr.mcp.invoice.domain.InvoiceLineItem;
+import com.llmocr.mcp.invoice.domain.InvoiceOcrPayload;
+import com.llmocr.mcp.invoice.domain.InvoicesPersistedEvent;
+import com.llmocr.mcp.invoice.dto.InvoiceBatchItemResult;
+import com.llmocr.mcp.invoice.dto.InvoiceInput;
+import com.llmocr.mcp.invoice.dto.InvoiceLineItemInput;
+import com.llmocr.mcp.invoice.dto.InvoicePage;
+import com.llmocr.mcp.invoice.dto.InvoiceSearchHit;
+import com.llmocr.mcp.invoice.dto.InvoiceStatistics;
+import com.llmocr.mcp.invoice.dto.InvoiceSummary;
+import com.llmocr.mcp.invoice.duplicate.DuplicateDetectionService;
+import com.llmocr.mcp.invoice.duplicate.DuplicateMatch;
+import com.llmocr.mcp.invoice.repository.InvoiceOcrPayloadRepository;
 import com.llmocr.mcp.invoice.repository.InvoiceRepository;
+import com.llmocr.mcp.invoice.search.InMemoryInvoiceSearchIndex;
+import com.llmocr.mcp.invoice.search.InvoiceSearchService;
 import com.llmocr.mcp.invoice.security.McpSecurityContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Invoice Tool Service for Stateless MCP Server
@@ -33,22 +53,48 @@ import java.util.Map;
 @Slf4j
 public class InvoiceToolService {
 
+    private static final String CREATED_AT_ORDERING = "created";
+    private static final String INVOICE_DATE_ORDERING = "date";
+
     private final InvoiceRepository invoiceRepository;
+    private final InvoiceJsonReader invoiceJsonReader;
+    private final InvoiceOcrPayloadRepository invoiceOcrPayloadRepository;
     private final InvoiceValidationService invoiceValidationService;
+    private final InvoiceInputMapper invoiceInputMapper;
+    private final InvoiceBatchService invoiceBatchService;
+    private final DuplicateDetectionService duplicateDetectionService;
+    private final InvoiceStatisticsService invoiceStatisticsService;
+    private final InvoiceSearchService invoiceSearchService;
+    private final InMemoryInvoiceSearchIndex inMemoryInvoiceSearchIndex;
+    private final DocumentService documentService;
     private final McpAuditService mcpAuditService;
+    private final ApplicationEventPublisher eventPublisher;
     private final ObjectMapper objectMapper;
 
+    @Value("${invoice.listing.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${invoice.listing.max-page-size:200}")
+    private int maxPageSize;
+
     /**
      * Process and store a new invoice from extracted data
      * 
      * Uses Spring AI @Tool annotation for automatic MCP tool registration
      * with the stateless MCP server framework.
      */
-    @Tool(description = "Process and store a new invoice from extracted data. Returns the created invoice ID or error details.")
+    @Tool(description = "Process and store a new invoice from extracted data, optionally with its line items, " +
+            "the full OCR text and the raw OCR engine output. Returns the created invoice ID, DUPLICATE if the invoice number already exists, or error details.")
     @Transactional
     public String processInvoice(String invoiceNumber, String vendorName, String vendorAddress,
                                String customerName, String invoiceDate, String dueDate,
-                               String totalAmount, String currency, String description) {
+                               String totalAmount, String currency, String description,
+                               @ToolParam(required = false, description = "Line items in invoice order") 
+                               List<InvoiceLineItemInput> lineItems,
+                               @ToolParam(required = false, description = "Full OCR text of the source document") 
+                               String extractedText,
+                               @ToolParam(required = false, description = "Raw OCR engine output (pages, blocks, confidences)") 
+                               Map<String, Object> rawOcrPayload) {
         
         long startTime = System.currentTimeMillis();
         
@@ -66,40 +112,10 @@ public class InvoiceToolService {
         try {
             log.info("Processing invoice {} for tenant {} by user {}", invoiceNumber, tenantId, userId);
 
-            // Validate required fields
-            if (invoiceNumber == null || invoiceNumber.trim().isEmpty()) {
-                throw new IllegalArgumentException("Invoice number is required");
-            }
-            if (vendorName == null || vendorName.trim().isEmpty()) {
-                throw new IllegalArgumentException("Vendor name is required");
-            }
-            if (totalAmount == null || totalAmount.trim().isEmpty()) {
-                throw new IllegalArgumentException("Total amount is required");
-            }
-
-            // Check for duplicates (tenant-isolated)
-            if (invoiceRepository.existsByTenantIdAndInvoiceNumber(tenantId, invoiceNumber)) {
-                String message = String.format("Invoice %s already exists for tenant %s", invoiceNumber, tenantId);
-                mcpAuditService.logOperation("TOOL_CALL", "processInvoice", false, message, startTime);
-                return "ERROR: " + message;
-            }
-
-            // Create invoice entity
-            Invoice invoice = Invoice.builder()
-                    .tenantId(tenantId)
-                    .invoiceNumber(invoiceNumber.trim())
-                    .vendorName(vendorName.trim())
-                    .vendorAddress(vendorAddress)
-                    .customerName(customerName)
-                    .invoiceDate(parseDate(invoiceDate))
-                    .dueDate(parseDate(dueDate))
-                    .totalAmount(parseCurrencyAmount(totalAmount))
-                    .currency(currency != null ? currency : "USD")
-                    .description(description)
-                    .status(Invoice.InvoiceStatus.PENDING)
-                    .processingStatus(Invoice.ProcessingStatus.NEW)
-                    .createdBy(userId)
-                    .build();
+            // Create invoice entity (validates required fields)
+            InvoiceInput input = new InvoiceInput(invoiceNumber, vendorName, vendorAddress, customerName,
+                    invoiceDate, dueDate, totalAmount, currency, description, lineItems);
+            Invoice invoice = invoiceInputMapper.toInvoice(input, tenantId, userId);
 
             // Validate invoice
             List<String> validationErrors = invoiceValidationService.validateInvoice(invoice);
@@ -109,16 +125,42 @@ public class InvoiceToolService {
                 return "ERROR: " + errorMessage;
             }
 
-            // Save invoice
-            Invoice savedInvoice = invoiceRepository.save(invoice);
+            // Flag (but still store) likely duplicates: OCR-garbled numbers, vendor variants, near amounts
+            List<DuplicateMatch> possibleDuplicates = duplicateDetectionService.flagIfDuplicate(invoice);
+
+            // Insert unless the number exists (tenant-isolated): one atomic statement, safe under concurrent submissions
+            Optional<Long> invoiceId = invoiceRepository.insertIfAbsent(invoice);
+            if (invoiceId.isEmpty()) {
+                String message = String.format("Invoice %s already exists for tenant %s", invoiceNumber, tenantId);
+                mcpAuditService.logOperation("TOOL_CALL", "processInvoice", false, message, startTime);
+                return "DUPLICATE: " + message;
+            }
+
+            // OCR output goes to its own table so it never rides along with invoice header reads
+            if (extractedText != null || rawOcrPayload != null) {
+                invoiceOcrPayloadRepository.save(InvoiceOcrPayload.builder()
+                        .invoiceId(invoiceId.get())
+                        .tenantId(tenantId)
+                        .extractedText(extractedText)
+                        .rawPayload(rawOcrPayload)
+                        .build());
+            }
+            eventPublisher.publishEvent(InvoicesPersistedEvent.of(tenantId, List.of(invoice)));
             
             mcpAuditService.logOperation("TOOL_CALL", "processInvoice", true, 
                     "Invoice processed successfully", startTime);
 
             log.info("Successfully processed invoice {} with ID {} for tenant {}", 
-                    invoiceNumber, savedInvoice.getId(), tenantId);
+                    invoiceNumber, invoiceId.get(), tenantId);
+
+            if (!possibleDuplicates.isEmpty()) {
+                log.info("Invoice {} for tenant {} flagged as possible duplicate of invoice {} (score {})", 
+                        invoiceNumber, tenantId, possibleDuplicates.get(0).invoiceNumber(), possibleDuplicates.get(0).score());
+                return String.format("SUCCESS: Invoice processed with ID %d, flagged as possible duplicate of invoice %s (ID %d)", 
+                        invoiceId.get(), possibleDuplicates.get(0).invoiceNumber(), possibleDuplicates.get(0).invoiceId());
+            }
 
-            return String.format("SUCCESS: Invoice processed with ID %d", savedInvoice.getId());
+            return String.format("SUCCESS: Invoice processed with ID %d", invoiceId.get());
 
         } catch (Exception e) {
             log.error("Failed to process invoice {} for tenant {}: {}", invoiceNumber, tenantId, e.getMessage(), e);
@@ -127,6 +169,62 @@ public class InvoiceToolService {
         }
     }
 
+    /**
+     * Process and store many extracted invoices in one call
+     * 
+     * Replaces hundreds of processInvoice calls from the OCR pipeline with a single
+     * authenticated call, one duplicate query and batched inserts. Each invoice gets
+     * its own result; one invalid or duplicate invoice does not fail the batch.
+     */
+    @Tool(description = "Process and store a batch of invoices from extracted data. Returns JSON with a per-invoice result " +
+            "(CREATED with invoice ID, DUPLICATE, INVALID or ERROR) or error details.")
+    public String processInvoiceBatch(
+            @ToolParam(description = "Invoices to store; each uses the same fields as processInvoice") List<InvoiceInput> invoices) {
+
+        long startTime = System.currentTimeMillis();
+
+        String tenantId = McpSecurityContext.getCurrentTenantId();
+        String userId = McpSecurityContext.getCurrentUserId();
+
+        if (!McpSecurityContext.isAuthenticated()) {
+            String errorMessage = "Unauthorized: Valid Bearer token required";
+            mcpAuditService.logOperation("TOOL_CALL", "processInvoiceBatch", false, errorMessage, startTime);
+            return "ERROR: " + errorMessage;
+        }
+
+        try {
+            log.info("Processing batch of {} invoices for tenant {} by user {}", 
+                    invoices != null ? invoices.size() : 0, tenantId, userId);
+
+            List<InvoiceBatchItemResult> results = invoiceBatchService.processBatch(invoices, tenantId, userId);
+
+            Map<InvoiceBatchItemResult.Status, Long> counts = new EnumMap<>(InvoiceBatchItemResult.Status.class);
+            for (InvoiceBatchItemResult.Status status : InvoiceBatchItemResult.Status.values()) {
+                counts.put(status, 0L);
+            }
+            results.forEach(result -> counts.merge(result.status(), 1L, Long::sum));
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("total", results.size());
+            response.put("created", counts.get(InvoiceBatchItemResult.Status.CREATED));
+            response.put("duplicates", counts.get(InvoiceBatchItemResult.Status.DUPLICATE));
+            response.put("invalid", counts.get(InvoiceBatchItemResult.Status.INVALID));
+            response.put("errors", counts.get(InvoiceBatchItemResult.Status.ERROR));
+            response.put("results", results);
+
+            mcpAuditService.logOperation("TOOL_CALL", "processInvoiceBatch", true, 
+                    String.format("Invoice batch processed: %d of %d created", 
+                            counts.get(InvoiceBatchItemResult.Status.CREATED), results.size()), startTime);
+
+            return "SUCCESS: " + objectMapper.writeValueAsString(response);
+
+        } catch (Exception e) {
+            log.error("Failed to process invoice batch for tenant {}: {}", tenantId, e.getMessage(), e);
+            mcpAuditService.logOperation("TOOL_CALL", "processInvoiceBatch", false, e.getMessage(), startTime);
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
     /**
      * Check if an invoice exists by invoice number
      */
@@ -151,6 +249,7 @@ public class InvoiceToolService {
                 throw new IllegalArgumentException("Invoice number is required");
             }
 
+            // Always the database: a Bloom filter negative can miss another replica's recent insert
             boolean exists = invoiceRepository.existsByTenantIdAndInvoiceNumber(tenantId, invoiceNumber.trim());
             
             log.debug("Invoice existence check completed for {}: {}", invoiceNumber, exists);
@@ -165,10 +264,17 @@ public class InvoiceToolService {
 
     /**
      * Get invoice details by invoice number
+     * 
+     * One query selects only the requested fields (joining line items and the OCR
+     * payload when asked for) and the JSON is written straight from the result set,
+     * without loading the Invoice entity.
      */
-    @Tool(description = "Get invoice details by invoice number. Returns JSON invoice data or error details.")
-    @Transactional(readOnly = true)
-    public String getInvoiceByNumber(String invoiceNumber) {
+    @Tool(description = "Get invoice details by invoice number. Returns JSON invoice data or error details. " +
+            "By default returns all invoice fields and lineItems but not the OCR output; name fields to get only those, " +
+            "and include extractedText or rawOcrPayload to get the document's OCR text or raw OCR output.")
+    public String getInvoiceByNumber(String invoiceNumber,
+            @ToolParam(required = false, description = "Comma-separated fields to return, e.g. " +
+                    "\"invoiceNumber,vendorName,totalAmount,status\" or \"id,extractedText\"") String fields) {
         long startTime = System.currentTimeMillis();
         
         String tenantId = McpSecurityContext.getCurrentTenantId();
@@ -186,24 +292,22 @@ public class InvoiceToolService {
             if (invoiceNumber == null || invoiceNumber.trim().isEmpty()) {
                 throw new IllegalArgumentException("Invoice number is required");
             }
+            InvoiceFieldProjection projection = InvoiceFieldProjection.parse(fields);
 
-            var invoiceOpt = invoiceRepository.findByTenantIdAndInvoiceNumber(tenantId, invoiceNumber.trim());
+            Optional<String> json = invoiceJsonReader.read(tenantId, invoiceNumber.trim(), projection);
             
-            if (invoiceOpt.isEmpty()) {
+            if (json.isEmpty()) {
                 mcpAuditService.logOperation("TOOL_CALL", "getInvoiceByNumber", true, 
                         "Invoice not found", startTime);
                 return "NOT_FOUND: Invoice not found";
             }
-
-            Invoice invoice = invoiceOpt.get();
-            String jsonResult = objectMapper.writeValueAsString(invoice);
             
             mcpAuditService.logOperation("TOOL_CALL", "getInvoiceByNumber", true, 
                     "Invoice retrieved successfully", startTime);
 
-            return "SUCCESS: " + jsonResult;
+            return "SUCCESS: " + json.get();
 
-        } catch (JsonProcessingException e) {
+        } catch (IllegalStateException e) {
             log.error("Failed to serialize invoice {} for tenant {}: {}", invoiceNumber, tenantId, e.getMessage(), e);
             mcpAuditService.logOperation("TOOL_CALL", "getInvoiceByNumber", false, e.getMessage(), startTime);
             return "ERROR: Failed to serialize invoice data";
@@ -217,7 +321,7 @@ public class InvoiceToolService {
     /**
      * Get invoice statistics for the current tenant
      */
-    @Tool(description = "Get invoice statistics for the current tenant. Returns JSON statistics or error details.")
+    @Tool(description = "Get invoice statistics for the current tenant: totals plus, per currency, counts by processing status and amounts by invoice status. Returns JSON statistics or error details.")
     @Transactional(readOnly = true)
     public String getInvoiceStatistics() {
         long startTime = System.currentTimeMillis();
@@ -234,21 +338,12 @@ public class InvoiceToolService {
         try {
             log.debug("Getting invoice statistics for tenant {} by user {}", tenantId, userId);
 
-            long totalCount = invoiceRepository.countByTenantId(tenantId);
-            long pendingCount = invoiceRepository.countByTenantIdAndProcessingStatus(tenantId, Invoice.ProcessingStatus.NEW);
-            long processedCount = invoiceRepository.countByTenantIdAndProcessingStatus(tenantId, Invoice.ProcessingStatus.COMPLETED);
-            
-            BigDecimal totalApprovedAmount = invoiceRepository.sumTotalAmountByTenantIdAndStatus(tenantId, Invoice.InvoiceStatus.APPROVED);
-            if (totalApprovedAmount == null) totalApprovedAmount = BigDecimal.ZERO;
+            InvoiceStatistics statistics = invoiceStatisticsService.getStatistics(tenantId);
 
-            String statistics = String.format(
-                    "{\"totalInvoices\": %d, \"pendingInvoices\": %d, \"processedInvoices\": %d, \"totalApprovedAmount\": \"%s\"}",
-                    totalCount, pendingCount, processedCount, totalApprovedAmount.toString());
-            
             mcpAuditService.logOperation("TOOL_CALL", "getInvoiceStatistics", true, 
                     "Statistics retrieved successfully", startTime);
 
-            return "SUCCESS: " + statistics;
+            return "SUCCESS: " + objectMapper.writeValueAsString(statistics);
 
         } catch (Exception e) {
             log.error("Failed to get invoice statistics for tenant {}: {}", tenantId, e.getMessage(), e);
@@ -258,67 +353,198 @@ public class InvoiceToolService {
     }
 
     /**
-     * Parse currency amount string to BigDecimal, removing currency symbols
+     * List the tenant's invoices, newest first, one keyset page at a time
      */
-    private BigDecimal parseCurrencyAmount(String amountStr) {
-        if (amountStr == null || amountStr.trim().isEmpty()) {
-            throw new IllegalArgumentException("Amount cannot be null or empty");
+    @Tool(description = "List invoices for the current tenant, most recently created first. Returns JSON with up to " +
+            "'limit' invoice summaries and a nextCursor; pass nextCursor back as 'cursor' to get the next page " +
+            "(null on the last page). Returns error details on failure.")
+    @Transactional(readOnly = true)
+    public String listInvoices(
+            @ToolParam(required = false, description = "Cursor from the previous page, omit for the first page") String cursor,
+            @ToolParam(required = false, description = "Page size, default 50") Integer limit) {
+        long startTime = System.currentTimeMillis();
+        
+        String tenantId = McpSecurityContext.getCurrentTenantId();
+        
+        if (!McpSecurityContext.isAuthenticated()) {
+            String errorMessage = "Unauthorized: Valid Bearer token required";
+            mcpAuditService.logOperation("TOOL_CALL", "listInvoices", false, errorMessage, startTime);
+            return "ERROR: " + errorMessage;
         }
         
         try {
-            // Remove common currency symbols and whitespace
-            String cleanAmount = amountStr.trim()
-                    .replaceAll("[$€£¥₹]", "")  // Remove currency symbols
-                    .replaceAll("[,\\s]", "")   // Remove commas and spaces
-                    .trim();
-            
-            if (cleanAmount.isEmpty()) {
-                throw new IllegalArgumentException("No numeric value found in amount: " + amountStr);
-            }
+            int pageSize = pageSize(limit);
+            InvoiceCursor after = InvoiceCursor.decode(cursor, CREATED_AT_ORDERING);
+
+            // Fetch one extra row to know whether there is a next page without counting
+            List<InvoiceSummary> rows = after == null
+                    ? invoiceRepository.findFirstPageByCreatedAt(tenantId, Limit.of(pageSize + 1))
+                    : invoiceRepository.findPageByCreatedAtAfter(tenantId, LocalDateTime.parse(after.sortValue()), 
+                            after.id(), Limit.of(pageSize + 1));
+
+            InvoicePage page = toPage(rows, pageSize, 
+                    last -> new InvoiceCursor(CREATED_AT_ORDERING, last.createdAt().toString(), last.id()));
             
-            log.debug("Parsed currency amount '{}' to '{}'", amountStr, cleanAmount);
-            return new BigDecimal(cleanAmount);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid amount format: " + amountStr + " - " + e.getMessage());
+            mcpAuditService.logOperation("TOOL_CALL", "listInvoices", true, 
+                    "Listed " + page.invoices().size() + " invoices", startTime);
+
+            return "SUCCESS: " + objectMapper.writeValueAsString(page);
+
+        } catch (Exception e) {
+            log.error("Failed to list invoices for tenant {}: {}", tenantId, e.getMessage(), e);
+            mcpAuditService.logOperation("TOOL_CALL", "listInvoices", false, e.getMessage(), startTime);
+            return "ERROR: " + e.getMessage();
         }
     }
 
     /**
-     * Parse date string to LocalDate with support for multiple formats
+     * List the tenant's invoices in an invoice date range, latest invoice date first
      */
-    private LocalDate parseDate(String dateStr) {
-        if (dateStr == null || dateStr.trim().isEmpty()) {
-            return null;
+    @Tool(description = "Search invoices for the current tenant by invoice date range (YYYY-MM-DD, both optional and " +
+            "inclusive), latest invoice date first. Returns JSON with up to 'limit' invoice summaries and a nextCursor; " +
+            "pass nextCursor back as 'cursor' with the same dates to get the next page (null on the last page). " +
+            "Returns error details on failure.")
+    @Transactional(readOnly = true)
+    public String listInvoicesByDate(
+            @ToolParam(required = false, description = "Earliest invoice date (YYYY-MM-DD)") String startDate,
+            @ToolParam(required = false, description = "Latest invoice date (YYYY-MM-DD)") String endDate,
+            @ToolParam(required = false, description = "Cursor from the previous page, omit for the first page") String cursor,
+            @ToolParam(required = false, description = "Page size, default 50") Integer limit) {
+        long startTime = System.currentTimeMillis();
+        
+        String tenantId = McpSecurityContext.getCurrentTenantId();
+        
+        if (!McpSecurityContext.isAuthenticated()) {
+            String errorMessage = "Unauthorized: Valid Bearer token required";
+            mcpAuditService.logOperation("TOOL_CALL", "listInvoicesByDate", false, errorMessage, startTime);
+            return "ERROR: " + errorMessage;
         }
         
-        String trimmed = dateStr.trim();
+        try {
+            int pageSize = pageSize(limit);
+            LocalDate start = startDate == null || startDate.isBlank() ? LocalDate.of(1, 1, 1) : invoiceInputMapper.parseDate(startDate);
+            LocalDate end = endDate == null || endDate.isBlank() ? LocalDate.of(9999, 12, 31) : invoiceInputMapper.parseDate(endDate);
+            InvoiceCursor after = InvoiceCursor.decode(cursor, INVOICE_DATE_ORDERING);
+
+            List<InvoiceSummary> rows = after == null
+                    ? invoiceRepository.findFirstPageByInvoiceDate(tenantId, start, end, Limit.of(pageSize + 1))
+                    : invoiceRepository.findPageByInvoiceDateAfter(tenantId, start, end, 
+                            LocalDate.parse(after.sortValue()), after.id(), Limit.of(pageSize + 1));
+
+            InvoicePage page = toPage(rows, pageSize, 
+                    last -> new InvoiceCursor(INVOICE_DATE_ORDERING, last.invoiceDate().toString(), last.id()));
+            
+            mcpAuditService.logOperation("TOOL_CALL", "listInvoicesByDate", true, 
+                    "Listed " + page.invoices().size() + " invoices", startTime);
+
+            return "SUCCESS: " + objectMapper.writeValueAsString(page);
+
+        } catch (Exception e) {
+            log.error("Failed to list invoices by date for tenant {}: {}", tenantId, e.getMessage(), e);
+            mcpAuditService.logOperation("TOOL_CALL", "listInvoicesByDate", false, e.getMessage(), startTime);
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Ranked free-text search over the tenant's invoices
+     */
+    @Tool(description = "Search invoices for the current tenant by free text. Plain words match whole words of the " +
+            "invoice number, vendor, customer or description, all words required; extracted document text and parts " +
+            "of invoice numbers or names may only be searched when no invoice matches the whole words. Quoted " +
+            "phrases, -exclusions and OR are supported and always search everything. Returns JSON with up to " +
+            "'limit' ranked matches (invoice summary and score, best first) or error details.")
+    @Transactional(readOnly = true)
+    public String searchInvoices(
+            @ToolParam(description = "Search text") String query,
+            @ToolParam(required = false, description = "Maximum number of results, default 50") Integer limit) {
+        long startTime = System.currentTimeMillis();
+        
+        String tenantId = McpSecurityContext.getCurrentTenantId();
         
-        // List of supported date formats (most common first)
-        DateTimeFormatter[] formatters = {
-            DateTimeFormatter.ofPattern("yyyy-MM-dd"),     // 2025-09-01
-            DateTimeFormatter.ofPattern("MM/dd/yyyy"),     // 09/01/2025
-            DateTimeFormatter.ofPattern("dd/MM/yyyy"),     // 01/09/2025
-            DateTimeFormatter.ofPattern("MM-dd-yyyy"),     // 09-01-2025
-            DateTimeFormatter.ofPattern("dd-MM-yyyy"),     // 01-09-2025
-            DateTimeFormatter.ofPattern("yyyy/MM/dd"),     // 2025/09/01
-            DateTimeFormatter.ofPattern("dd.MM.yyyy"),     // 01.09.2025
-            DateTimeFormatter.ofPattern("MMM dd, yyyy"),   // Sep 01, 2025
-            DateTimeFormatter.ofPattern("dd MMM yyyy"),    // 01 Sep 2025
-            DateTimeFormatter.ofPattern("MMMM dd, yyyy"),  // September 01, 2025
-        };
+        if (!McpSecurityContext.isAuthenticated()) {
+            String errorMessage = "Unauthorized: Valid Bearer token required";
+            mcpAuditService.logOperation("TOOL_CALL", "searchInvoices", false, errorMessage, startTime);
+            return "ERROR: " + errorMessage;
+        }
         
-        // Try each formatter
-        for (DateTimeFormatter formatter : formatters) {
-            try {
-                return LocalDate.parse(trimmed, formatter);
-            } catch (DateTimeParseException e) {
-                // Continue to next formatter
+        try {
+            if (query == null || query.isBlank()) {
+                throw new IllegalArgumentException("Search query is required");
             }
+            int maxResults = pageSize(limit);
+            // Plain queries of tenants with an in-memory index that match there skip the database round trip
+            List<InvoiceSearchHit> hits = inMemoryInvoiceSearchIndex.search(tenantId, query, maxResults)
+                    .orElseGet(() -> invoiceSearchService.search(tenantId, query, maxResults));
+            
+            mcpAuditService.logOperation("TOOL_CALL", "searchInvoices", true, 
+                    "Search matched " + hits.size() + " invoices", startTime);
+
+            return "SUCCESS: " + objectMapper.writeValueAsString(hits);
+
+        } catch (Exception e) {
+            log.error("Failed to search invoices for tenant {}: {}", tenantId, e.getMessage(), e);
+            mcpAuditService.logOperation("TOOL_CALL", "searchInvoices", false, e.getMessage(), startTime);
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Read a byte range of a stored source document
+     */
+    @Tool(description = "Read part of a source document stored for the current tenant (uploaded to /mcp/documents), " +
+            "by its SHA-256. Returns JSON with the document's name, content type and total size, and the requested " +
+            "bytes base64-encoded in 'data' (one bounded chunk per call; continue from offset + length until it " +
+            "reaches size), or error details.")
+    public String readDocument(
+            @ToolParam(description = "SHA-256 of the document (64 hex digits), e.g. from an invoice's sourceFilePath") String sha256,
+            @ToolParam(required = false, description = "Byte offset to start at, default 0") Long offset,
+            @ToolParam(required = false, description = "Number of bytes to read; defaults to and is capped at the server's chunk size, the response's length is what was returned") Long length) {
+        long startTime = System.currentTimeMillis();
+        
+        String tenantId = McpSecurityContext.getCurrentTenantId();
+        
+        if (!McpSecurityContext.isAuthenticated()) {
+            String errorMessage = "Unauthorized: Valid Bearer token required";
+            mcpAuditService.logOperation("TOOL_CALL", "readDocument", false, errorMessage, startTime);
+            return "ERROR: " + errorMessage;
         }
         
-        // If all formatters fail, provide helpful error message
-        throw new IllegalArgumentException("Invalid date format: '" + dateStr + "'. " +
-                "Supported formats: YYYY-MM-DD, MM/DD/YYYY, DD/MM/YYYY, MM-DD-YYYY, DD-MM-YYYY, " +
-                "YYYY/MM/DD, DD.MM.YYYY, MMM DD, YYYY, DD MMM YYYY, MMMM DD, YYYY");
+        try {
+            Optional<DocumentChunk> chunk = documentService.readChunk(tenantId, sha256, offset, length);
+            if (chunk.isEmpty()) {
+                mcpAuditService.logOperation("TOOL_CALL", "readDocument", true, "Document not found", startTime);
+                return "NOT_FOUND: Document not found";
+            }
+            
+            mcpAuditService.logOperation("TOOL_CALL", "readDocument", true, 
+                    "Read " + chunk.get().length() + " bytes", startTime);
+
+            return "SUCCESS: " + objectMapper.writeValueAsString(chunk.get());
+
+        } catch (Exception e) {
+            log.error("Failed to read document {} for tenant {}: {}", sha256, tenantId, e.getMessage(), e);
+            mcpAuditService.logOperation("TOOL_CALL", "readDocument", false, e.getMessage(), startTime);
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxPageSize);
+        }
+        return limit;
+    }
+
+    private static InvoicePage toPage(List<InvoiceSummary> rows, int pageSize, 
+                                      Function<InvoiceSummary, InvoiceCursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new InvoicePage(rows, null);
+        }
+        List<InvoiceSummary> invoices = rows.subList(0, pageSize);
+        return new InvoicePage(invoices, cursorOf.apply(invoices.get(pageSize - 1)).encode());
     }
 }
@@ -1,6 +1,7 @@
 package com.llmocr.mcp.invoice.service;
 
 import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.domain.InvoiceLineItem;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -88,6 +89,15 @@ public class InvoiceValidationService {
 
         // Validate line items if present
         if (invoice.getLineItems() != null && !invoice.getLineItems().isEmpty()) {
+            for (InvoiceLineItem item : invoice.getLineItems()) {
+                if (item.getDescription() == null || item.getDescription().isEmpty()) {
+                    errors.add("Line item " + item.getLineNumber() + ": description is required");
+                }
+                if (item.getLineTotal() == null) {
+                    errors.add("Line item " + item.getLineNumber() + ": line total or quantity and unit price is required");
+                }
+            }
+
             BigDecimal lineItemsTotal = invoice.getLineItems().stream()
                     .map(item -> item.getLineTotal() != null ? item.getLineTotal() : BigDecimal.ZERO)
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
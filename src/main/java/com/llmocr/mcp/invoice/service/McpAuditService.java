@@ -1,18 +1,24 @@
 package com.llmocr.mcp.invoice.service;
 
+import com.llmocr.mcp.invoice.audit.AsyncAuditWriter;
+import com.llmocr.mcp.invoice.audit.AuditEvent;
 import com.llmocr.mcp.invoice.domain.McpAuditLog;
 import com.llmocr.mcp.invoice.repository.McpAuditLogRepository;
 import com.llmocr.mcp.invoice.security.McpSecurityContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 // Removed MCP annotation dependency - using REST controller approach
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * MCP Audit Service
@@ -25,32 +31,56 @@ import java.util.Map;
 public class McpAuditService {
 
     private final McpAuditLogRepository auditLogRepository;
-
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    private final Optional<AsyncAuditWriter> asyncAuditWriter;
+    private final PlatformTransactionManager transactionManager;
+
+    /** Audit rows need a tenant; unauthenticated calls are recorded against this one */
+    @Value("${multitenancy.default-tenant:default}")
+    private String defaultTenantId;
+
+    /**
+     * Record an MCP operation in the audit log
+     * 
+     * Request context is captured on the calling thread; the write itself is handed to
+     * the asynchronous batched audit writer (or, if audit.async.enabled is false, done
+     * synchronously in its own transaction).
+     */
     public void logOperation(String operationType, String toolName, boolean success, String message, long startTime) {
         try {
             String tenantId = McpSecurityContext.getCurrentTenantId();
+            if (tenantId == null) {
+                // Rejected before a tenant was resolved; mcp_audit_log.tenant_id is NOT NULL
+                tenantId = defaultTenantId;
+            }
             String userId = McpSecurityContext.getCurrentUserId();
             String clientId = McpSecurityContext.getCurrentClientId();
+            if (clientId == null) {
+                // Fall back to the claims the auth filter already parsed (e.g. rejected tokens)
+                clientId = McpSecurityContext.getCurrentTokenClaims().clientId();
+            }
             
             long executionTime = System.currentTimeMillis() - startTime;
 
-            McpAuditLog auditLog = McpAuditLog.builder()
-                    .tenantId(tenantId)
-                    .clientId(clientId)
-                    .operationType(McpAuditLog.OperationType.valueOf(operationType))
-                    .toolName(toolName)
-                    .success(success)
-                    .errorMessage(success ? null : message)
-                    .executionTimeMs(executionTime)
-                    .createdBy(userId)
-                    .ipAddress(McpSecurityContext.getClientIpAddress())
-                    .userAgent("MCP-Server/1.0")  // Default user agent for MCP server operations
-                    .build();
-
-            auditLogRepository.save(auditLog);
+            AuditEvent event = new AuditEvent(
+                    tenantId,
+                    clientId,
+                    McpAuditLog.OperationType.valueOf(operationType).name(),
+                    toolName,
+                    success,
+                    success ? null : message,
+                    executionTime,
+                    "MCP-Server/1.0",  // Default user agent for MCP server operations
+                    McpSecurityContext.getClientIpAddress(),
+                    LocalDateTime.now(),
+                    userId);
+
+            if (asyncAuditWriter.isPresent()) {
+                asyncAuditWriter.get().submit(event);
+            } else {
+                saveSynchronously(event);
+            }
             
-            log.debug("Audit log created for operation {} by client {} in tenant {}", 
+            log.debug("Audit log recorded for operation {} by client {} in tenant {}", 
                     operationType, clientId, tenantId);
 
         } catch (Exception e) {
@@ -59,6 +89,24 @@ public class McpAuditService {
         }
     }
 
+    private void saveSynchronously(AuditEvent event) {
+        // Own transaction, so callers inside read-only transactions can still be audited
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.executeWithoutResult(status -> auditLogRepository.save(McpAuditLog.builder()
+                .tenantId(event.tenantId())
+                .clientId(event.clientId())
+                .operationType(McpAuditLog.OperationType.valueOf(event.operationType()))
+                .toolName(event.toolName())
+                .success(event.success())
+                .errorMessage(event.errorMessage())
+                .executionTimeMs(event.executionTimeMs())
+                .createdBy(event.createdBy())
+                .ipAddress(event.ipAddress())
+                .userAgent(event.userAgent())
+                .build()));
+    }
+
     // Audit logs tool moved to REST controller
     @Transactional(readOnly = true)
     public String getAuditLogs(int page, int size) {
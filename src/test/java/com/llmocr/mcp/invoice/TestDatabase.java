@@ -0,0 +1,37 @@
+package com.llmocr.mcp.invoice;
+
+import liquibase.command.CommandScope;
+import liquibase.command.core.UpdateCommandStep;
+import liquibase.command.core.helpers.DbUrlConnectionCommandStep;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * Applies the application's Liquibase changelog to a test database
+ *
+ * For tests that run against a Postgres container without starting the Spring context.
+ */
+public final class TestDatabase {
+
+    public static final String CHANGELOG = "db/changelog/db.changelog-master.xml";
+
+    private TestDatabase() {
+    }
+
+    public static void migrate(DataSource dataSource) throws Exception {
+        new JdbcTemplate(dataSource).execute("CREATE SCHEMA IF NOT EXISTS mcp_invoice");
+        try (Connection connection = dataSource.getConnection()) {
+            Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            new CommandScope(UpdateCommandStep.COMMAND_NAME)
+                    .addArgumentValue(DbUrlConnectionCommandStep.DATABASE_ARG, database)
+                    .addArgumentValue(UpdateCommandStep.CHANGELOG_FILE_ARG, CHANGELOG)
+                    .execute();
+        }
+    }
+}
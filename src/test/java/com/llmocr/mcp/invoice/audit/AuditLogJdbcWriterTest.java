@@ -0,0 +1,82 @@
+package com.llmocr.mcp.invoice.audit;
+
+import com.llmocr.mcp.invoice.TestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Audit batch inserts against Postgres: rows with a NULL or unknown tenant must not fail the rest
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AuditLogJdbcWriterTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("mcp_invoice_audit")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private AuditLogJdbcWriter writer;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestDatabase.migrate(dataSource);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM mcp_invoice.mcp_audit_log");
+        writer = new AuditLogJdbcWriter(jdbcTemplate);
+    }
+
+    @Test
+    void validBatchIsWrittenInOneGo() {
+        assertEquals(List.of(), writer.write(List.of(event("demo", "a"), event("default", "b"))));
+        assertEquals(2, auditRows());
+    }
+
+    @Test
+    void rejectedRowsAreReturnedAndTheRestWritten() {
+        AuditEvent nullTenant = event(null, "unauthorized");
+        AuditEvent unknownTenant = event("no-such-tenant", "unknown");
+
+        List<AuditEvent> rejected = writer.write(List.of(
+                event("demo", "a"), nullTenant, event("demo", "b"), unknownTenant, event("default", "c")));
+
+        assertEquals(List.of(nullTenant, unknownTenant), rejected);
+        assertEquals(List.of("a", "b", "c"), jdbcTemplate.queryForList(
+                "SELECT tool_name FROM mcp_invoice.mcp_audit_log ORDER BY tool_name", String.class));
+    }
+
+    @Test
+    void plainBatchInsertStillFailsAsAWhole() {
+        assertThrows(DataAccessException.class, () -> writer.insert(List.of(event("demo", "a"), event(null, "b"))));
+        assertEquals(0, auditRows());
+    }
+
+    private int auditRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mcp_invoice.mcp_audit_log", Integer.class);
+    }
+
+    private static AuditEvent event(String tenantId, String toolName) {
+        return new AuditEvent(tenantId, "client", "TOOL_CALL", toolName, true, null, 5,
+                "agent", "10.0.0.1", LocalDateTime.of(2024, 3, 1, 12, 0), "user");
+    }
+}
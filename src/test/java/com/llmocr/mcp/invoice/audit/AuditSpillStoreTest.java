@@ -0,0 +1,231 @@
+package com.llmocr.mcp.invoice.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmocr.mcp.invoice.config.JacksonConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Spill segment append and replay, including records torn by a crash mid-append and
+ * records the database rejects for good
+ */
+class AuditSpillStoreTest {
+
+    private static final int SEGMENT_HEADER_SIZE = Long.BYTES;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
+
+    private AuditSpillStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = newStore();
+    }
+
+    @Test
+    void replaysSpilledEventsInOrderAndDeletesSegments() throws IOException {
+        List<AuditEvent> events = events(0, 25);
+        store.append(events.subList(0, 10));
+        store.append(events.subList(10, 25));
+
+        List<AuditEvent> replayed = new ArrayList<>();
+        assertEquals(25, store.replay(7, into(replayed)));
+
+        assertEquals(events, replayed);
+        assertFalse(store.hasPendingEvents());
+        assertEquals(0, store.replay(7, into(replayed)));
+    }
+
+    @Test
+    void failedBatchIsReplayedOnceOnTheNextRun() throws IOException {
+        List<AuditEvent> events = events(0, 10);
+        store.append(events);
+
+        List<AuditEvent> replayed = new ArrayList<>();
+        int[] calls = {0};
+        store.replay(4, batch -> {
+            if (++calls[0] == 2) {
+                throw new CannotGetJdbcConnectionException("database down");
+            }
+            replayed.addAll(batch);
+            return List.of();
+        });
+        assertEquals(events.subList(0, 4), replayed);
+        assertTrue(store.hasPendingEvents());
+
+        store.replay(4, into(replayed));
+        assertEquals(events, replayed);
+    }
+
+    @Test
+    void poisonRecordDoesNotBlockLaterSegments() throws IOException {
+        List<AuditEvent> events = events(0, 4);
+        store.append(events);
+        store.close();
+        store = newStore();
+        List<AuditEvent> later = events(4, 6);
+        store.append(later);
+
+        // The database rejects one row for good, e.g. a NULL tenant_id
+        AuditEvent poison = events.get(1);
+        List<AuditEvent> replayed = new ArrayList<>();
+        assertEquals(5, store.replay(10, batch -> {
+            List<AuditEvent> accepted = batch.stream().filter(event -> !event.equals(poison)).toList();
+            replayed.addAll(accepted);
+            return batch.contains(poison) ? List.of(poison) : List.of();
+        }));
+
+        assertEquals(List.of(events.get(0), events.get(2), events.get(3), later.get(0), later.get(1)), replayed);
+        assertFalse(store.hasPendingEvents());
+        assertEquals(List.of(poison), rejectedEvents());
+    }
+
+    @Test
+    void batchFailingWithConstraintViolationIsQuarantined() throws IOException {
+        List<AuditEvent> events = events(0, 6);
+        store.append(events);
+
+        List<AuditEvent> replayed = new ArrayList<>();
+        assertEquals(3, store.replay(3, batch -> {
+            if (batch.contains(events.get(0))) {
+                throw new DataIntegrityViolationException("insert failed",
+                        new SQLException("null value in column \"tenant_id\"", "23502"));
+            }
+            replayed.addAll(batch);
+            return List.of();
+        }));
+
+        assertEquals(events.subList(3, 6), replayed);
+        assertFalse(store.hasPendingEvents());
+        assertEquals(events.subList(0, 3), rejectedEvents());
+    }
+
+    @Test
+    void tornRecordIsQuarantinedAndLaterSegmentsStillReplay() throws IOException {
+        List<AuditEvent> events = events(0, 3);
+        store.append(events);
+        store.close();
+
+        // A crash mid-append: the third record's length is on disk, the end of its payload is not
+        Path segment = onlySegment(".seg");
+        int thirdRecord = SEGMENT_HEADER_SIZE + recordSize(events.get(0)) + recordSize(events.get(1));
+        int payloadEnd = thirdRecord + recordSize(events.get(2));
+        overwrite(segment, payloadEnd - 10, new byte[10]);
+
+        // After restart, new events go to a new segment
+        store = newStore();
+        List<AuditEvent> later = events(3, 5);
+        store.append(later);
+
+        List<AuditEvent> replayed = new ArrayList<>();
+        assertEquals(4, store.replay(10, into(replayed)));
+
+        assertEquals(List.of(events.get(0), events.get(1), later.get(0), later.get(1)), replayed);
+        assertFalse(store.hasPendingEvents());
+        assertTrue(Files.size(onlySegment(".corrupt")) > 0);
+    }
+
+    @Test
+    void garbageLengthIsQuarantined() throws IOException {
+        List<AuditEvent> events = events(0, 2);
+        store.append(events);
+        store.close();
+
+        Path segment = onlySegment(".seg");
+        int secondRecord = SEGMENT_HEADER_SIZE + recordSize(events.get(0));
+        overwrite(segment, secondRecord, ByteBuffer.allocate(Integer.BYTES).putInt(Integer.MAX_VALUE).array());
+
+        store = newStore();
+        List<AuditEvent> replayed = new ArrayList<>();
+        assertEquals(1, store.replay(10, into(replayed)));
+
+        assertEquals(List.of(events.get(0)), replayed);
+        assertFalse(store.hasPendingEvents());
+        assertTrue(Files.exists(onlySegment(".corrupt")));
+    }
+
+    @Test
+    void rollsToNewSegmentWhenFull() throws IOException {
+        List<AuditEvent> events = events(0, 200);
+        store.append(events);
+        store.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 1, "events spread over several segments");
+        }
+
+        store = newStore();
+        List<AuditEvent> replayed = new ArrayList<>();
+        store.replay(50, into(replayed));
+        assertEquals(events, replayed);
+    }
+
+    private AuditSpillStore newStore() {
+        return new AuditSpillStore(objectMapper, new SimpleMeterRegistry(), directory.toString(),
+                DataSize.ofKilobytes(16), false);
+    }
+
+    private static AuditSpillStore.BatchWriter into(List<AuditEvent> replayed) {
+        return batch -> {
+            replayed.addAll(batch);
+            return List.of();
+        };
+    }
+
+    private List<AuditEvent> rejectedEvents() throws IOException {
+        List<AuditEvent> rejected = new ArrayList<>();
+        for (String line : Files.readAllLines(directory.resolve("audit-rejected.jsonl"))) {
+            rejected.add(objectMapper.readValue(line, AuditEvent.class));
+        }
+        return rejected;
+    }
+
+    private List<AuditEvent> events(int from, int to) {
+        LocalDateTime now = LocalDateTime.of(2024, 3, 1, 12, 0);
+        return IntStream.range(from, to)
+                .mapToObj(i -> new AuditEvent("demo", "client", "TOOL_CALL", "tool" + i, i % 2 == 0,
+                        i % 2 == 0 ? null : "error " + i, i, "agent", "10.0.0.1", now.plusSeconds(i), "user"))
+                .toList();
+    }
+
+    private int recordSize(AuditEvent event) throws IOException {
+        return RECORD_HEADER_SIZE + objectMapper.writeValueAsBytes(event).length;
+    }
+
+    private Path onlySegment(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> matching = files.filter(file -> file.toString().endsWith(suffix)).toList();
+            assertEquals(1, matching.size(), "files ending in " + suffix);
+            return matching.get(0);
+        }
+    }
+
+    private static void overwrite(Path file, int position, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+}
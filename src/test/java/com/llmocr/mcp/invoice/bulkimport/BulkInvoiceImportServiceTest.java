@@ -0,0 +1,154 @@
+package com.llmocr.mcp.invoice.bulkimport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmocr.mcp.invoice.TestDatabase;
+import com.llmocr.mcp.invoice.config.JacksonConfiguration;
+import com.llmocr.mcp.invoice.service.InvoiceInputMapper;
+import com.llmocr.mcp.invoice.service.InvoiceValidationService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk import staging, checkpointing and resume against Postgres (COPY is Postgres-only)
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class BulkInvoiceImportServiceTest {
+
+    private static final String TENANT = "demo";
+    private static final int RECORDS = 6;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("mcp_invoice_import")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static DriverManagerDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    private BulkInvoiceImportService importService;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestDatabase.migrate(dataSource);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM mcp_invoice.invoices WHERE tenant_id = ?", TENANT);
+
+        ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
+        importService = new BulkInvoiceImportService(new InvoiceImportJobStore(jdbcTemplate, objectMapper),
+                new InvoiceInputMapper(), new InvoiceValidationService(), jdbcTemplate, objectMapper,
+                event -> { }, new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(importService, "chunkSize", 2);
+        ReflectionTestUtils.setField(importService, "leaseTimeout", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(importService, "maxReportedErrors", 100);
+        ReflectionTestUtils.setField(importService, "stagingRetention", Duration.ofDays(7));
+    }
+
+    @Test
+    void importsAllRecords() {
+        InvoiceImportJob job = importService.importInvoices(TENANT, "tester", "complete", InvoiceImportFormat.CSV,
+                input(RECORDS));
+
+        assertEquals(InvoiceImportJob.Status.COMPLETED, job.status());
+        assertEquals(RECORDS, job.recordsRead());
+        assertEquals(RECORDS, job.invoicesInserted());
+        assertEquals(RECORDS, countInvoices());
+        assertEquals(0, stagedRows("complete"));
+    }
+
+    @Test
+    void resumeSkipsCommittedRecords() {
+        InvoiceImportJob failed = importService.importInvoices(TENANT, "tester", "resume", InvoiceImportFormat.CSV,
+                interruptedInput(4));
+        assertEquals(InvoiceImportJob.Status.FAILED, failed.status());
+        assertTrue(failed.recordsRead() > 0 && failed.recordsRead() < RECORDS, "some chunks committed");
+        assertEquals(0, countInvoices());
+
+        InvoiceImportJob resumed = importService.importInvoices(TENANT, "tester", "resume", InvoiceImportFormat.CSV,
+                input(RECORDS));
+
+        assertEquals(InvoiceImportJob.Status.COMPLETED, resumed.status());
+        assertEquals(RECORDS, resumed.recordsRead());
+        assertEquals(RECORDS, resumed.invoicesInserted());
+        assertEquals(RECORDS, countInvoices());
+    }
+
+    @Test
+    void lostStagedChunkRestartsFromFirstRecord() {
+        InvoiceImportJob failed = importService.importInvoices(TENANT, "tester", "lost-chunk", InvoiceImportFormat.CSV,
+                interruptedInput(4));
+        assertEquals(InvoiceImportJob.Status.FAILED, failed.status());
+        assertTrue(failed.recordsStaged() >= 2, "at least one chunk committed");
+
+        // Staged rows of the last committed chunk vanish while its checkpoint survives
+        jdbcTemplate.update("DELETE FROM mcp_invoice.invoice_import_staging WHERE import_id = ? AND record_number > ?",
+                "lost-chunk", failed.recordsStaged() - 2);
+
+        InvoiceImportJob resumed = importService.importInvoices(TENANT, "tester", "lost-chunk", InvoiceImportFormat.CSV,
+                input(RECORDS));
+
+        assertEquals(InvoiceImportJob.Status.COMPLETED, resumed.status());
+        assertEquals(RECORDS, resumed.recordsStaged());
+        assertEquals(RECORDS, resumed.invoicesInserted());
+        assertEquals(RECORDS, countInvoices());
+    }
+
+    private static String csv(int records) {
+        StringBuilder csv = new StringBuilder("invoice_number,vendor_name,invoice_date,total_amount,currency\n");
+        for (int i = 1; i <= records; i++) {
+            csv.append("IMP-").append(i).append(",Vendor ").append(i).append(',')
+               .append(LocalDate.now().minusDays(i)).append(',').append(100 + i).append(".00,USD\n");
+        }
+        return csv.toString();
+    }
+
+    private static InputStream input(int records) {
+        return new ByteArrayInputStream(csv(records).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The first records, then a broken connection
+     */
+    private static InputStream interruptedInput(int records) {
+        InputStream broken = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+        return new SequenceInputStream(input(records), broken);
+    }
+
+    private static long countInvoices() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mcp_invoice.invoices WHERE tenant_id = ?",
+                Long.class, TENANT);
+    }
+
+    private static long stagedRows(String importId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mcp_invoice.invoice_import_staging WHERE import_id = ?",
+                Long.class, importId);
+    }
+}
@@ -0,0 +1,76 @@
+package com.llmocr.mcp.invoice.document;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Range header parsing and tool call ranges for document reads
+ */
+class ByteRangeTest {
+
+    private static final long SIZE = 1000;
+
+    @Test
+    void missingOrUnsupportedHeaderReturnsFullDocument() {
+        assertEquals(ByteRange.full(SIZE), ByteRange.parse(null, SIZE));
+        assertEquals(ByteRange.full(SIZE), ByteRange.parse("items=0-10", SIZE));
+        assertEquals(ByteRange.full(SIZE), ByteRange.parse("bytes=0-10,20-30", SIZE));
+        assertEquals(ByteRange.full(SIZE), ByteRange.parse("bytes=10", SIZE));
+        assertEquals(ByteRange.full(SIZE), ByteRange.parse("bytes=a-b", SIZE));
+        assertEquals(ByteRange.full(SIZE), ByteRange.parse("bytes=-", SIZE));
+    }
+
+    @Test
+    void invalidRangeIsIgnored() {
+        assertEquals(ByteRange.full(SIZE), ByteRange.parse("bytes=5-3", SIZE));
+        assertEquals(ByteRange.full(SIZE), ByteRange.parse("bytes=--5", SIZE));
+    }
+
+    @Test
+    void closedRange() {
+        ByteRange range = ByteRange.parse("bytes=10-19", SIZE);
+        assertEquals(new ByteRange(10, 10), range);
+        assertEquals(19, range.end());
+        assertTrue(range.isPartial(SIZE));
+    }
+
+    @Test
+    void lastPositionIsClampedToDocument() {
+        assertEquals(new ByteRange(990, 10), ByteRange.parse("bytes=990-5000", SIZE));
+    }
+
+    @Test
+    void openEndedRange() {
+        assertEquals(new ByteRange(100, 900), ByteRange.parse("bytes=100-", SIZE));
+        assertFalse(ByteRange.parse("bytes=0-", SIZE).isPartial(SIZE));
+    }
+
+    @Test
+    void suffixRange() {
+        assertEquals(new ByteRange(900, 100), ByteRange.parse("bytes=-100", SIZE));
+        assertEquals(ByteRange.full(SIZE), ByteRange.parse("bytes=-5000", SIZE));
+    }
+
+    @Test
+    void unsatisfiableRangesReturnNull() {
+        assertNull(ByteRange.parse("bytes=1000-", SIZE));
+        assertNull(ByteRange.parse("bytes=1000-1010", SIZE));
+        assertNull(ByteRange.parse("bytes=-0", SIZE));
+        assertNull(ByteRange.parse("bytes=0-", 0));
+    }
+
+    @Test
+    void toolRangeDefaultsToAndIsCappedAtMaxLength() {
+        assertEquals(new ByteRange(0, 100), ByteRange.of(null, null, SIZE, 100));
+        assertEquals(new ByteRange(50, 100), ByteRange.of(50L, 5000L, SIZE, 100));
+        assertEquals(new ByteRange(950, 50), ByteRange.of(950L, null, SIZE, 100));
+        assertEquals(new ByteRange(0, 10), ByteRange.of(0L, 10L, SIZE, 100));
+    }
+
+    @Test
+    void toolRangeRejectsOffsetOutsideDocument() {
+        assertThrows(IllegalArgumentException.class, () -> ByteRange.of(-1L, null, SIZE, 100));
+        assertThrows(IllegalArgumentException.class, () -> ByteRange.of(SIZE, null, SIZE, 100));
+    }
+}
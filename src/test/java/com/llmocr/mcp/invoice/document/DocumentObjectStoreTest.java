@@ -0,0 +1,127 @@
+package com.llmocr.mcp.invoice.document;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Content-addressed store: deduplication, encodings and range reads across compressed frames
+ */
+class DocumentObjectStoreTest {
+
+    private static final int FRAME_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    private DocumentObjectStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new DocumentObjectStore(new SimpleMeterRegistry(), directory.toString(), 3, 0.1,
+                DataSize.ofBytes(FRAME_SIZE), DataSize.ofMegabytes(10));
+    }
+
+    @Test
+    void directoryIsRequired() {
+        assertThrows(IllegalStateException.class, () -> new DocumentObjectStore(new SimpleMeterRegistry(), "", 3, 0.1,
+                DataSize.ofBytes(FRAME_SIZE), DataSize.ofMegabytes(10)));
+    }
+
+    @Test
+    void textIsStoredAsSeekableFrames() throws IOException {
+        byte[] content = text(10 * FRAME_SIZE + 123);
+        StoredObject object = store.put(new ByteArrayInputStream(content));
+
+        assertEquals(StoredObject.Encoding.ZSTD, object.encoding());
+        assertEquals(content.length, object.size());
+        assertTrue(object.storedSize() < content.length);
+        try (FileChannel channel = FileChannel.open(object.path(), StandardOpenOption.READ)) {
+            ZstdSeekTable table = ZstdSeekTable.read(channel);
+            assertNotNull(table);
+            assertEquals(11, table.frameCount());
+            assertEquals(content.length, table.size());
+        }
+
+        StoredObject found = store.find(object.sha256()).orElseThrow();
+        assertEquals(content.length, found.size());
+        assertArrayEquals(content, read(found, 0, content.length));
+    }
+
+    @Test
+    void rangeReadsWithinAndAcrossFrames() throws IOException {
+        byte[] content = text(5 * FRAME_SIZE + 7);
+        StoredObject object = store.put(new ByteArrayInputStream(content));
+
+        long[][] ranges = {
+                {0, 10},
+                {FRAME_SIZE - 5, 10},
+                {FRAME_SIZE, FRAME_SIZE},
+                {100, 3 * FRAME_SIZE},
+                {content.length - 7, 7},
+                {content.length - 1, 1}};
+        for (long[] range : ranges) {
+            assertArrayEquals(Arrays.copyOfRange(content, (int) range[0], (int) (range[0] + range[1])),
+                    read(object, range[0], range[1]), "range " + range[0] + "+" + range[1]);
+        }
+    }
+
+    @Test
+    void incompressibleContentIsStoredRaw() throws IOException {
+        byte[] content = new byte[3 * FRAME_SIZE];
+        new Random(42).nextBytes(content);
+        StoredObject object = store.put(new ByteArrayInputStream(content));
+
+        assertEquals(StoredObject.Encoding.RAW, object.encoding());
+        assertEquals(content.length, object.storedSize());
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 5000), read(object, 100, 4900));
+    }
+
+    @Test
+    void sameContentIsStoredOnce() throws IOException {
+        byte[] content = text(2 * FRAME_SIZE);
+        StoredObject first = store.put(new ByteArrayInputStream(content));
+        StoredObject second = store.put(new ByteArrayInputStream(content));
+
+        assertFalse(first.deduplicated());
+        assertTrue(second.deduplicated());
+        assertEquals(first.sha256(), second.sha256());
+        assertEquals(first.path(), second.path());
+    }
+
+    @Test
+    void emptyDocumentAndInvalidHashAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> store.put(new ByteArrayInputStream(new byte[0])));
+        assertThrows(IllegalArgumentException.class, () -> store.find("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> store.find("ABC"));
+    }
+
+    private byte[] read(StoredObject object, long offset, long length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.transferTo(object, offset, length, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static byte[] text(int size) {
+        StringBuilder text = new StringBuilder(size);
+        for (int line = 0; text.length() < size; line++) {
+            text.append("Line ").append(line).append(": consulting services, 2.5 hours at 20.00 USD\n");
+        }
+        return text.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,84 @@
+package com.llmocr.mcp.invoice.duplicate;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bloom filter answers: never a false negative, false positives near the sized rate
+ */
+class BloomFilterTest {
+
+    private static final int INSERTIONS = 10_000;
+    private static final double FPP = 0.01;
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(INSERTIONS, FPP);
+        assertFalse(filter.mightContain("INV-0001"));
+        assertFalse(filter.mightContain(""));
+        assertEquals(0, filter.insertions());
+    }
+
+    @Test
+    void everyAddedValueIsReported() {
+        BloomFilter filter = new BloomFilter(INSERTIONS, FPP);
+        IntStream.range(0, INSERTIONS).forEach(i -> filter.put("INV-" + i));
+
+        IntStream.range(0, INSERTIONS).forEach(i -> assertTrue(filter.mightContain("INV-" + i), "INV-" + i));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        BloomFilter filter = new BloomFilter(INSERTIONS, FPP);
+        IntStream.range(0, INSERTIONS).forEach(i -> filter.put("INV-" + i));
+
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain("OTHER-" + i))
+                .count();
+        assertTrue(falsePositives < 100_000 * FPP * 2, "false positives: " + falsePositives);
+        assertEquals(FPP, filter.expectedFpp(), FPP);
+    }
+
+    @Test
+    void lookupsAreCaseAndWhitespaceSensitive() {
+        // Callers trim, and invoice numbers are unique as written
+        BloomFilter filter = new BloomFilter(INSERTIONS, FPP);
+        filter.put("INV-0042");
+        assertTrue(filter.mightContain("INV-0042"));
+        assertFalse(filter.mightContain("inv-0042"));
+        assertFalse(filter.mightContain("INV-0042 "));
+    }
+
+    @Test
+    void concurrentPutsAreAllVisible() throws InterruptedException {
+        BloomFilter filter = new BloomFilter(INSERTIONS, FPP);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            int offset = thread;
+            executor.execute(() -> {
+                for (int i = offset; i < INSERTIONS; i += 4) {
+                    filter.put("INV-" + i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        IntStream.range(0, INSERTIONS).forEach(i -> assertTrue(filter.mightContain("INV-" + i), "INV-" + i));
+    }
+
+    @Test
+    void overfilledFilterStillHasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(100, FPP);
+        IntStream.range(0, 1_000).forEach(i -> filter.put("INV-" + i));
+
+        assertTrue(filter.insertions() > filter.capacity());
+        IntStream.range(0, 1_000).forEach(i -> assertTrue(filter.mightContain("INV-" + i)));
+    }
+}
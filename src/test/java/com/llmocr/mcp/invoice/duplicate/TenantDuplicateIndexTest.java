@@ -0,0 +1,107 @@
+package com.llmocr.mcp.invoice.duplicate;
+
+import com.llmocr.mcp.invoice.duplicate.TenantDuplicateIndex.MatchSettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Candidate lookup through the amount and number chains, and scoring of near-duplicates
+ */
+class TenantDuplicateIndexTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 1);
+    private static final MatchSettings SETTINGS = new MatchSettings(0.85, 7, 2, 5);
+
+    private TenantDuplicateIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TenantDuplicateIndex(0.01);
+        index.add(fingerprint(1, "INV-1001", "Acme Supplies Inc", "1250.00", "USD", DATE));
+        index.add(fingerprint(2, "INV-2002", "Globex", "99.99", "USD", DATE));
+        index.add(fingerprint(3, "INV-3003", "Initech", "1250.00", "EUR", DATE));
+    }
+
+    @Test
+    void ocrGarbledNumberFromSameVendorAndAmountMatches() {
+        List<DuplicateMatch> matches = index.findMatches(
+                fingerprint(-1, "INV-l0O1", "ACME Supplies", "1250.00", "USD", DATE.plusDays(1)), SETTINGS);
+
+        assertEquals(1, matches.size());
+        assertEquals(1L, matches.get(0).invoiceId());
+        assertEquals("INV-1001", matches.get(0).invoiceNumber());
+        assertEquals(1.0, matches.get(0).invoiceNumberSimilarity());
+    }
+
+    @Test
+    void sameNumberIsFoundOutsideTheAmountBucketAndDateWindow() {
+        List<DuplicateMatch> matches = index.findMatches(
+                fingerprint(-1, "inv 1001", "Acme Supplies", "980.00", "USD", DATE.plusDays(90)), SETTINGS);
+
+        assertEquals(List.of(1L), matches.stream().map(DuplicateMatch::invoiceId).toList());
+    }
+
+    @Test
+    void nearAmountNeedsSameCurrencyAndDateWindow() {
+        assertTrue(index.findMatches(fingerprint(-1, "INV-1001X", "Acme Supplies", "1255.00", "USD", DATE), SETTINGS)
+                .stream().anyMatch(match -> match.invoiceId() == 1));
+        assertTrue(index.findMatches(fingerprint(-1, "X-77", "Acme Supplies", "1250.00", "USD", DATE.plusDays(30)), SETTINGS)
+                .isEmpty());
+        assertTrue(index.findMatches(fingerprint(-1, "X-77", "Initech", "1250.00", "GBP", DATE), SETTINGS)
+                .isEmpty());
+    }
+
+    @Test
+    void unrelatedInvoiceDoesNotMatch() {
+        assertTrue(index.findMatches(fingerprint(-1, "Q-42", "Umbrella", "5.00", "USD", DATE), SETTINGS).isEmpty());
+    }
+
+    @Test
+    void invoiceIsNotItsOwnDuplicateAndIdsAreIndexedOnce() {
+        index.add(fingerprint(1, "INV-1001", "Acme Supplies Inc", "1250.00", "USD", DATE));
+        assertEquals(3, index.size());
+
+        assertTrue(index.findMatches(fingerprint(1, "INV-1001", "Acme Supplies Inc", "1250.00", "USD", DATE), SETTINGS)
+                .isEmpty());
+    }
+
+    @Test
+    void matchesAreCappedBestFirst() {
+        TenantDuplicateIndex crowded = new TenantDuplicateIndex(0.01);
+        IntStream.range(0, 20).forEach(i ->
+                crowded.add(fingerprint(100 + i, "INV-" + (5000 + i), "Acme", "100.00", "USD", DATE.plusDays(i % 3))));
+
+        List<DuplicateMatch> matches = crowded.findMatches(
+                fingerprint(-1, "INV-5000", "Acme", "100.00", "USD", DATE), SETTINGS);
+
+        assertEquals(SETTINGS.maxMatches(), matches.size());
+        assertEquals(100L, matches.get(0).invoiceId());
+        for (int i = 1; i < matches.size(); i++) {
+            assertTrue(matches.get(i - 1).score() >= matches.get(i).score());
+        }
+    }
+
+    @Test
+    void memoryEstimateGrowsWithInvoices() {
+        TenantDuplicateIndex growing = new TenantDuplicateIndex(0.01);
+        long empty = growing.memoryBytes();
+        IntStream.range(0, 10_000).forEach(i ->
+                growing.add(fingerprint(i, "INV-" + i, "Vendor " + i, i + ".00", "USD", DATE)));
+
+        assertEquals(10_000, growing.size());
+        long perInvoice = (growing.memoryBytes() - empty) / 10_000;
+        assertTrue(perInvoice > 50 && perInvoice < 400, "bytes per invoice: " + perInvoice);
+    }
+
+    private static InvoiceFingerprint fingerprint(long id, String number, String vendor, String amount,
+                                                  String currency, LocalDate date) {
+        return InvoiceFingerprint.of(id, number, vendor, new BigDecimal(amount), currency, date);
+    }
+}
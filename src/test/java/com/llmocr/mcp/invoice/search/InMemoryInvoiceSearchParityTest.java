@@ -0,0 +1,114 @@
+package com.llmocr.mcp.invoice.search;
+
+import com.llmocr.mcp.invoice.TestDatabase;
+import com.llmocr.mcp.invoice.dto.InvoiceSearchHit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The in-memory index answers plain queries with the same invoices as the Postgres search,
+ * and leaves everything it cannot match the same way to Postgres
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class InMemoryInvoiceSearchParityTest {
+
+    private static final String TENANT = "demo";
+    private static final int LIMIT = 50;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("mcp_invoice_search")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static InvoiceSearchService databaseSearch;
+    private static InMemoryInvoiceSearchIndex memorySearch;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TestDatabase.migrate(dataSource);
+        jdbcTemplate.update("DELETE FROM mcp_invoice.invoices WHERE tenant_id = ?", TENANT);
+
+        insert(jdbcTemplate, "INV-0042", "Acme Supplies", "Globex", "Office chairs", null);
+        insert(jdbcTemplate, "INV-0043", "Initech", "Acme Holdings", "Consulting", null);
+        insert(jdbcTemplate, "2024-7781", "Umbrella", "Globex", "Chairs for the Acme office", null);
+        insert(jdbcTemplate, "INV-0099", "Wayne Enterprises", null, "Hardware", "Two year warranty included");
+
+        databaseSearch = new InvoiceSearchService(jdbcTemplate);
+        memorySearch = new InMemoryInvoiceSearchIndex(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(memorySearch, "enabled", true);
+        ReflectionTestUtils.setField(memorySearch, "maxTenantMemory", DataSize.ofMegabytes(64));
+        ReflectionTestUtils.setField(memorySearch, "maxTotalMemory", DataSize.ofMegabytes(512));
+        ReflectionTestUtils.setField(memorySearch, "refreshOverlap", Duration.ofMinutes(2));
+        memorySearch.load(TENANT);
+    }
+
+    @Test
+    void plainQueriesMatchTheSameInvoices() {
+        for (String query : List.of("acme", "Acme chairs", "globex", "consulting", "wayne enterprises", "INV-0043")) {
+            Optional<List<InvoiceSearchHit>> memoryHits = memorySearch.search(TENANT, query, LIMIT);
+            assertTrue(memoryHits.isPresent(), "answered in memory: " + query);
+            assertEquals(ids(databaseSearch.search(TENANT, query, LIMIT)), ids(memoryHits.get()), query);
+        }
+    }
+
+    @Test
+    void exactInvoiceNumberRanksFirstInBoth() {
+        assertEquals("INV-0043", memorySearch.search(TENANT, "inv-0043", LIMIT).orElseThrow()
+                .get(0).invoice().invoiceNumber());
+        assertEquals("INV-0043", databaseSearch.search(TENANT, "inv-0043", LIMIT).get(0).invoice().invoiceNumber());
+    }
+
+    @Test
+    void queriesOnlyPostgresCanAnswerFallBack() {
+        // OCR text, a fragment of an invoice number, and the websearch syntax
+        for (String query : List.of("warranty", "7781", "0042 chairs extra", "\"office chairs\"", "acme -globex",
+                "initech or umbrella")) {
+            assertTrue(memorySearch.search(TENANT, query, LIMIT).isEmpty(), "falls back: " + query);
+        }
+        assertEquals(1, databaseSearch.search(TENANT, "warranty", LIMIT).size());
+        assertEquals(1, databaseSearch.search(TENANT, "7781", LIMIT).size());
+        assertEquals(1, databaseSearch.search(TENANT, "acme -globex", LIMIT).size());
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, String number, String vendor, String customer,
+                               String description, String extractedText) {
+        Long id = jdbcTemplate.queryForObject("""
+                INSERT INTO mcp_invoice.invoices (tenant_id, invoice_number, vendor_name, customer_name, description,
+                                                  invoice_date, total_amount, currency, status, processing_status)
+                VALUES (?, ?, ?, ?, ?, CURRENT_DATE, 100.00, 'USD', 'PENDING', 'NEW')
+                RETURNING id
+                """, Long.class, TENANT, number, vendor, customer, description);
+        if (extractedText != null) {
+            jdbcTemplate.update("""
+                    INSERT INTO mcp_invoice.invoice_ocr_payloads (invoice_id, tenant_id, extracted_text, created_at, updated_at)
+                    VALUES (?, ?, ?, now(), now())
+                    """, id, TENANT, extractedText);
+        }
+    }
+
+    private static Set<Long> ids(List<InvoiceSearchHit> hits) {
+        return hits.stream().map(hit -> hit.invoice().id()).collect(Collectors.toSet());
+    }
+}
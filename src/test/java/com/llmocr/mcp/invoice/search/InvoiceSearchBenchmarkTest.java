@@ -0,0 +1,140 @@
+package com.llmocr.mcp.invoice.search;
+
+import com.llmocr.mcp.invoice.TestDatabase;
+import com.llmocr.mcp.invoice.dto.InvoiceSearchHit;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Latency benchmark: ranked invoice search vs the former LOWER LIKE '%term%' page query
+ * 
+ * Loads invoice.search.benchmark.rows invoices (default 1M) for one tenant plus a tenth
+ * of that for a second tenant, applies the real Liquibase changelog, then times each
+ * search term with both implementations and prints median and p95 latency.
+ * 
+ * Slow and Docker-dependent, so only runs when asked for:
+ * mvn test -Dtest=InvoiceSearchBenchmarkTest -Dinvoice.search.benchmark=true
+ */
+@Testcontainers
+@EnabledIfSystemProperty(named = "invoice.search.benchmark", matches = "true")
+class InvoiceSearchBenchmarkTest {
+
+    private static final String TENANT = "demo";
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 15;
+
+    /** Equivalent of the removed searchByTenantIdAndTerm: a page of 20 plus Spring Data's count query */
+    private static final String LEGACY_WHERE = 
+            "WHERE tenant_id = ? AND (LOWER(invoice_number) LIKE LOWER(CONCAT('%', ?, '%')) " +
+            "OR LOWER(vendor_name) LIKE LOWER(CONCAT('%', ?, '%')) " +
+            "OR LOWER(customer_name) LIKE LOWER(CONCAT('%', ?, '%')))";
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("mcp_invoice_bench")
+            .withUsername("test")
+            .withPassword("test")
+            .withCommand("postgres", "-c", "shared_buffers=512MB", "-c", "max_wal_size=4GB");
+
+    private static JdbcTemplate jdbcTemplate;
+    private static InvoiceSearchService searchService;
+
+    @BeforeAll
+    static void loadInvoices() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        searchService = new InvoiceSearchService(jdbcTemplate);
+
+        TestDatabase.migrate(dataSource);
+
+        int rows = Integer.getInteger("invoice.search.benchmark.rows", 1_000_000);
+        long start = System.nanoTime();
+        insertInvoices(TENANT, rows);
+        insertInvoices("default", rows / 10);
+        jdbcTemplate.execute("VACUUM ANALYZE mcp_invoice.invoices");
+        jdbcTemplate.execute("VACUUM ANALYZE mcp_invoice.invoice_ocr_payloads");
+        System.out.printf("Loaded %,d invoices in %,d ms%n", rows + rows / 10, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void insertInvoices(String tenantId, int rows) {
+        jdbcTemplate.update("""
+                INSERT INTO mcp_invoice.invoices (tenant_id, invoice_number, vendor_name, customer_name, invoice_date,
+                    total_amount, currency, description, status, processing_status)
+                SELECT ?, 'INV-' || lpad(n::text, 8, '0'),
+                       (ARRAY['Acme Supplies', 'Globex Corporation', 'Initech', 'Umbrella Corp', 'Stark Industries',
+                              'Wayne Enterprises', 'Hooli', 'Vandelay Industries', 'Soylent Green Ltd', 'Cyberdyne Systems'])[1 + n % 10]
+                           || ' ' || (n % 997),
+                       'Customer ' || (n % 5003),
+                       DATE '2020-01-01' + (n % 1800),
+                       round((random() * 10000)::numeric, 2),
+                       (ARRAY['USD', 'EUR', 'GBP'])[1 + n % 3],
+                       (ARRAY['Consulting services', 'Office supplies', 'Cloud hosting', 'Hardware maintenance',
+                              'Freight and logistics'])[1 + n % 5] || ' for period ' || (n % 12 + 1),
+                       'PENDING', 'NEW'
+                FROM generate_series(1, ?) AS n
+                """, tenantId, rows);
+        jdbcTemplate.update("""
+                INSERT INTO mcp_invoice.invoice_ocr_payloads (invoice_id, tenant_id, extracted_text)
+                SELECT id, tenant_id, 'Invoice ' || invoice_number || ' payment due within 30 days reference ' || md5(id::text)
+                FROM mcp_invoice.invoices
+                WHERE tenant_id = ?
+                """, tenantId);
+    }
+
+    @Test
+    void compareSearchLatency() {
+        List<String> terms = List.of("INV-00123456", "0012345", "Globex", "umbrella corp 42", "consulting", "Hooli 7");
+
+        System.out.printf("%-20s %14s %14s %14s %14s %8s%n", "term", "legacy p50 ms", "legacy p95 ms", "search p50 ms", "search p95 ms", "hits");
+        for (String term : terms) {
+            double[] legacy = time(() -> legacySearch(term));
+            double[] ranked = time(() -> searchService.search(TENANT, term, PAGE_SIZE));
+            int hits = searchService.search(TENANT, term, PAGE_SIZE).size();
+            System.out.printf("%-20s %14.2f %14.2f %14.2f %14.2f %8d%n", term, legacy[0], legacy[1], ranked[0], ranked[1], hits);
+        }
+
+        List<InvoiceSearchHit> exact = searchService.search(TENANT, "INV-00123456", PAGE_SIZE);
+        assertFalse(exact.isEmpty());
+        assertEquals("INV-00123456", exact.get(0).invoice().invoiceNumber());
+    }
+
+    private static Object legacySearch(String term) {
+        List<Long> page = jdbcTemplate.queryForList(
+                "SELECT id FROM mcp_invoice.invoices " + LEGACY_WHERE + " LIMIT " + PAGE_SIZE, Long.class,
+                TENANT, term, term, term);
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM mcp_invoice.invoices " + LEGACY_WHERE, Long.class, TENANT, term, term, term);
+        return page.size() + count;
+    }
+
+    /**
+     * @return median and p95 latency in milliseconds
+     */
+    private static double[] time(Supplier<Object> query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+        }
+        double[] millis = new double[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            query.get();
+            millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(millis);
+        return new double[] {millis[ITERATIONS / 2], millis[(int) Math.ceil(ITERATIONS * 0.95) - 1]};
+    }
+}
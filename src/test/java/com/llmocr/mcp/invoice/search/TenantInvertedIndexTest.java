@@ -0,0 +1,85 @@
+package com.llmocr.mcp.invoice.search;
+
+import com.llmocr.mcp.invoice.domain.Invoice;
+import com.llmocr.mcp.invoice.dto.InvoiceSearchHit;
+import com.llmocr.mcp.invoice.dto.InvoiceSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * In-memory token matching, ranking and which queries are left to Postgres
+ */
+class TenantInvertedIndexTest {
+
+    private TenantInvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TenantInvertedIndex();
+        index.add(invoice(1, "INV-0042", "Acme Supplies", "Globex"), "Office chairs");
+        index.add(invoice(2, "INV-0043", "Initech", "Acme Holdings"), "Consulting");
+        index.add(invoice(3, "2024/0042", "Umbrella", "Globex"), "Chairs for the Acme office");
+    }
+
+    @Test
+    void everyTokenMustMatchSomeField() {
+        assertEquals(List.of(1L, 2L, 3L), ids(index.search("acme", 10)));
+        assertEquals(List.of(1L, 3L), ids(index.search("acme chairs", 10)));
+        assertEquals(List.of(), ids(index.search("acme missing", 10)));
+    }
+
+    @Test
+    void accentsAndCaseAreFolded() {
+        assertEquals(List.of(2L), ids(index.search("CONSÜLTING", 10)));
+    }
+
+    @Test
+    void exactInvoiceNumberRanksFirst() {
+        List<InvoiceSearchHit> hits = index.search("inv 0042", 10);
+        assertEquals(1L, hits.get(0).invoice().id());
+        assertEquals(1.0, hits.get(0).score());
+        assertEquals(List.of(2L), ids(index.search("0043", 10)));
+    }
+
+    @Test
+    void betterFieldScoresHigherAndLimitKeepsTheBest() {
+        // Vendor beats customer beats description
+        assertEquals(List.of(1L, 2L, 3L), ids(index.search("acme", 10)));
+        assertEquals(List.of(1L, 2L), ids(index.search("acme", 2)));
+    }
+
+    @Test
+    void partialTokensDoNotMatch() {
+        assertEquals(List.of(), ids(index.search("004", 10)));
+        assertEquals(List.of(), ids(index.search("glob", 10)));
+    }
+
+    @Test
+    void searchSyntaxIsLeftToPostgres() {
+        assertTrue(InMemoryInvoiceSearchIndex.isPlainQuery("acme chairs"));
+        assertTrue(InMemoryInvoiceSearchIndex.isPlainQuery("INV-0042"));
+        assertTrue(InMemoryInvoiceSearchIndex.isPlainQuery("oracle"));
+
+        assertFalse(InMemoryInvoiceSearchIndex.isPlainQuery("\"office chairs\""));
+        assertFalse(InMemoryInvoiceSearchIndex.isPlainQuery("acme -globex"));
+        assertFalse(InMemoryInvoiceSearchIndex.isPlainQuery("acme or initech"));
+        assertFalse(InMemoryInvoiceSearchIndex.isPlainQuery("acme OR initech"));
+    }
+
+    private static InvoiceSummary invoice(long id, String number, String vendor, String customer) {
+        return new InvoiceSummary(id, number, vendor, customer, LocalDate.of(2024, 3, 1), null,
+                new BigDecimal("100.00"), "USD", Invoice.InvoiceStatus.PENDING, Invoice.ProcessingStatus.NEW,
+                LocalDateTime.of(2024, 3, 1, 12, 0));
+    }
+
+    private static List<Long> ids(List<InvoiceSearchHit> hits) {
+        return hits.stream().map(hit -> hit.invoice().id()).toList();
+    }
+}
@@ -0,0 +1,55 @@
+package com.llmocr.mcp.invoice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Encoding and validation of keyset pagination cursors
+ */
+class InvoiceCursorTest {
+
+    private static final String ORDERING = "created_at";
+
+    @Test
+    void roundTrip() {
+        InvoiceCursor cursor = new InvoiceCursor(ORDERING, "2024-03-01T10:15:30.123456", 42);
+
+        String encoded = cursor.encode();
+
+        assertFalse(encoded.contains("="));
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+        assertEquals(cursor, InvoiceCursor.decode(encoded, ORDERING));
+        assertEquals(cursor, InvoiceCursor.decode("  " + encoded + " ", ORDERING));
+    }
+
+    @Test
+    void blankCursorIsFirstPage() {
+        assertNull(InvoiceCursor.decode(null, ORDERING));
+        assertNull(InvoiceCursor.decode("", ORDERING));
+        assertNull(InvoiceCursor.decode("   ", ORDERING));
+    }
+
+    @Test
+    void cursorFromAnotherListingIsRejected() {
+        String encoded = new InvoiceCursor("invoice_date", "2024-03-01", 42).encode();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> InvoiceCursor.decode(encoded, ORDERING));
+        assertTrue(e.getMessage().startsWith("Invalid cursor"));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> InvoiceCursor.decode("not base64!", ORDERING));
+        assertThrows(IllegalArgumentException.class, () -> InvoiceCursor.decode(encode(ORDERING + "|2024-03-01"), ORDERING));
+        assertThrows(IllegalArgumentException.class, () -> InvoiceCursor.decode(encode(ORDERING + "|2024-03-01|abc"), ORDERING));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,62 @@
+package com.llmocr.mcp.invoice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Field list parsing for the invoice retrieval tools
+ */
+class InvoiceFieldProjectionTest {
+
+    @Test
+    void blankListReturnsDefaultProjection() {
+        assertSame(InvoiceFieldProjection.DEFAULT, InvoiceFieldProjection.parse(null));
+        assertSame(InvoiceFieldProjection.DEFAULT, InvoiceFieldProjection.parse(""));
+        assertSame(InvoiceFieldProjection.DEFAULT, InvoiceFieldProjection.parse("  "));
+        assertSame(InvoiceFieldProjection.DEFAULT, InvoiceFieldProjection.parse(" , ,"));
+    }
+
+    @Test
+    void defaultProjectionIsFullInvoiceWithoutOcrPayload() {
+        InvoiceFieldProjection projection = InvoiceFieldProjection.DEFAULT;
+
+        assertEquals(InvoiceFieldProjection.HEADER_COLUMNS, projection.headerColumns());
+        assertTrue(projection.includes(InvoiceFieldProjection.LINE_ITEMS));
+        assertFalse(projection.includesOcrPayload());
+    }
+
+    @Test
+    void selectedHeaderColumnsKeepDeclarationOrder() {
+        InvoiceFieldProjection projection = InvoiceFieldProjection.parse(" totalAmount,invoiceNumber , id");
+
+        assertEquals(List.of("id", "invoiceNumber", "totalAmount"),
+                projection.headerColumns().stream().map(InvoiceFieldProjection.Column::field).toList());
+        assertFalse(projection.includes(InvoiceFieldProjection.LINE_ITEMS));
+        assertFalse(projection.includesOcrPayload());
+    }
+
+    @Test
+    void joinedFieldsOnlyWhenNamed() {
+        InvoiceFieldProjection lineItems = InvoiceFieldProjection.parse("invoiceNumber,lineItems");
+        assertTrue(lineItems.includes(InvoiceFieldProjection.LINE_ITEMS));
+        assertFalse(lineItems.includesOcrPayload());
+
+        InvoiceFieldProjection extractedText = InvoiceFieldProjection.parse("extractedText");
+        assertTrue(extractedText.includesOcrPayload());
+        assertTrue(extractedText.headerColumns().isEmpty());
+
+        assertTrue(InvoiceFieldProjection.parse("rawOcrPayload").includesOcrPayload());
+    }
+
+    @Test
+    void unknownFieldsAreRejectedWithAvailableFields() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> InvoiceFieldProjection.parse("invoiceNumber,vendor,InvoiceDate"));
+
+        assertTrue(e.getMessage().contains("[vendor, InvoiceDate]"));
+        assertTrue(e.getMessage().contains("rawOcrPayload"));
+    }
+}
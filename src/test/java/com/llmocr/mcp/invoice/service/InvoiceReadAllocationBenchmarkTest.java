@@ -0,0 +1,188 @@
+package com.llmocr.mcp.invoice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.llmocr.mcp.invoice.TestDatabase;
+import com.llmocr.mcp.invoice.config.JacksonConfiguration;
+import com.llmocr.mcp.invoice.domain.Invoice;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Allocation benchmark: getInvoiceByNumber's JDBC JSON read vs the former entity path
+ *
+ * The former path loaded the managed Invoice in a read-only transaction and ran
+ * objectMapper.writeValueAsString on it, which initialised the lazy lineItems with a
+ * second query. Both paths read the same invoice (invoice.read.benchmark.line-items
+ * line items, default 20) from Postgres through the same connection pool; the test
+ * checks they produce the same JSON, then prints bytes allocated, statements and time
+ * per call measured on the calling thread.
+ *
+ * Docker-dependent, so only runs when asked for:
+ * mvn test -Dtest=InvoiceReadAllocationBenchmarkTest -Dinvoice.read.benchmark=true
+ */
+@Testcontainers
+@EnabledIfSystemProperty(named = "invoice.read.benchmark", matches = "true")
+class InvoiceReadAllocationBenchmarkTest {
+
+    private static final String TENANT = "demo";
+    private static final String INVOICE_NUMBER = "INV-BENCH-1";
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("mcp_invoice_bench")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static HikariDataSource dataSource;
+    private static EntityManagerFactory entityManagerFactory;
+    private static TransactionTemplate readOnlyTransaction;
+    private static ObjectMapper objectMapper;
+    private static InvoiceJsonReader invoiceJsonReader;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgres.getJdbcUrl());
+        dataSource.setUsername(postgres.getUsername());
+        dataSource.setPassword(postgres.getPassword());
+        dataSource.setMaximumPoolSize(2);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TestDatabase.migrate(dataSource);
+
+        int lineItems = Integer.getInteger("invoice.read.benchmark.line-items", 20);
+        Long invoiceId = jdbcTemplate.queryForObject("""
+                INSERT INTO mcp_invoice.invoices (tenant_id, invoice_number, vendor_name, vendor_address, customer_name,
+                    invoice_date, due_date, subtotal_amount, tax_amount, total_amount, currency, payment_terms,
+                    description, status, processing_status, confidence_score, metadata, created_by)
+                VALUES (?, ?, 'Acme Supplies', '1 Main Street, Springfield', 'Globex Corporation',
+                    DATE '2024-03-01', DATE '2024-03-31', 1000.00, 80.00, 1080.00, 'USD', 'Net 30',
+                    'Consulting services for March', 'PENDING', 'NEW', 0.9731,
+                    '{"source": "ocr", "pages": 2}'::jsonb, 'benchmark')
+                RETURNING id
+                """, Long.class, TENANT, INVOICE_NUMBER);
+        jdbcTemplate.update("""
+                INSERT INTO mcp_invoice.invoice_line_items (invoice_id, line_number, description, quantity, unit_price,
+                    line_total, tax_rate, tax_amount, product_code, unit_of_measure)
+                SELECT ?, n, 'Consulting hours, item ' || n, 2.500, 20.00, 50.00, 0.0800, 4.00, 'SKU-' || n, 'hour'
+                FROM generate_series(1, ?) AS n
+                """, invoiceId, lineItems);
+        jdbcTemplate.execute("ANALYZE mcp_invoice.invoices");
+        jdbcTemplate.execute("ANALYZE mcp_invoice.invoice_line_items");
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("com.llmocr.mcp.invoice.domain");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(
+                "hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect",
+                "hibernate.generate_statistics", "true"));
+        factory.afterPropertiesSet();
+        entityManagerFactory = factory.getObject();
+
+        readOnlyTransaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        readOnlyTransaction.setReadOnly(true);
+
+        objectMapper = new JacksonConfiguration().objectMapper();
+        invoiceJsonReader = new InvoiceJsonReader(jdbcTemplate, objectMapper);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+        }
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * The removed implementation: findByTenantIdAndInvoiceNumber, then serialize the entity
+     */
+    private static String entityRead() {
+        return readOnlyTransaction.execute(status -> {
+            EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+            Invoice invoice = entityManager.createQuery(
+                            "SELECT i FROM Invoice i WHERE i.tenantId = :tenantId AND i.invoiceNumber = :invoiceNumber",
+                            Invoice.class)
+                    .setParameter("tenantId", TENANT)
+                    .setParameter("invoiceNumber", INVOICE_NUMBER)
+                    .getSingleResult();
+            try {
+                return objectMapper.writeValueAsString(invoice);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static String jdbcRead() {
+        return invoiceJsonReader.read(TENANT, INVOICE_NUMBER, InvoiceFieldProjection.DEFAULT).orElseThrow();
+    }
+
+    @Test
+    void compareAllocationsPerCall() throws Exception {
+        assertEquals(objectMapper.readTree(entityRead()), objectMapper.readTree(jdbcRead()),
+                "JDBC read must return the same JSON as the entity path");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        entityRead();
+        long entityStatements = statistics.getPrepareStatementCount();
+
+        long[] entity = measure(InvoiceReadAllocationBenchmarkTest::entityRead);
+        long[] jdbc = measure(InvoiceReadAllocationBenchmarkTest::jdbcRead);
+
+        System.out.printf("%-8s %16s %12s %14s%n", "path", "bytes/call", "statements", "mean us/call");
+        System.out.printf("%-8s %,16d %12d %,14d%n", "entity", entity[0], entityStatements, entity[1]);
+        System.out.printf("%-8s %,16d %12d %,14d%n", "jdbc", jdbc[0], 1, jdbc[1]);
+
+        assertTrue(jdbc[0] < entity[0], "JDBC read should allocate less than the entity path");
+    }
+
+    /**
+     * @return bytes allocated by this thread and mean microseconds, per call
+     */
+    private static long[] measure(Supplier<String> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++) {
+            read.get();
+        }
+
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            read.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        return new long[] {allocated / ITERATIONS, elapsed / ITERATIONS / 1_000};
+    }
+}